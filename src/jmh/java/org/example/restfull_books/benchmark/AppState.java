@@ -0,0 +1,89 @@
+package org.example.restfull_books.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.RestfullBooksApplication;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.repository.BookRepository;
+import org.example.restfull_books.service.BookService;
+import org.example.restfull_books.service.UserService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Приложение целиком на in-memory H2 без HTTP-порта (server.port=-1): сервисы, репозитории и MockMvc из одного контекста.
+// Перед замером в базу загружается SEED книг и пользователей
+@State(Scope.Benchmark)
+public class AppState {
+
+    static final int SEED = 10_000;
+
+    public ConfigurableApplicationContext context;
+    public MockMvc mockMvc;
+    public BookService bookService;
+    public UserService userService;
+    public BookRepository bookRepository;
+    public ObjectMapper objectMapper;
+
+    private long[] bookIds;
+    private long[] userIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(RestfullBooksApplication.class)
+                .properties(
+                        "server.port=-1",
+                        "spring.datasource.url=jdbc:h2:mem:jmh-" + UUID.randomUUID(),
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "app.cache.type=" + cacheType())
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        bookService = context.getBean(BookService.class);
+        userService = context.getBean(UserService.class);
+        bookRepository = context.getBean(BookRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    protected String cacheType() {
+        return "tinylfu";
+    }
+
+    public long randomBookId() {
+        return bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+    }
+
+    public long randomUserId() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    private void seed() {
+        List<Book> books = new ArrayList<>(SEED);
+        List<User> users = new ArrayList<>(SEED);
+        for (int i = 0; i < SEED; i++) {
+            books.add(new Book(0, "Book title " + i, i % 1000, "Author " + i % 100));
+            users.add(new User(0, "First" + i, "Last" + i));
+        }
+        bookIds = bookService.saveAll(books).stream().mapToLong(BatchItemResult::getId).toArray();
+        userIds = userService.saveAll(users).stream().mapToLong(BatchItemResult::getId).toArray();
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.restfull_books.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.example.restfull_books.entity.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// JSON против CBOR и Smile: одна книга (GET /books/{id}) и страница из 100 книг (GET /books).
+// Размеры тела без сжатия и после gzip (так их отдаст Tomcat, server.compression) печатаются в начале каждого @Param
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectWriter bookWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader bookReader;
+    private ObjectReader pageReader;
+    private Book book;
+    private List<Book> page;
+    private byte[] bookBytes;
+    private byte[] pageBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "json" -> new JsonFactory();
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException(format);
+        };
+        // Так же, как BinaryFormatsConfig строит конвертеры
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        bookWriter = objectMapper.writerFor(Book.class);
+        bookReader = objectMapper.readerFor(Book.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class));
+        pageReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class));
+
+        book = new Book(42L, "Мастер и Маргарита", 500, "Михаил Булгаков", 3L);
+        page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(new Book(1000L + i, "Книга номер " + i, 100 + i, "Автор " + (i % 10), (long) i % 4));
+        }
+        bookBytes = bookWriter.writeValueAsBytes(book);
+        pageBytes = pageWriter.writeValueAsBytes(page);
+        System.out.printf("%n%s: book %d B (gzip %d B), page of 100 books %d B (gzip %d B)%n", format,
+                bookBytes.length, gzip(bookBytes).length, pageBytes.length, gzip(pageBytes).length);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws IOException {
+        return bookWriter.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public Book deserializeBook() throws IOException {
+        return bookReader.readValue(bookBytes);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<Book> deserializePage() throws IOException {
+        return pageReader.readValue(pageBytes);
+    }
+
+    // Сериализация плюс gzip — полная цена ответа со сжатием
+    @Benchmark
+    public byte[] serializePageGzip() throws IOException {
+        return gzip(pageWriter.writeValueAsBytes(page));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
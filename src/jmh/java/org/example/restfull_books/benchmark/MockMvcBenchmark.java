@@ -0,0 +1,102 @@
+package org.example.restfull_books.benchmark;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+// Полный проход запроса через DispatcherServlet: разбор, контроллер, сервис, БД, сериализация ответа
+public class MockMvcBenchmark {
+
+    private static final String BOOK_JSON = """
+            {"title": "Мастер и Маргарита", "price": 500, "author": "Михаил Булгаков"}""";
+    private static final String USER_JSON = """
+            {"firstName": "Михаил", "lastName": "Булгаков"}""";
+
+    @Benchmark
+    public MvcResult getBook(AppState state) throws Exception {
+        return state.mockMvc.perform(get("/books/{id}", state.randomBookId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getBooksPage(AppState state) throws Exception {
+        return state.mockMvc.perform(get("/books")
+                .param("after", String.valueOf(state.randomBookId()))
+                .param("limit", "20")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult searchBooks(AppState state) throws Exception {
+        return state.mockMvc.perform(get("/books/search").param("q", "author 4")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult newBook(AppState state) throws Exception {
+        return state.mockMvc.perform(post("/books/new")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BOOK_JSON)).andReturn();
+    }
+
+    // Книга для удаления сохраняется перед каждым вызовом, вне замера: deleteBook меряет только DELETE.
+    // Накладные расходы Level.Invocation — микросекунды, сам запрос идёт миллисекунды
+    @State(Scope.Thread)
+    public static class BookToDelete {
+        long id;
+
+        @Setup(Level.Invocation)
+        public void save(AppState state) {
+            id = state.bookService.save(new Book(0, "Удаляемая книга", 100, "Автор")).getId();
+        }
+    }
+
+    @Benchmark
+    public MvcResult deleteBook(AppState state, BookToDelete book) throws Exception {
+        return state.mockMvc.perform(delete("/books/{id}", book.id)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getUser(AppState state) throws Exception {
+        return state.mockMvc.perform(get("/users/{id}", state.randomUserId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getUsersPage(AppState state) throws Exception {
+        return state.mockMvc.perform(get("/users")
+                .param("after", String.valueOf(state.randomUserId()))
+                .param("limit", "20")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult newUser(AppState state) throws Exception {
+        return state.mockMvc.perform(post("/users/new")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(USER_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult putUser(AppState state) throws Exception {
+        return state.mockMvc.perform(put("/users/{id}", state.randomUserId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(USER_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult patchUser(AppState state) throws Exception {
+        return state.mockMvc.perform(patch("/users/{id}", state.randomUserId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\": \"Алексей\"}")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult newAndDeleteUser(AppState state) throws Exception {
+        long id = state.userService.save(new User(0, "Удаляемый", "Пользователь")).getId();
+        return state.mockMvc.perform(delete("/users/{id}", id)).andReturn();
+    }
+}
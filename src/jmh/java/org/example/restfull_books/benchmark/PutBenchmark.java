@@ -0,0 +1,71 @@
+package org.example.restfull_books.benchmark;
+
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// PUT пользователя: прежний путь (findVersionById, затем save -> merge: SELECT версии, SELECT сущности, UPDATE)
+// против одного условного UPDATE с возвратом версии (UserService.updateUser).
+// После каждой итерации печатается число SQL-выражений на операцию по статистике запросов H2
+public class PutBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CountingState extends AppState {
+
+        private JdbcTemplate jdbc;
+        public UserRepository userRepository;
+        public final AtomicLong operations = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void resetStatistics() {
+            if (jdbc == null) {
+                jdbc = context.getBean(JdbcTemplate.class);
+                userRepository = context.getBean(UserRepository.class);
+            }
+            jdbc.execute("SET QUERY_STATISTICS FALSE"); // выключение сбрасывает накопленное
+            jdbc.execute("SET QUERY_STATISTICS TRUE");
+            operations.set(0);
+        }
+
+        @TearDown(Level.Iteration)
+        public void printStatementsPerOperation() {
+            // COMMIT H2 тоже считает выражением — показываем отдельно
+            Long statements = count("sql_statement <> 'COMMIT'");
+            Long commits = count("sql_statement = 'COMMIT'");
+            long ops = Math.max(1, operations.get());
+            System.out.printf("%n%d PUTs: %.2f SQL statements and %.2f COMMITs per PUT%n", operations.get(),
+                    (double) statements / ops, (double) commits / ops);
+        }
+
+        private Long count(String condition) {
+            return jdbc.queryForObject("select coalesce(sum(execution_count), 0) from information_schema.query_statistics"
+                    + " where sql_statement not like '%QUERY_STATISTICS%' and " + condition, Long.class);
+        }
+
+        User nextUser() {
+            operations.incrementAndGet();
+            return new User(randomUserId(), "First" + ThreadLocalRandom.current().nextInt(1000), "Last");
+        }
+    }
+
+    @Benchmark
+    public User findVersionThenSave(CountingState state) {
+        User user = state.nextUser();
+        user.setVersion(state.userRepository.findVersionById(user.getId()).orElseThrow());
+        return state.userRepository.save(user);
+    }
+
+    @Benchmark
+    public User conditionalUpdate(CountingState state) {
+        return state.userService.updateUser(state.nextUser());
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.restfull_books.benchmark;
+
+import org.example.restfull_books.entity.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+
+// Одиночная вставка через Spring Data: транзакция, получение id из последовательности, INSERT
+public class RepositoryBenchmark {
+
+    @Benchmark
+    public Book bookRepositorySave(AppState state) {
+        return state.bookRepository.save(new Book(0, "Benchmark title", 100, "Benchmark author"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.restfull_books.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+
+// Jackson без Spring-контекста; ObjectMapper настроен так же, как его строит Spring Boot по умолчанию
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ObjectWriter bookWriter;
+    private ObjectWriter userWriter;
+    private ObjectReader bookReader;
+    private ObjectReader userReader;
+    private Book book;
+    private User user;
+    private byte[] bookJson;
+    private byte[] userJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        bookWriter = objectMapper.writerFor(Book.class);
+        userWriter = objectMapper.writerFor(User.class);
+        bookReader = objectMapper.readerFor(Book.class);
+        userReader = objectMapper.readerFor(User.class);
+        book = new Book(42L, "Мастер и Маргарита", 500, "Михаил Булгаков");
+        user = new User(42L, "Михаил", "Булгаков");
+        bookJson = bookWriter.writeValueAsBytes(book);
+        userJson = userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws JsonProcessingException {
+        return bookWriter.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public Book deserializeBook() throws IOException {
+        return bookReader.readValue(bookJson);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws IOException {
+        return userReader.readValue(userJson);
+    }
+}
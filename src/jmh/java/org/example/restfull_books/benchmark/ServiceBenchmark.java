@@ -0,0 +1,38 @@
+package org.example.restfull_books.benchmark;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Горячие пути сервисов: чтение книги (с кэшем и без) и PATCH пользователя
+public class ServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CacheState extends AppState {
+
+        @Param({"tinylfu", "none"})
+        public String cache;
+
+        @Override
+        protected String cacheType() {
+            return cache;
+        }
+    }
+
+    @Benchmark
+    public Book bookServiceGetByBookId(CacheState state) {
+        return state.bookService.getByBookId(state.randomBookId());
+    }
+
+    @Benchmark
+    public User userServiceUpdatePartial(AppState state) {
+        String firstName = "Name" + ThreadLocalRandom.current().nextInt(1000);
+        return state.userService.updatePartial(state.randomUserId(), Map.of("firstName", firstName));
+    }
+}
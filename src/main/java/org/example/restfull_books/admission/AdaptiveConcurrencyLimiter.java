@@ -0,0 +1,69 @@
+package org.example.restfull_books.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Предел одновременных запросов, подстраиваемый по задержке (AIMD): быстрый ответ поднимает предел на 1/limit
+// (около +1 за «круг» запросов), медленный или 5xx — умножает на backoffRatio. Верхняя граница — не больше пула
+// соединений, поэтому лишние запросы получают 503 сразу, а не ждут соединение до connection-timeout.
+// Без блокировок: счётчик в работе и предел (double в AtomicLong) меняются CAS
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(maxLimit));
+    }
+
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // После каждого пропущенного запроса: latencyNanos — сколько он выполнялся, failed — ответ 5xx
+    public void release(long latencyNanos, boolean failed) {
+        inFlight.decrementAndGet();
+        boolean overloaded = failed || latencyNanos > latencyThresholdNanos;
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = overloaded
+                    ? Math.max(minLimit, limit * backoffRatio)
+                    : Math.min(maxLimit, limit + 1.0 / limit);
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    // Освободить место, не меняя предел: время запроса — не задержка БД (выгрузка StreamingResponseBody
+    // длится, пока клиент читает ответ) и сигналом перегрузки не считается
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
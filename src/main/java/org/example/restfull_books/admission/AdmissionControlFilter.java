@@ -0,0 +1,96 @@
+package org.example.restfull_books.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.restfull_books.exception.DomainException;
+import org.example.restfull_books.exception.ServiceUnavailableException;
+import org.example.restfull_books.exception.TooManyRequestsException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Допуск запросов к /books и /users до DispatcherServlet: сначала ведро клиента (429 с Retry-After),
+// потом предел одновременных запросов (503 с Retry-After). Чтение (GET, HEAD) и запись — с раздельными бюджетами,
+// чтобы поток POST не вытеснял чтение и наоборот. Отказ превращает в problem+json GlobalExceptionHandler
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final Budget reads;
+    private final Budget writes;
+    private final ClientKeyResolver clients;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public record Budget(ClientRateLimiter rate, AdaptiveConcurrencyLimiter concurrency) {
+    }
+
+    public AdmissionControlFilter(Budget reads, Budget writes, ClientKeyResolver clients,
+                                  HandlerExceptionResolver exceptionResolver) {
+        this.reads = reads;
+        this.writes = writes;
+        this.clients = clients;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.startsWith("/books") || path.startsWith("/users"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        Budget budget = "GET".equals(method) || "HEAD".equals(method) ? reads : writes;
+
+        long waitNanos = budget.rate().tryAcquire(clients.clientOf(request));
+        if (waitNanos > 0) {
+            reject(request, response, new TooManyRequestsException("Rate limit exceeded",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1))));
+            return;
+        }
+        AdaptiveConcurrencyLimiter concurrency = budget.concurrency();
+        if (!concurrency.tryAcquire()) {
+            reject(request, response, new ServiceUnavailableException("Server is at its concurrency limit", 1));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // StreamingResponseBody держит соединение с БД до конца выгрузки — место освобождается тогда же.
+                // Длительность выгрузки зависит от объёма и скорости клиента, поэтому предел она не меняет
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        concurrency.release();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                concurrency.release(System.nanoTime() - start, response.getStatus() >= 500);
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, DomainException ex) {
+        exceptionResolver.resolveException(request, response, null, ex);
+    }
+}
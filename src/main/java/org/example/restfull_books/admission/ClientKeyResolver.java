@@ -0,0 +1,29 @@
+package org.example.restfull_books.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Кто клиент запроса — одинаково для допуска запросов (вёдра ClientRateLimiter) и чтения своих записей
+// (ReadYourWritesFilter): значение заголовка app.admission.client-header, без него или при пустом — адрес клиента
+@Component
+public class ClientKeyResolver {
+
+    private final String clientHeader;
+
+    @Autowired
+    public ClientKeyResolver(@Value("${app.admission.client-header:}") String clientHeader) {
+        this.clientHeader = clientHeader;
+    }
+
+    public String clientOf(HttpServletRequest request) {
+        if (clientHeader != null && !clientHeader.isEmpty()) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isEmpty()) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
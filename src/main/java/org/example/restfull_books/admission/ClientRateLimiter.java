@@ -0,0 +1,74 @@
+package org.example.restfull_books.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token bucket на каждого клиента: rate запросов в секунду, запас до burst подряд.
+// Ведро хранится одним числом — моментом, когда оно снова станет полным (GCRA): запрос двигает этот момент
+// на 1/rate вперёд одним CAS, без блокировок и без аллокаций. Ведро, которое уже полное, ничем не отличается
+// от нового, поэтому при переполнении карты такие удаляются; если места всё равно нет, новые клиенты делят одно ведро
+public class ClientRateLimiter {
+
+    static final String OVERFLOW_CLIENT = "*";
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final int maxClients;
+    private final LongSupplier ticker;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final SweepThrottle sweepThrottle;
+
+    public ClientRateLimiter(double ratePerSecond, int burst, int maxClients) {
+        this(ratePerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    ClientRateLimiter(double ratePerSecond, int burst, int maxClients, LongSupplier ticker) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.capacityNanos = intervalNanos * burst;
+        this.maxClients = maxClients;
+        this.ticker = ticker;
+        this.sweepThrottle = new SweepThrottle(ticker.getAsLong());
+    }
+
+    // 0 — запрос пропущен; иначе через сколько наносекунд в ведре появится токен
+    public long tryAcquire(String client) {
+        long now = ticker.getAsLong();
+        AtomicLong fullAt = bucket(client, now);
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long excess = next - now - capacityNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int clients() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            sweep(now);
+            if (buckets.size() >= maxClients) {
+                client = OVERFLOW_CLIENT;
+            }
+        }
+        return buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+    }
+
+    private void sweep(long now) {
+        if (sweepThrottle.tryStart(now)) {
+            buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.restfull_books.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Очистка карты клиентов не чаще раза в секунду: при карте, полной активных клиентов, каждый новый клиент
+// не должен обходить её целиком. Обходит один поток — тот, кто первым сдвинул момент последней очистки
+public class SweepThrottle {
+
+    private static final long INTERVAL_NANOS = 1_000_000_000L;
+
+    private final AtomicLong lastSweep;
+
+    public SweepThrottle(long now) {
+        this.lastSweep = new AtomicLong(now);
+    }
+
+    // true — этому потоку очищать карту сейчас
+    public boolean tryStart(long now) {
+        long last = lastSweep.get();
+        return now - last >= INTERVAL_NANOS && lastSweep.compareAndSet(last, now);
+    }
+}
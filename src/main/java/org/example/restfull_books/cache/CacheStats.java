@@ -0,0 +1,17 @@
+package org.example.restfull_books.cache;
+
+import lombok.Value;
+
+// Снимок счётчиков кэша
+@Value
+public class CacheStats {
+    long hits;
+    long negativeHits;
+    long misses;
+    long evictions;
+    long size;
+
+    public static CacheStats empty() {
+        return new CacheStats(0, 0, 0, 0, 0);
+    }
+}
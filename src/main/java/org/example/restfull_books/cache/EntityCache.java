@@ -0,0 +1,27 @@
+package org.example.restfull_books.cache;
+
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+// Кэш сущностей по первичному ключу перед репозиторием.
+// Промах (Optional.empty() от загрузчика) тоже кэшируется — повторный запрос несуществующего id не идёт в БД
+public interface EntityCache<V> {
+
+    // Read-through: при промахе вызывает loader и запоминает результат, включая отсутствие записи
+    Optional<V> get(long id, LongFunction<Optional<V>> loader);
+
+    // Только то, что уже в кэше, без загрузки: empty — записи нет, она устарела или отрицательная
+    Optional<V> getIfPresent(long id);
+
+    // Запись после save/update: заменяет значение с версией не новее и отрицательную запись после промаха.
+    // После markMissing или invalidate игнорируется — опоздавший put не должен вернуть старое
+    void put(long id, V value);
+
+    // Запись удалена: следующий get вернёт empty без обращения к БД
+    void markMissing(long id);
+
+    // Запись изменена в обход put (пакет): следующий get загрузит её заново
+    void invalidate(long id);
+
+    CacheStats stats();
+}
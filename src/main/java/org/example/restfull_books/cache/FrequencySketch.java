@@ -0,0 +1,59 @@
+package org.example.restfull_books.cache;
+
+// Count-min sketch для оценки частоты обращений к ключу (основа политики допуска TinyLFU).
+// Счётчики насыщаются на 15; после sampleSize инкрементов все делятся пополам, чтобы старая популярность затухала.
+// Синхронизации нет намеренно: потерянный при гонке инкремент лишь немного занижает оценку
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final int MAX_COUNT = 15;
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        // ~8 счётчиков на элемент кэша (степень двойки), иначе коллизии уравнивают частоты всех ключей
+        int capacity = Integer.highestOneBit(Math.max(128, maximumSize) * 8 - 1) << 1;
+        this.table = new byte[capacity];
+        this.mask = capacity - 1;
+        this.sampleSize = 10 * Math.max(128, maximumSize);
+    }
+
+    void increment(long key) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(key, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(long key) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, table[indexOf(key, i)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(long key, int row) {
+        long hash = (key + SEEDS[row]) * SEEDS[row];
+        hash += hash >>> 32;
+        return (int) hash & mask;
+    }
+}
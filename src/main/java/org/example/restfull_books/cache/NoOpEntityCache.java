@@ -0,0 +1,35 @@
+package org.example.restfull_books.cache;
+
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+// app.cache.type=none: каждый get идёт в репозиторий
+public class NoOpEntityCache<V> implements EntityCache<V> {
+
+    @Override
+    public Optional<V> get(long id, LongFunction<Optional<V>> loader) {
+        return loader.apply(id);
+    }
+
+    @Override
+    public Optional<V> getIfPresent(long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(long id, V value) {
+    }
+
+    @Override
+    public void markMissing(long id) {
+    }
+
+    @Override
+    public void invalidate(long id) {
+    }
+
+    @Override
+    public CacheStats stats() {
+        return CacheStats.empty();
+    }
+}
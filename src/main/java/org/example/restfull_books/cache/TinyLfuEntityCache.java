@@ -0,0 +1,264 @@
+package org.example.restfull_books.cache;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+// Ограниченный по размеру кэш с TTL и политикой допуска TinyLFU.
+// Чтение без блокировок (ConcurrentHashMap); вставка и вытеснение — под одной блокировкой.
+// Когда кэш полон, новый ключ вытесняет самый старый (FIFO) только если обращались к нему чаще,
+// иначе новый ключ не допускается — редкие запросы не вымывают популярные книги.
+// Запись, пришедшая позже другой, не затирает более новое состояние:
+// put не понижает @Version, удалённую запись не воскрешает (id удалённых строк повторно не выдаются, см. IdSequences),
+// а загрузка, начатая до put/markMissing/invalidate того же id, результат не кэширует
+public class TinyLfuEntityCache<V> implements EntityCache<V> {
+
+    private enum State {
+        PRESENT,     // значение
+        ABSENT,      // загрузчик не нашёл строку — её ещё могут создать
+        DELETED,     // markMissing: строка удалена навсегда
+        INVALIDATED  // invalidate: значение неизвестно до следующей загрузки
+    }
+
+    private static final class Node<V> {
+        final long key;
+        volatile State state;
+        volatile V value;              // null, если state не PRESENT
+        volatile long version;
+        volatile long expiresAtNanos;
+        volatile long stamp;           // номер последней записи (writes) или начала загрузки
+
+        Node(long key) {
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Node<V>> map = new ConcurrentHashMap<>();
+    private final Queue<Node<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger staleNodes = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+
+    // Счётчик записей: загрузка, начатая до записи в тот же id, видит у узла stamp больше своего
+    private final AtomicLong writes = new AtomicLong();
+    // Последняя запись, от которой не осталось узла (invalidate отсутствующего id, вытеснение), — под evictionLock
+    private long droppedStamp;
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Function<? super V, Long> versionOf;
+    private final LongSupplier ticker;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // versionOf — @Version сущности; null считается версией 0
+    public TinyLfuEntityCache(int maximumSize, long ttlNanos, long negativeTtlNanos, Function<? super V, Long> versionOf) {
+        this(maximumSize, ttlNanos, negativeTtlNanos, versionOf, System::nanoTime);
+    }
+
+    TinyLfuEntityCache(int maximumSize, long ttlNanos, long negativeTtlNanos, Function<? super V, Long> versionOf,
+                       LongSupplier ticker) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttlNanos;
+        this.negativeTtlNanos = negativeTtlNanos;
+        this.versionOf = versionOf;
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public Optional<V> get(long id, LongFunction<Optional<V>> loader) {
+        sketch.increment(id);
+        Node<V> node = map.get(id);
+        if (node != null && node.state != State.INVALIDATED && node.expiresAtNanos - ticker.getAsLong() > 0) {
+            V value = node.value;
+            if (value == null) {
+                negativeHits.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(value);
+        }
+        // Устаревший узел остаётся в map: его заменит эта загрузка, если до её конца в id никто не писал
+        misses.increment();
+        long startedAt = writes.get();
+        Optional<V> loaded = loader.apply(id);
+        load(id, loaded.orElse(null), startedAt);
+        return loaded;
+    }
+
+    @Override
+    public Optional<V> getIfPresent(long id) {
+        Node<V> node = map.get(id);
+        if (node == null || node.state != State.PRESENT || node.expiresAtNanos - ticker.getAsLong() <= 0) {
+            return Optional.empty();
+        }
+        V value = node.value;
+        if (value == null) {
+            return Optional.empty(); // узел перезаписали между проверками
+        }
+        sketch.increment(id);
+        hits.increment();
+        return Optional.of(value);
+    }
+
+    @Override
+    public void put(long id, V value) {
+        long version = versionOf(value);
+        evictionLock.lock();
+        try {
+            Node<V> node = map.get(id);
+            if (node != null && (node.state == State.DELETED || node.state == State.INVALIDATED
+                    || node.state == State.PRESENT && node.version > version)) {
+                // Опоздавший put: строку удалили, пакетно изменили (версия неизвестна) или уже записали новее
+                return;
+            }
+            long stamp = writes.incrementAndGet();
+            set(node == null ? add(id, stamp) : node, State.PRESENT, value, version, ttlNanos, stamp);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void markMissing(long id) {
+        evictionLock.lock();
+        try {
+            long stamp = writes.incrementAndGet();
+            Node<V> node = map.get(id);
+            set(node == null ? add(id, stamp) : node, State.DELETED, null, Long.MAX_VALUE, negativeTtlNanos, stamp);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(long id) {
+        evictionLock.lock();
+        try {
+            long stamp = writes.incrementAndGet();
+            Node<V> node = map.get(id);
+            if (node == null) {
+                // Узел ради отметки не заводим: пакет на тысячи id вытеснил бы кэш
+                droppedStamp = stamp;
+            } else if (node.state == State.DELETED) {
+                node.stamp = stamp;
+            } else {
+                set(node, State.INVALIDATED, null, node.version, 0, stamp);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), map.size());
+    }
+
+    // Результат read-through загрузки, начатой при writes == startedAt
+    private void load(long id, V value, long startedAt) {
+        long version = value == null ? Long.MIN_VALUE : versionOf(value);
+        evictionLock.lock();
+        try {
+            Node<V> node = map.get(id);
+            if (node == null) {
+                if (droppedStamp > startedAt) {
+                    return; // пока шла загрузка, запись в какой-то id не оставила узла — возможно, в этот
+                }
+                node = add(id, startedAt);
+            } else if (node.stamp > startedAt) {
+                return; // пока шла загрузка, запись обновили, удалили или сбросили
+            } else if (node.state == State.DELETED) {
+                if (value == null) {
+                    node.expiresAtNanos = ticker.getAsLong() + negativeTtlNanos;
+                }
+                return; // реплика ещё не видит удаления — в кэш не берём
+            } else if (node.state != State.INVALIDATED && node.expiresAtNanos - ticker.getAsLong() > 0) {
+                return; // другой поток уже загрузил
+            } else if (node.state == State.PRESENT && node.version > version) {
+                return; // загрузка с отстающей реплики
+            }
+            if (value == null) {
+                set(node, State.ABSENT, null, version, negativeTtlNanos, startedAt);
+            } else {
+                set(node, State.PRESENT, value, version, ttlNanos, startedAt);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private long versionOf(V value) {
+        Long version = versionOf.apply(value);
+        return version == null ? 0 : version;
+    }
+
+    private void set(Node<V> node, State state, V value, long version, long ttl, long stamp) {
+        node.state = state;
+        node.value = value;
+        node.version = version;
+        node.expiresAtNanos = ticker.getAsLong() + ttl;
+        node.stamp = stamp;
+    }
+
+    // Вызывается под evictionLock: новый узел, остальные поля заполняет вызывающий.
+    // Если узел сразу проиграл допуск, его stamp попадает в droppedStamp
+    private Node<V> add(long id, long stamp) {
+        Node<V> node = new Node<>(id);
+        node.state = State.INVALIDATED;
+        node.stamp = stamp;
+        map.put(id, node);
+        insertionOrder.add(node);
+        if (map.size() > maximumSize) {
+            evict(node);
+        }
+        if (staleNodes.get() > maximumSize) {
+            insertionOrder.removeIf(stale -> map.get(stale.key) != stale);
+            staleNodes.set(0);
+        }
+        return node;
+    }
+
+    // Вызывается под evictionLock
+    private void evict(Node<V> candidate) {
+        Node<V> victim;
+        while ((victim = insertionOrder.poll()) != null && map.get(victim.key) != victim) {
+            staleNodes.decrementAndGet(); // узел уже вытеснен как проигравший кандидат — пропускаем
+        }
+        if (victim == null) {
+            return;
+        }
+        if (victim == candidate) {
+            // Перед кандидатом не осталось живых узлов — вытеснять некого
+            insertionOrder.add(candidate);
+            return;
+        }
+        Node<V> dropped;
+        if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+            map.remove(victim.key, victim);
+            dropped = victim;
+        } else {
+            // Кандидат проигрывает: вытесняем его, а старожил получает второй шанс в конце очереди
+            map.remove(candidate.key, candidate);
+            staleNodes.incrementAndGet();
+            insertionOrder.add(victim);
+            dropped = candidate;
+        }
+        // Вместе с узлом уходит и отметка об удалении или сбросе — загрузки, начатые до неё, не кэшируем
+        droppedStamp = Math.max(droppedStamp, dropped.stamp);
+        evictions.increment();
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.restfull_books.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.restfull_books.admission.AdaptiveConcurrencyLimiter;
+import org.example.restfull_books.admission.AdmissionControlFilter;
+import org.example.restfull_books.admission.ClientKeyResolver;
+import org.example.restfull_books.admission.ClientRateLimiter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.time.Duration;
+
+// Допуск запросов (app.admission.*): раздельные бюджеты чтения и записи, текущие пределы и число запросов в работе —
+// books.admission.limit / books.admission.in-flight{kind} в /actuator/prometheus, отказы — в books.http.errors
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionConfig {
+
+    // Медленный ответ срезает предел на 10%
+    private static final double BACKOFF_RATIO = 0.9;
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            Environment environment, MeterRegistry registry,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+            ClientKeyResolver clients,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        // Каждый пропущенный запрос может держать соединение: вместе бюджеты не больше пула,
+        // иначе лишние запросы ждут соединение до connection-timeout вместо быстрого 503
+        int maxConcurrency = environment.getRequiredProperty("app.admission.reads.max-concurrency", Integer.class)
+                + environment.getRequiredProperty("app.admission.writes.max-concurrency", Integer.class);
+        if (maxConcurrency > poolSize) {
+            throw new IllegalStateException("app.admission.reads.max-concurrency + app.admission.writes.max-concurrency = "
+                    + maxConcurrency + " exceeds spring.datasource.hikari.maximum-pool-size = " + poolSize);
+        }
+        AdmissionControlFilter filter = new AdmissionControlFilter(
+                budget(environment, registry, "reads"), budget(environment, registry, "writes"),
+                clients, exceptionResolver);
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        // Сразу после EndpointLatencyFilter: отказ не доходит до контроллера и не попадает в его гистограмму
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    private static AdmissionControlFilter.Budget budget(Environment environment, MeterRegistry registry, String kind) {
+        String prefix = "app.admission." + kind + ".";
+        ClientRateLimiter rate = new ClientRateLimiter(
+                environment.getRequiredProperty(prefix + "rate", Double.class),
+                environment.getRequiredProperty(prefix + "burst", Integer.class),
+                environment.getProperty("app.admission.max-clients", Integer.class, 10000));
+        AdaptiveConcurrencyLimiter concurrency = new AdaptiveConcurrencyLimiter(
+                environment.getProperty(prefix + "min-concurrency", Integer.class, 1),
+                environment.getRequiredProperty(prefix + "max-concurrency", Integer.class),
+                environment.getProperty("app.admission.latency-threshold", Duration.class, Duration.ofMillis(200)).toNanos(),
+                BACKOFF_RATIO);
+        Gauge.builder("books.admission.limit", concurrency, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("kind", kind).register(registry);
+        Gauge.builder("books.admission.in-flight", concurrency, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("kind", kind).register(registry);
+        return new AdmissionControlFilter.Budget(rate, concurrency);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.restfull_books.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+// CBOR и Smile для внутренних JVM-клиентов: тот же Jackson и те же модули, что у JSON, но без разбора текста.
+// Spring Boot ставит эти бины вместо конвертеров по умолчанию, поэтому на них действуют настройки spring.jackson.*
+@Configuration
+public class BinaryFormatsConfig {
+
+    // Jackson2ObjectMapperBuilder в Spring Boot — prototype: каждый метод получает свой экземпляр
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.restfull_books.config;
+
+import org.example.restfull_books.patch.MergePatchExecutor;
+import org.example.restfull_books.repository.BookRepository;
+import org.example.restfull_books.service.BatchInsertExecutor;
+import org.example.restfull_books.store.BookStore;
+import org.example.restfull_books.store.JpaBookStore;
+import org.example.restfull_books.store.MemoryBookStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+// Где живут книги. app.store.type: jpa (таблица books, по умолчанию) или memory (память + журнал в app.store.dir)
+@Configuration
+public class BookStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.store.type", havingValue = "jpa", matchIfMissing = true)
+    public BookStore jpaBookStore(BookRepository bookRepository, BatchInsertExecutor batchInsertExecutor,
+                                  MergePatchExecutor mergePatchExecutor) {
+        return new JpaBookStore(bookRepository, batchInsertExecutor, mergePatchExecutor);
+    }
+
+    // close() при остановке пишет снимок
+    @Bean
+    @ConditionalOnProperty(name = "app.store.type", havingValue = "memory")
+    public BookStore memoryBookStore(@Value("${app.store.dir:./book_store}") Path dir,
+                                     @Value("${app.store.fsync:true}") boolean fsync,
+                                     @Value("${app.store.snapshot-size:64MB}") DataSize snapshotSize) {
+        return new MemoryBookStore(dir, fsync, snapshotSize.toBytes());
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.restfull_books.config;
+
+import org.example.restfull_books.cache.EntityCache;
+import org.example.restfull_books.cache.NoOpEntityCache;
+import org.example.restfull_books.cache.TinyLfuEntityCache;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Кэши перед BookService.getByBookId и UserService.getByUserId.
+// app.cache.type: tinylfu (по умолчанию), hibernate (вместо них кэш второго уровня, см. HibernateCacheConfig) или none
+@Configuration
+public class CacheConfig {
+
+    @Value("${app.cache.type:tinylfu}")
+    private String type;
+
+    @Value("${app.cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${app.cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    // В режиме app.store.type=memory книги и так в памяти: второй экземпляр в кэше только занял бы кучу
+    @Bean
+    public EntityCache<Book> bookCache(@Value("${app.cache.books.maximum-size:10000}") int maximumSize,
+                                       @Value("${app.store.type:jpa}") String storeType) {
+        return "memory".equals(storeType) ? new NoOpEntityCache<>() : create(maximumSize, Book::getVersion);
+    }
+
+    @Bean
+    public EntityCache<User> userCache(@Value("${app.cache.users.maximum-size:10000}") int maximumSize) {
+        return create(maximumSize, User::getVersion);
+    }
+
+    private <V> EntityCache<V> create(int maximumSize, Function<V, Long> versionOf) {
+        return switch (type) {
+            case "tinylfu" -> new TinyLfuEntityCache<>(maximumSize, ttl.toNanos(), negativeTtl.toNanos(), versionOf);
+            case "hibernate", "none" -> new NoOpEntityCache<>();
+            default -> throw new IllegalStateException("Unknown app.cache.type: " + type);
+        };
+    }
+}
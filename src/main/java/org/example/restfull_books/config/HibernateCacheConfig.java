@@ -0,0 +1,72 @@
+package org.example.restfull_books.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// app.cache.type=hibernate: кэш второго уровня Hibernate для Book и User (READ_WRITE) и кэш запросов
+// для страниц BookRepository. Провайдер JCache — Caffeine в памяти процесса; регионы создаются здесь,
+// ограниченными по размеру, и Hibernate не заводит неописанных регионов (missing_cache_strategy=fail).
+// Статистика по регионам (generate_statistics) — hibernate.second.level.cache.* и hibernate.cache.query.* в /actuator/prometheus
+@Configuration
+@ConditionalOnProperty(name = "app.cache.type", havingValue = "hibernate")
+public class HibernateCacheConfig {
+
+    @Value("${app.cache.ttl:10m}")
+    private Duration ttl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${app.cache.books.maximum-size:10000}") long booksSize,
+                                              @Value("${app.cache.users.maximum-size:10000}") long usersSize,
+                                              @Value("${app.cache.queries.maximum-size:1000}") long queriesSize) {
+        // Свой URI у каждого контекста: менеджер по умолчанию один на JVM, и второй контекст (тесты) упёрся бы в занятые имена
+        URI uri = URI.create("urn:restfull-books:" + UUID.randomUUID());
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(uri, getClass().getClassLoader());
+        cacheManager.createCache("books", region(booksSize, ttl));
+        cacheManager.createCache("users", region(usersSize, ttl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queriesSize, ttl));
+        // Метки времени изменения таблиц не вытесняются: по ним кэш запросов отличает устаревшие результаты
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(-1, null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+
+    // maximumSize < 0 — без ограничения размера, ttl null — без срока жизни
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (maximumSize >= 0) {
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        }
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
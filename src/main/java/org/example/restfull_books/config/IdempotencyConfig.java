@@ -0,0 +1,35 @@
+package org.example.restfull_books.config;
+
+import org.example.restfull_books.idempotency.IdempotencyStore;
+import org.example.restfull_books.idempotency.InMemoryIdempotencyStore;
+import org.example.restfull_books.idempotency.TableIdempotencyStore;
+import org.example.restfull_books.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Хранилище ответов для Idempotency-Key. app.idempotency.store: memory (по умолчанию) или table (переживает перезапуск)
+@Configuration
+public class IdempotencyConfig {
+
+    @Value("${app.idempotency.maximum-size:100000}")
+    private int maximumSize;
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore() {
+        return new InMemoryIdempotencyStore(maximumSize, ttl.toMillis());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "table")
+    public IdempotencyStore tableIdempotencyStore(IdempotencyRecordRepository repository) {
+        return new TableIdempotencyStore(repository, maximumSize, ttl.toMillis());
+    }
+}
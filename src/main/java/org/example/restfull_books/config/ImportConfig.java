@@ -0,0 +1,30 @@
+package org.example.restfull_books.config;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.importer.ImportTarget;
+import org.example.restfull_books.service.BookService;
+import org.example.restfull_books.service.UserService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Что умеет BulkImporter: книги и пользователи, вставка — теми же пакетами, что POST /books/batch и /users/batch
+@Configuration
+public class ImportConfig {
+
+    @Bean
+    public ImportTarget<Book> bookImportTarget(BookService bookService) {
+        return new ImportTarget<>("books", Book.class, List.of("title", "price", "author"),
+                row -> new Book(0, row.text(0), row.integer(1), row.text(2)),
+                bookService::saveAll);
+    }
+
+    @Bean
+    public ImportTarget<User> userImportTarget(UserService userService) {
+        return new ImportTarget<>("users", User.class, List.of("firstName", "lastName"),
+                row -> new User(0, row.text(0), row.text(1)),
+                userService::saveAll);
+    }
+}
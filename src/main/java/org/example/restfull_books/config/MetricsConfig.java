@@ -0,0 +1,31 @@
+package org.example.restfull_books.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.restfull_books.controller.BookController;
+import org.example.restfull_books.metrics.EndpointLatencyFilter;
+import org.example.restfull_books.metrics.HibernateSessionMetrics;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Метрики отдаются через /actuator/prometheus: задержки контроллеров (books.http.server.latency),
+// статистика Hibernate (hibernate.*, books.hibernate.session.*) и пула HikariCP (hikaricp.*)
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public FilterRegistrationBean<EndpointLatencyFilter> endpointLatencyFilter(MeterRegistry registry) {
+        FilterRegistrationBean<EndpointLatencyFilter> registration = new FilterRegistrationBean<>(
+                new EndpointLatencyFilter(registry, BookController.class.getPackageName()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Сводки books.hibernate.session.* — в реестре приложения, а не в глобальном Metrics.globalRegistry
+    @Bean
+    public MeterBinder hibernateSessionMetrics() {
+        return HibernateSessionMetrics.binder();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.restfull_books.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.restfull_books.admission.ClientKeyResolver;
+import org.example.restfull_books.routing.ReadYourWritesFilter;
+import org.example.restfull_books.routing.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// app.datasource.replicas — JDBC URL реплик через запятую. Тогда транзакции только на чтение (find* репозиториев,
+// @Transactional(readOnly = true)) идут в реплики, остальное — в spring.datasource. Соединение выбирается
+// LazyConnectionDataSourceProxy при первом запросе, когда флаг readOnly транзакции уже выставлен.
+// Живые реплики и число чтений с реплик и основной БД — books.datasource.* в /actuator/prometheus
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replicas:}'.isBlank()")
+public class ReplicaRoutingConfig {
+
+    // Пул основной БД — как его построил бы Spring Boot: spring.datasource.* и spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // close() закрывает пулы реплик
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource, MeterRegistry registry,
+            @Value("${app.datasource.replicas}") List<String> urls,
+            @Value("${app.datasource.health-check-interval:5s}") Duration healthCheckInterval) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            // Учётные данные и размеры пула — как у основной БД
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(url.trim());
+            config.setPoolName("replica-" + replicas.size());
+            // Недоступная при старте реплика не мешает запуску: её вернёт проверка здоровья
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(new HikariDataSource(config));
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas,
+                healthCheckInterval, Duration.ofMillis(primaryDataSource.getValidationTimeout()));
+        Gauge.builder("books.datasource.replicas.healthy", routing, ReplicaRoutingDataSource::healthyReplicas)
+                .register(registry);
+        FunctionCounter.builder("books.datasource.reads", routing, ReplicaRoutingDataSource::replicaReadCount)
+                .tag("target", "replica").register(registry);
+        FunctionCounter.builder("books.datasource.reads", routing, ReplicaRoutingDataSource::primaryReadCount)
+                .tag("target", "primary").register(registry);
+        return routing;
+    }
+
+    // Этот DataSource получают JPA, Flyway и остальные: соединение с основной БД, если транзакция не только на чтение
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${app.datasource.sticky-window:5s}") Duration stickyWindow,
+            ClientKeyResolver clients,
+            @Value("${app.admission.max-clients:10000}") int maxClients) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+                new ReadYourWritesFilter(stickyWindow.toNanos(), clients, maxClients));
+        // После допуска запросов: отклонённый запрос на запись не делает клиента «липким»
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -1,11 +1,34 @@
 package org.example.restfull_books.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.dto.DeleteResult;
+import org.example.restfull_books.dto.ImportStatus;
+import org.example.restfull_books.dto.IngestStats;
+import org.example.restfull_books.dto.IngestStatus;
+import org.example.restfull_books.dto.KeysetPage;
 import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.idempotency.IdempotencyExecutor;
+import org.example.restfull_books.importer.BulkImporter;
+import org.example.restfull_books.service.BookIngestQueue;
 import org.example.restfull_books.service.BookService;
+import org.example.restfull_books.stats.AuthorStats;
+import org.example.restfull_books.stats.BookStats;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/books")
@@ -14,10 +37,80 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookIngestQueue ingestQueue;
+
+    @Autowired
+    private IdempotencyExecutor idempotency;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BulkImporter importer;
+
+    @Value("${app.batch.chunk-size:500}")
+    private int chunkSize;
+
+
+    // Список книг постранично: ?after=<последний id предыдущей страницы>&limit=.
+    // С фильтром только по цене (без author) порядок другой — по возрастанию цены, при равной цене по id:
+    // в следующий запрос — after=nextAfter и afterPrice=nextAfterPrice из ответа
+    @GetMapping
+    public ResponseEntity<KeysetPage<BookView>> getBooks(@RequestParam(defaultValue = "0") long after,
+                                                         @RequestParam(defaultValue = "50") int limit,
+                                                         @RequestParam(required = false) String author,
+                                                         @RequestParam(required = false) Integer minPrice,
+                                                         @RequestParam(required = false) Integer maxPrice,
+                                                         @RequestParam(required = false) Integer afterPrice) {
+        return ResponseEntity.ok(bookService.getPage(after, limit, author, minPrice, maxPrice, afterPrice));
+    }
+
+    // Книги автора постранично, по индексу (author, id)
+    @GetMapping("/by-author/{author}")
+    public ResponseEntity<KeysetPage<BookView>> getBooksByAuthor(@PathVariable String author,
+                                                                 @RequestParam(defaultValue = "0") long after,
+                                                                 @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(bookService.getByAuthor(author, after, limit));
+    }
+
+    // Полная выгрузка таблицы в NDJSON без загрузки её в память
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        StreamingResponseBody body = out -> bookService.exportAll(NdjsonLines.to(out, objectMapper.writerFor(Book.class)));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Полнотекстовый поиск по названию и автору, результаты по убыванию релевантности
+    @GetMapping("/search")
+    public ResponseEntity<List<Book>> searchBooks(@RequestParam("q") String query,
+                                                  @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(bookService.search(query, limit));
+    }
+
+    // Число книг, min/max/средняя цена и гистограмма цен — из агрегатов в памяти, без GROUP BY
+    @GetMapping("/stats")
+    public ResponseEntity<BookStats> getStats() {
+        return ResponseEntity.ok(bookService.getStats());
+    }
+
+    @GetMapping("/stats/authors/{author}")
+    public ResponseEntity<AuthorStats> getAuthorStats(@PathVariable String author) {
+        return ResponseEntity.ok(bookService.getAuthorStats(author));
+    }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBook(@PathVariable long id) {
-        return ResponseEntity.ok(bookService.getByBookId(id));
+    public ResponseEntity<Book> getBook(@PathVariable long id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            // Сверяем только версию, книгу не загружаем и не сериализуем
+            long version = bookService.getBookVersion(id);
+            if (ETags.noneMatchHits(ifNoneMatch, version)) {
+                return ETags.notModified(version);
+            }
+        }
+        Book book = bookService.getByBookId(id);
+        return ETags.ok(book, book.getVersion());
     }
 @DeleteMapping("/{id}")
 @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -25,10 +118,102 @@ public void deleteBook(@PathVariable long id) {
         bookService.deleteBookById(id); //204 No Content
 }
 
+    // Массовое удаление: тело [id, ...] или фильтр ?author=&minPrice=&maxPrice=.
+    // Без того и другого (или с обоими сразу) — 400, чтобы случайно не очистить таблицу
+    @DeleteMapping
+    public ResponseEntity<DeleteResult> deleteBooks(@RequestBody(required = false) List<Long> ids,
+                                                    @RequestParam(required = false) String author,
+                                                    @RequestParam(required = false) Integer minPrice,
+                                                    @RequestParam(required = false) Integer maxPrice) {
+        boolean filtered = author != null || minPrice != null || maxPrice != null;
+        if ((ids == null) == !filtered) {
+            return ResponseEntity.badRequest().build();
+        }
+        long deleted = ids != null
+                ? bookService.deleteBooksByIds(ids)
+                : bookService.deleteBooksMatching(author, minPrice, maxPrice);
+        return ResponseEntity.ok(new DeleteResult(deleted));
+    }
+
+    // app.ingest.mode=async: книга встаёт в очередь на групповую запись, ответ 202 и trackingId для опроса статуса.
+    // Повтор с тем же Idempotency-Key возвращает первый ответ, вторую книгу не создаёт
     @PostMapping("/new")
-  public ResponseEntity<Book> newBook(@RequestBody Book book) {
-    Book bookSaved = bookService.save(book);
-    return ResponseEntity.status(HttpStatus.OK).body(bookSaved);
+  public ResponseEntity<?> newBook(@RequestBody Book book,
+                                   @RequestHeader(value = IdempotencyExecutor.HEADER, required = false) String idempotencyKey) {
+    return idempotency.execute("books", idempotencyKey, book, () -> {
+        if (ingestQueue.isEnabled()) {
+            IngestStatus status = ingestQueue.submit(book);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/books/ingest/" + status.getTrackingId()))
+                    .body(status);
+        }
+        Book bookSaved = bookService.save(book);
+        return ResponseEntity.status(HttpStatus.OK).body(bookSaved);
+    });
+    }
+
+    @GetMapping("/ingest/{trackingId}")
+    public ResponseEntity<IngestStatus> getIngestStatus(@PathVariable long trackingId) {
+        return ResponseEntity.ok(ingestQueue.status(trackingId));
+    }
+
+    // Глубина очереди отложенной записи и счётчики принятых/отклонённых/записанных книг
+    @GetMapping("/ingest")
+    public ResponseEntity<IngestStats> getIngestStats() {
+        return ResponseEntity.ok(ingestQueue.stats());
+    }
+
+    // Замена книги целиком; ?upsert=true — создать книгу с этим id, если её нет (201 Created)
+    @PutMapping("/{id}")
+    public ResponseEntity<Book> replaceBook(@PathVariable long id, @RequestBody Book book,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            @RequestParam(defaultValue = "false") boolean upsert) {
+        book.setId(id);
+        book.setVersion(ETags.ifMatchVersion(ifMatch));
+        Book saved = upsert ? bookService.upsertBook(book) : bookService.updateBook(book);
+        return ETags.put(saved, saved.getVersion());
+    }
+
+    // Частичное обновление: JSON Merge Patch, If-Match — необязательная проверка версии
+    @PatchMapping("/{id}")
+    public ResponseEntity<Book> updateBook(@PathVariable long id, @RequestBody Map<String, Object> updates,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Book book = bookService.updatePartial(id, updates, ETags.ifMatchVersion(ifMatch));
+        return ETags.ok(book, book.getVersion());
+    }
+
+    // Пакет патчей: [{"id": 1, "version": 0, "price": 450}, ...], результат по каждому элементу
+    @PatchMapping
+    public ResponseEntity<List<BatchItemResult>> updateBooks(@RequestBody List<Map<String, Object>> patches) {
+        return ResponseEntity.ok(bookService.updatePartialAll(patches));
+    }
+
+    // Пакетная вставка: JSON-массив книг
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> newBooks(@RequestBody List<Book> books) {
+        return ResponseEntity.ok(bookService.saveAll(books));
+    }
+
+    // Пакетная вставка: NDJSON, одна книга на строку; тело читается построчно и вставляется порциями app.batch.chunk-size
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> newBooksNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(NdjsonLines.<Book>readInChunks(body, objectMapper.readerFor(Book.class), chunkSize,
+                bookService::saveAll));
+    }
+
+    // Импорт файла CSV или NDJSON из app.import.dir в фоне: 202 и jobId для опроса хода.
+    // resume=true — продолжить прерванный импорт того же файла с контрольной точки
+    @PostMapping("/import")
+    public ResponseEntity<ImportStatus> importBooks(@RequestParam String file,
+                                                    @RequestParam(required = false) String format,
+                                                    @RequestParam(defaultValue = "true") boolean resume) {
+        ImportStatus status = importer.startServerFile("books", file, format, resume);
+        return ResponseEntity.accepted().location(URI.create("/books/import/" + status.getJobId())).body(status);
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportStatus> getImportStatus(@PathVariable long jobId) {
+        return ResponseEntity.ok(importer.status("books", jobId));
     }
 
 }
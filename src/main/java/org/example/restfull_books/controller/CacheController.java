@@ -0,0 +1,30 @@
+package org.example.restfull_books.controller;
+
+import org.example.restfull_books.cache.CacheStats;
+import org.example.restfull_books.cache.EntityCache;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    @Autowired
+    private EntityCache<Book> bookCache;
+
+    @Autowired
+    private EntityCache<User> userCache;
+
+    // Счётчики попаданий, промахов и вытеснений
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, CacheStats>> getStats() {
+        return ResponseEntity.ok(Map.of("books", bookCache.stats(), "users", userCache.stats()));
+    }
+}
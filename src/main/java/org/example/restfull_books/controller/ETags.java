@@ -0,0 +1,71 @@
+package org.example.restfull_books.controller;
+
+import org.example.restfull_books.exception.InvalidETagException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// Сильные ETag из @Version сущности: "3"
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static <T> ResponseEntity<T> ok(T body, Long version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (version != null) {
+            builder.eTag(of(version));
+        }
+        return builder.body(body);
+    }
+
+    // Ответ на PUT: версия 0 бывает только у только что созданной записи (upsert) — 201 Created
+    static <T> ResponseEntity<T> put(T body, Long version) {
+        if (version == null || version != 0) {
+            return ok(body, version);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(of(version)).body(body);
+    }
+
+    static <T> ResponseEntity<T> notModified(long version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(of(version)).build();
+    }
+
+    // If-None-Match: "*" или список тегов; для GET допускается слабое сравнение (W/ игнорируется)
+    static boolean noneMatchHits(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String current = of(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Match: версия из единственного сильного тега; null — заголовка нет или "*" (подойдёт любая версия).
+    // Слабый тег, список или не число — 400
+    static Long ifMatchVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // ниже — 400
+            }
+        }
+        throw new InvalidETagException("If-Match must be a single strong ETag: " + ifMatch);
+    }
+}
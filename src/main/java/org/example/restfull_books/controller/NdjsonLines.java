@@ -0,0 +1,57 @@
+package org.example.restfull_books.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.restfull_books.dto.BatchItemResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// NDJSON: один JSON-документ на строку.
+// Запись в поток ответа блокируется, пока медленный клиент не заберёт данные — это и есть обратное давление для выгрузки;
+// чтение тела запроса идёт построчно, в памяти не больше одной порции
+final class NdjsonLines {
+
+    private NdjsonLines() {
+    }
+
+    static <T> Consumer<T> to(OutputStream out, ObjectWriter writer) {
+        return value -> {
+            try {
+                out.write(writer.writeValueAsBytes(value));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    // Тело запроса порциями по chunkSize документов: insert получает порцию, индексы в её результатах
+    // сдвигаются на позицию порции во входном потоке
+    static <T> List<BatchItemResult> readInChunks(InputStream in, ObjectReader reader, int chunkSize,
+                                                  Function<List<T>, List<BatchItemResult>> insert) throws IOException {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<T> lines = reader.readValues(in)) {
+            while (lines.hasNextValue()) {
+                chunk.add(lines.nextValue());
+                if (chunk.size() == chunkSize || !lines.hasNextValue()) {
+                    int offset = results.size();
+                    for (BatchItemResult result : insert.apply(chunk)) {
+                        result.setIndex(offset + result.getIndex());
+                        results.add(result);
+                    }
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        return results;
+    }
+}
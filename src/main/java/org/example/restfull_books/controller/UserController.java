@@ -1,15 +1,27 @@
 package org.example.restfull_books.controller;
 
-import org.example.restfull_books.exception.CustomGatewayException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.DeleteResult;
+import org.example.restfull_books.dto.ImportStatus;
+import org.example.restfull_books.dto.KeysetPage;
 import org.example.restfull_books.entity.User;
-import org.example.restfull_books.exception.CustomNewNotFoundException;
+import org.example.restfull_books.idempotency.IdempotencyExecutor;
+import org.example.restfull_books.importer.BulkImporter;
 import org.example.restfull_books.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,70 +30,123 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyExecutor idempotency;
+
+    @Autowired
+    private BulkImporter importer;
+
+    @Value("${app.batch.chunk-size:500}")
+    private int chunkSize;
+
+    // Список пользователей постранично: ?after=<последний id предыдущей страницы>&limit=
+    @GetMapping
+    public ResponseEntity<KeysetPage<User>> getUsers(@RequestParam(defaultValue = "0") long after,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(userService.getPage(after, limit));
+    }
+
+    // Полная выгрузка таблицы в NDJSON без загрузки её в память
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = out -> userService.exportAll(NdjsonLines.to(out, objectMapper.writerFor(User.class)));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUser(@PathVariable long id) {
-        return ResponseEntity.ok(userService.getByUserId(id));
+    public ResponseEntity<User> getUser(@PathVariable long id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            // Сверяем только версию, пользователя не загружаем и не сериализуем
+            long version = userService.getUserVersion(id);
+            if (ETags.noneMatchHits(ifNoneMatch, version)) {
+                return ETags.notModified(version);
+            }
+        }
+        User user = userService.getByUserId(id);
+        return ETags.ok(user, user.getVersion());
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public ResponseEntity<?> deleteUser(@PathVariable long id) {
-        try {
-            userService.deleteUserById(id);
-            return ResponseEntity.noContent().build(); // Возвращаем статус 204 No Content при успешном удалении
-        } catch (CustomNewNotFoundException ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage()); // Статус 404
-        } catch (CustomGatewayException ex) {
-            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Bad Gateway: " + ex.getMessage()); // Статус 502
-        } catch (RuntimeException ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage()); // Статус 500
+    public ResponseEntity<Void> deleteUser(@PathVariable long id) {
+        userService.deleteUserById(id); // 404 и 502 разбирает GlobalExceptionHandler
+        return ResponseEntity.noContent().build(); // Возвращаем статус 204 No Content при успешном удалении
+    }
+
+    // Массовое удаление: тело [id, ...] или ?lastName=. Без того и другого (или с обоими сразу) — 400
+    @DeleteMapping
+    public ResponseEntity<DeleteResult> deleteUsers(@RequestBody(required = false) List<Long> ids,
+                                                    @RequestParam(required = false) String lastName) {
+        if ((ids == null) == (lastName == null)) {
+            return ResponseEntity.badRequest().build();
         }
+        long deleted = ids != null ? userService.deleteUsersByIds(ids) : userService.deleteUsersByLastName(lastName);
+        return ResponseEntity.ok(new DeleteResult(deleted));
     }
 
+    // Повтор с тем же Idempotency-Key возвращает первый ответ, второго пользователя не создаёт
     @PostMapping("/new")
-    public ResponseEntity<User> newUser(@RequestBody User user) {
-        try {
+    public ResponseEntity<?> newUser(@RequestBody User user,
+                                     @RequestHeader(value = IdempotencyExecutor.HEADER, required = false) String idempotencyKey) {
+        return idempotency.execute("users", idempotencyKey, user, () -> {
             User userSaved = userService.save(user);
             return ResponseEntity.status(HttpStatus.CREATED).body(userSaved); // Статус 201 при успешном создании
-//        } catch (MethodArgumentNotValidException ex) {
-//            // Это исключение будет перехвачено глобальным обработчиком.
-//            throw ex; // Исключение будет передано на глобальный обработчик
-        } catch (CustomNewNotFoundException ex) {
-            // Если есть кастомное исключение "NotFound", передаем на глобальный обработчик
-            throw ex;
-        } catch (RuntimeException ex) {
-            // В случае других исключений (например, исключений в сервисе)
-            throw new RuntimeException("Internal server error", ex); // Это будет обработано в глобальном обработчике
-        }
-        catch (Exception ex) {
-            // Если возникло какое-то другое исключение, которое не попало в вышеуказанные категории
-            throw new RuntimeException("Unexpected error: " + ex.getMessage(), ex); // Бросаем RuntimeException для обработки в глобальном обработчике
-        }
+        });
+    }
+
+    // Пакетная вставка: JSON-массив пользователей
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> newUsers(@RequestBody List<User> users) {
+        return ResponseEntity.ok(userService.saveAll(users));
     }
 
+    // Пакетная вставка: NDJSON, один пользователь на строку; тело читается построчно и вставляется порциями app.batch.chunk-size
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> newUsersNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(NdjsonLines.<User>readInChunks(body, objectMapper.readerFor(User.class), chunkSize,
+                userService::saveAll));
+    }
+
+    // ?upsert=true — создать пользователя с этим id, если его нет (201 Created)
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable long id, @RequestBody User user) {
-        try {
-            user.setId(id); // Устанавливаем ID из пути
-            User updatedUser = userService.updateUser(user);
-            return ResponseEntity.ok(updatedUser); // Возвращаем статус 200 OK
-        } catch (CustomNewNotFoundException ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null); // Статус 404, если пользователь не найден
-        } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
-        }
+    public ResponseEntity<User> updateUser(@PathVariable long id, @RequestBody User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           @RequestParam(defaultValue = "false") boolean upsert) {
+        user.setId(id); // Устанавливаем ID из пути
+        user.setVersion(ETags.ifMatchVersion(ifMatch)); // Версия из If-Match, null — без проверки
+        User updatedUser = upsert ? userService.upsertUser(user) : userService.updateUser(user);
+        return ETags.put(updatedUser, updatedUser.getVersion()); // 200 OK, 201 Created если upsert создал запись
     }
 
+    // Тело — JSON Merge Patch (application/merge-patch+json или application/json): null очищает поле
     @PatchMapping("/{id}")
-    public ResponseEntity<?> updateUserField(@PathVariable Long id, @RequestBody Map<String, Object> updates) {
-        try {
-            User updatedUser = userService.updatePartial(id, updates);
-            return ResponseEntity.ok(updatedUser); // Возвращаем 200 OK с обновлённым пользователем
-        } catch (CustomNewNotFoundException ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
-        } catch (RuntimeException ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
-        }
+    public ResponseEntity<User> updateUserField(@PathVariable Long id, @RequestBody Map<String, Object> updates,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User updatedUser = userService.updatePartial(id, updates, ETags.ifMatchVersion(ifMatch));
+        return ETags.ok(updatedUser, updatedUser.getVersion()); // Возвращаем 200 OK с обновлённым пользователем
+    }
+
+    // Пакет патчей: [{"id": 1, "version": 0, "lastName": "..."}, ...], результат по каждому элементу
+    @PatchMapping
+    public ResponseEntity<List<BatchItemResult>> updateUsers(@RequestBody List<Map<String, Object>> patches) {
+        return ResponseEntity.ok(userService.updatePartialAll(patches));
+    }
+
+    // Импорт файла CSV или NDJSON из app.import.dir в фоне, как POST /books/import
+    @PostMapping("/import")
+    public ResponseEntity<ImportStatus> importUsers(@RequestParam String file,
+                                                    @RequestParam(required = false) String format,
+                                                    @RequestParam(defaultValue = "true") boolean resume) {
+        ImportStatus status = importer.startServerFile("users", file, format, resume);
+        return ResponseEntity.accepted().location(URI.create("/users/import/" + status.getJobId())).body(status);
+    }
 
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportStatus> getImportStatus(@PathVariable long jobId) {
+        return ResponseEntity.ok(importer.status("users", jobId));
     }
 }
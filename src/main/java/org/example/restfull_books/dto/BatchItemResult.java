@@ -0,0 +1,49 @@
+package org.example.restfull_books.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.SQLException;
+
+// Результат обработки одного элемента пакета: позиция во входном массиве, ID записи или текст ошибки
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult {
+    public static final String CONSTRAINT_VIOLATION = "CONSTRAINT_VIOLATION";
+    public static final String INVALID_ITEM = "INVALID_ITEM";
+
+    private int index;
+    private Long id;
+    private String status;
+    private String error;
+
+    public static BatchItemResult created(int index, long id) {
+        return new BatchItemResult(index, id, "CREATED", null);
+    }
+
+    public static BatchItemResult updated(int index, long id) {
+        return new BatchItemResult(index, id, "UPDATED", null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, null, "FAILED", error);
+    }
+
+    // Текст исключения (SQL, имена таблиц и ограничений) клиенту не отдаём — только код; само исключение логирует вызывающий
+    public static BatchItemResult rejected(int index, Exception e) {
+        return failed(index, isConstraintViolation(e) ? CONSTRAINT_VIOLATION : INVALID_ITEM);
+    }
+
+    // SQLState класса 22 (данные: длина, формат) и 23 (ограничения) — в цепочке причин от Spring/Hibernate
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("22") || sql.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
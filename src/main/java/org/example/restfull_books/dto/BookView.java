@@ -0,0 +1,13 @@
+package org.example.restfull_books.dto;
+
+import lombok.Value;
+
+// Проекция книги для списков: JPQL "select new" заполняет её прямо из строки результата,
+// без управляемой сущности, снимка для dirty checking и поля version. В JSON совпадает с Book
+@Value
+public class BookView {
+    long id;
+    String title;
+    int price;
+    String author;
+}
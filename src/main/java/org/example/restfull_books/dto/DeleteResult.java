@@ -0,0 +1,13 @@
+package org.example.restfull_books.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ответ массового удаления: сколько строк удалено
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeleteResult {
+    private long deleted;
+}
@@ -0,0 +1,27 @@
+package org.example.restfull_books.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+// Ход импорта файла (POST /books/import, /users/import): state — RUNNING, COMPLETED, FAILED или STOPPED
+// (приложение остановлено; повтор с resume=true продолжит с контрольной точки).
+// bytesDone считается с учётом продолжения, rowsImported и rowsPerSecond — только за этот запуск;
+// errors — первые ошибочные строки (смещение в файле и причина)
+@Value
+public class ImportStatus {
+    long jobId;
+    String target;
+    String file;
+    String format;
+    String state;
+    boolean resumed;
+    long bytesTotal;
+    long bytesDone;
+    long rowsImported;
+    long rowsFailed;
+    double rowsPerSecond;
+    long elapsedMillis;
+    List<String> errors;
+    String error;
+}
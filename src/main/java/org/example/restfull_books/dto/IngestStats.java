@@ -0,0 +1,20 @@
+package org.example.restfull_books.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// GET /books/ingest: глубина очереди и счётчики с момента старта; batches — число групповых коммитов
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestStats {
+    private boolean enabled;
+    private int queued;
+    private int capacity;
+    private long accepted;
+    private long rejected;
+    private long created;
+    private long failed;
+    private long batches;
+}
@@ -0,0 +1,21 @@
+package org.example.restfull_books.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Состояние книги, принятой в очередь POST /books/new (app.ingest.mode=async):
+// PENDING — ждёт записи, CREATED — записана (bookId), FAILED — не записана (error)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestStatus {
+    private long trackingId;
+    private String status;
+    private Long bookId;
+    private String error;
+
+    public static IngestStatus pending(long trackingId) {
+        return new IngestStatus(trackingId, "PENDING", null, null);
+    }
+}
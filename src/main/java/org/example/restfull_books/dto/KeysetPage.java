@@ -0,0 +1,38 @@
+package org.example.restfull_books.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// Страница keyset-пагинации: nextAfter передаётся в следующий запрос как ?after=, null — страниц больше нет.
+// Страницы в порядке (price, id) несут и цену последней строки: nextAfterPrice уходит в ?afterPrice=
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    private Long nextAfter;
+    private Integer nextAfterPrice;
+
+    public KeysetPage(List<T> items, Long nextAfter) {
+        this(items, nextAfter, null);
+    }
+
+    public static final int MAX_LIMIT = 1000;
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // rows выбраны с лимитом limit + 1: лишняя строка только сообщает, что есть следующая страница
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, ToLongFunction<T> idGetter) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, idGetter.applyAsLong(items.get(limit - 1)));
+    }
+}
@@ -1,22 +1,45 @@
 package org.example.restfull_books.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "books")
+// Кэш второго уровня действует только при app.cache.type=hibernate, иначе аннотации игнорируются
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
+// Индексы для выборок с фильтром: (author, id) и (price, id) отдают строки уже в порядке keyset-курсора по id
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_author_id", columnList = "author, id"),
+        @Index(name = "idx_books_price_id", columnList = "price, id"),
+        @Index(name = "idx_books_title", columnList = "title")
+})
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Пуловая последовательность вместо IDENTITY: Hibernate может группировать INSERT в JDBC-батчи
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private long id;
     private String title;
     private int price;
     private String author;
 
+    // Версия для оптимистической блокировки; наружу отдаётся только в заголовке ETag.
+    // null у новой книги: по нему Spring Data отличает INSERT от UPDATE
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    public Book(long id, String title, int price, String author) {
+        this(id, title, price, author, null);
+    }
 
 }
@@ -0,0 +1,39 @@
+package org.example.restfull_books.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+// Сохранённый ответ на запрос с Idempotency-Key (app.idempotency.store=table), переживает перезапуск.
+// Индекс по времени создания — для удаления устаревших и лишних записей.
+// Записи только вставляются (isNew всегда true): save делает persist, а не merge, и запись того же ключа
+// другим экземпляром приложения падает на первичном ключе, а не перезаписывает сохранённый ответ
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created", columnList = "createdAtMillis"))
+public class IdempotencyRecord implements Persistable<String> {
+    @Id
+    @Column(length = 100)
+    private String idempotencyKey;
+    @Column(length = 64, nullable = false)
+    private String requestHash;
+    private int status;
+    private String location;
+    @Lob
+    private String body;
+    private long createdAtMillis;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
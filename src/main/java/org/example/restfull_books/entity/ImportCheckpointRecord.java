@@ -0,0 +1,23 @@
+package org.example.restfull_books.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Докуда импортирован участок файла — смещение, записанное в той же транзакции, что и пакет строк до него
+// (ImportCheckpoint). id — ключ контрольной точки и номер участка
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "import_checkpoints", indexes = @Index(name = "idx_import_checkpoints_key", columnList = "checkpointKey"))
+public class ImportCheckpointRecord {
+    @Id
+    @Column(length = 300)
+    private String id;
+    @Column(length = 255, nullable = false)
+    private String checkpointKey;
+    private int splitIndex;
+    private long offsetBytes;
+}
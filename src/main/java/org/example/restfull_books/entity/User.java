@@ -1,9 +1,12 @@
 package org.example.restfull_books.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.antlr.v4.runtime.misc.NotNull;
 
 
@@ -11,14 +14,29 @@ import org.antlr.v4.runtime.misc.NotNull;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+// Кэш второго уровня действует только при app.cache.type=hibernate, иначе аннотации игнорируются
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name="users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Пуловая последовательность вместо IDENTITY: Hibernate может группировать INSERT в JDBC-батчи
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private long id;
     @NotNull   // Аннотация валидации
     private String firstName;
     @NotNull  // Аннотация валидации
     private String lastName;
 
+    // Версия для оптимистической блокировки; наружу отдаётся только в заголовке ETag.
+    // null у нового пользователя: по нему Spring Data отличает INSERT от UPDATE
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    public User(long id, String firstName, String lastName) {
+        this(id, firstName, lastName, null);
+    }
 }
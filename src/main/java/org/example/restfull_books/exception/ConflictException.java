@@ -0,0 +1,15 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Запрос противоречит текущему состоянию записи (409 Conflict)
+public class ConflictException extends DomainException {
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.CONFLICT;
+    }
+}
@@ -1,15 +1,18 @@
 package org.example.restfull_books.exception;
 
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.http.HttpStatus;
 
 //Пользовательское исключение для BAD_GATEWAY(502 ошибка)
-        public class CustomGatewayException extends RuntimeException {
+        public class CustomGatewayException extends DomainException {
             public CustomGatewayException(String message, Throwable cause) {
                 super(message, cause);
             }
             public CustomGatewayException(String message) {
-                super(message);
+                super(message, (Throwable) null);
             }
 
-
-        }
\ No newline at end of file
+            @Override
+            public HttpStatus status() {
+                return HttpStatus.BAD_GATEWAY;
+            }
+        }
@@ -1,6 +1,7 @@
 package org.example.restfull_books.exception;
 
-public class CustomNewNotFoundException extends RuntimeException {
+// Пользователь не найден (404); как и NotFoundException, создаётся без стека
+public class CustomNewNotFoundException extends NotFoundException {
     public CustomNewNotFoundException(String message) {
         super(message);
 
@@ -0,0 +1,34 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Базовое исключение предметной области: HTTP-статус и код ошибки для ответа application/problem+json.
+// Ожидаемые исходы (нет записи, конфликт версий, неверный запрос) создаются без стека вызовов:
+// fillInStackTrace — основная цена исключения, а на 404 стек никто не читает
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException(String message) {
+        this(message, false);
+    }
+
+    protected DomainException(String message, boolean withStackTrace) {
+        super(message, null, false, withStackTrace);
+    }
+
+    // Сбой, а не ожидаемый исход: причина и стек сохраняются
+    protected DomainException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public abstract HttpStatus status();
+
+    // Машиночитаемый код ошибки, поле "code" в ответе
+    public String code() {
+        return status().name();
+    }
+
+    // Заголовок Retry-After, через сколько секунд повторить запрос; null — не отправлять
+    public Long retryAfterSeconds() {
+        return null;
+    }
+}
@@ -1,38 +1,114 @@
 package org.example.restfull_books.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Единственное место, где исключения превращаются в ответы: application/problem+json (RFC 7807)
+// с полями status, title, detail и кодом ошибки "code". Каждый ответ считается в books.http.errors{exception, status}.
+// Текст непредвиденного исключения (500) клиенту не отдаётся: в нём SQL, имена классов и прочие детали реализации
+@Slf4j
 @ControllerAdvice
 public class GlobalExceptionHandler {
+
+    private final MeterRegistry registry;
+    private final Map<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+
+    // Реестр приложения (Prometheus); в тестовых срезах без метрик — свой, в памяти
+    @Autowired
+    public GlobalExceptionHandler(ObjectProvider<MeterRegistry> registry) {
+        this(registry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    GlobalExceptionHandler(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<ProblemDetail> handleDomainException(DomainException ex) {
+        ResponseEntity<ProblemDetail> response = problem(ex, ex.status(), ex.code(), ex.getMessage());
+        if (ex.retryAfterSeconds() == null) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.retryAfterSeconds()))
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<?> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body("Validation failed: " + ex.getBindingResult().getFieldErrors());
+    public ResponseEntity<ProblemDetail> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        return problem(ex, HttpStatus.BAD_REQUEST, "VALIDATION_FAILED",
+                "Validation failed: " + ex.getBindingResult().getFieldErrors());
     }
 
-    @ExceptionHandler(RuntimeException.class)
-    public ResponseEntity<?> handleRuntimeExceptions(RuntimeException ex) {
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Internal server error: " + ex.getMessage());
+    // Тело запроса не разобрать: не JSON, не тот тип поля, пустое тело
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ProblemDetail> handleNotReadable(HttpMessageNotReadableException ex) {
+        return problem(ex, HttpStatus.BAD_REQUEST, "MALFORMED_REQUEST", "Request body is missing or malformed");
+    }
+
+    // Параметр пути или запроса не приводится к типу аргумента: /books/abc, ?limit=много
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ProblemDetail> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
+        String expected = ex.getRequiredType() == null ? "a different type" : ex.getRequiredType().getSimpleName();
+        return problem(ex, HttpStatus.BAD_REQUEST, "INVALID_PARAMETER",
+                "Parameter '" + ex.getName() + "' must be " + expected);
+    }
+
+    // Запись успели изменить между чтением и UPDATE. В тексте Hibernate — имя класса сущности, его не отдаём
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        log.debug("Optimistic locking failure", ex);
+        return problem(ex, HttpStatus.PRECONDITION_FAILED, "VERSION_MISMATCH", "Resource was modified concurrently");
     }
 
-    @ExceptionHandler(CustomGatewayException.class)
-    public ResponseEntity<?> handleGatewayException(CustomGatewayException ex) {
-        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Bad Gateway: " + ex.getMessage());
+    // Нарушено ограничение БД, например первичный ключ при upsert с занятым id. Текст драйвера (SQL, имена
+    // таблиц и ограничений) — только в журнал
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ProblemDetail> handleDataIntegrityViolation(DataIntegrityViolationException ex) {
+        log.warn("Data integrity violation: {}", ex.getMostSpecificCause().getMessage());
+        return problem(ex, HttpStatus.CONFLICT, HttpStatus.CONFLICT.name(), "Conflicting data");
     }
 
     @ExceptionHandler(HttpServerErrorException.GatewayTimeout.class)
-    public ResponseEntity<?> handleGatewayTimeoutException(HttpServerErrorException.GatewayTimeout ex) {
-        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(ex.getMessage());
+    public ResponseEntity<ProblemDetail> handleGatewayTimeoutException(HttpServerErrorException.GatewayTimeout ex) {
+        return problem(ex, HttpStatus.GATEWAY_TIMEOUT, HttpStatus.GATEWAY_TIMEOUT.name(), ex.getMessage());
+    }
+
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<ProblemDetail> handleRuntimeExceptions(RuntimeException ex) {
+        log.error("Unhandled exception", ex); // подробности — только в журнале
+        return problem(ex, HttpStatus.INTERNAL_SERVER_ERROR, "INTERNAL_ERROR", "Internal server error");
     }
 
-    @ExceptionHandler(CustomNewNotFoundException.class)
-    public ResponseEntity<?> handleException(CustomNewNotFoundException ex) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    private ResponseEntity<ProblemDetail> problem(Exception ex, HttpStatus status, String code, String detail) {
+        counters.computeIfAbsent(ex.getClass(), type -> Counter.builder("books.http.errors")
+                        .tag("exception", type.getSimpleName())
+                        .tag("status", String.valueOf(status.value()))
+                        .register(registry))
+                .increment();
+        ProblemDetail body = ProblemDetail.forStatusAndDetail(status, detail);
+        body.setProperty("code", code);
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_PROBLEM_JSON).body(body);
     }
 }
@@ -0,0 +1,20 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Idempotency-Key уже использован с другим телом запроса (422 Unprocessable Entity)
+public class IdempotencyKeyReusedException extends DomainException {
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+
+    @Override
+    public String code() {
+        return "IDEMPOTENCY_KEY_REUSED";
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Курсор страницы неполный или не подходит к фильтрам запроса (400 Bad Request)
+public class InvalidCursorException extends DomainException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    @Override
+    public String code() {
+        return "INVALID_CURSOR";
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Заголовок If-Match не разобрать как один сильный ETag (400 Bad Request): запрос неверен, а не устарел
+public class InvalidETagException extends DomainException {
+    public InvalidETagException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    @Override
+    public String code() {
+        return "INVALID_ETAG";
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Импорт не начат: файл вне app.import.dir, неизвестный формат или в CSV нет нужной колонки (400 Bad Request)
+public class InvalidImportException extends DomainException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    @Override
+    public String code() {
+        return "INVALID_IMPORT";
+    }
+}
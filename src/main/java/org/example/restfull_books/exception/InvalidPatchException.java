@@ -0,0 +1,20 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Неизвестное поле, неподходящий тип значения или null в обязательном поле (400 Bad Request)
+public class InvalidPatchException extends DomainException {
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.BAD_REQUEST;
+    }
+
+    @Override
+    public String code() {
+        return "INVALID_FIELD";
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Записи с таким id нет (404 Not Found)
+public class NotFoundException extends DomainException {
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
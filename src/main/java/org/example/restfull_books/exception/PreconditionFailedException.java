@@ -0,0 +1,20 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Версия из If-Match не совпала с текущей (412 Precondition Failed)
+public class PreconditionFailedException extends DomainException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.PRECONDITION_FAILED;
+    }
+
+    @Override
+    public String code() {
+        return "VERSION_MISMATCH";
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Сервер не берёт запрос, чтобы не исчерпать пул соединений (503 Service Unavailable); повторить через retryAfterSeconds
+public class ServiceUnavailableException extends DomainException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    @Override
+    public Long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
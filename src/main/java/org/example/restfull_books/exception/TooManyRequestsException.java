@@ -0,0 +1,24 @@
+package org.example.restfull_books.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Сервер перегружен, запрос не принят (429 Too Many Requests); клиенту — повторить через retryAfterSeconds
+public class TooManyRequestsException extends DomainException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpStatus status() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    @Override
+    public Long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.restfull_books.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.exception.IdempotencyKeyReusedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Заголовок Idempotency-Key на POST /books/new и /users/new: повтор запроса с тем же ключом
+// получает сохранённый ответ (с заголовком Idempotent-Replayed: true) и в БД не ходит.
+// Одновременные запросы с одним ключом выполняются один раз: остальные ждут результата первого.
+// Сохраняются только успешные (2xx) ответы — после ошибки клиент может повторить с тем же ключом.
+// Ожидание чужого запроса — в пределах процесса; между экземплярами приложения общая только таблица
+@Component
+public class IdempotencyExecutor {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyExecutor(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    // scope разделяет ключи разных эндпоинтов; без ключа action просто выполняется
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        String storeKey = scope + ":" + sha256(key.getBytes(StandardCharsets.UTF_8));
+        String requestHash = sha256(toJson(request).getBytes(StandardCharsets.UTF_8));
+
+        Optional<StoredResponse> stored = store.find(storeKey);
+        if (stored.isPresent()) {
+            return replay(stored.get(), requestHash);
+        }
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(storeKey, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            // Пока мы проверяли хранилище, предыдущий владелец ключа мог успеть записать ответ и уйти из inFlight
+            stored = store.find(storeKey);
+            if (stored.isPresent()) {
+                mine.complete(stored.get());
+                return replay(stored.get(), requestHash);
+            }
+            ResponseEntity<?> response = action.get();
+            URI location = response.getHeaders().getLocation();
+            StoredResponse result = new StoredResponse(requestHash, response.getStatusCode().value(),
+                    location != null ? location.toString() : null, toJson(response.getBody()), System.currentTimeMillis());
+            if (response.getStatusCode().is2xxSuccessful()) {
+                store.save(storeKey, result);
+            }
+            mine.complete(result);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storeKey, mine);
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used with a different request body");
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.getStatus()).header(REPLAYED_HEADER, "true");
+        if (stored.getLocation() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.getLocation());
+        }
+        try {
+            // JsonNode, а не исходный класс: сериализуется в тот формат, который просил клиент (JSON, CBOR, Smile)
+            return builder.body(objectMapper.readTree(stored.getBody()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is not valid JSON", e);
+        }
+    }
+
+    // Исключение первого запроса получают и все, кто ждал его результата
+    private static StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
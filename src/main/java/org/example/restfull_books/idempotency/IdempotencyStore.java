@@ -0,0 +1,13 @@
+package org.example.restfull_books.idempotency;
+
+import java.util.Optional;
+
+// Хранилище ответов по ключу идемпотентности, ограниченное по числу записей и по времени жизни.
+// Ключ уже включает область (books/users), см. IdempotencyExecutor
+public interface IdempotencyStore {
+
+    // empty — ключ не встречался или запись устарела
+    Optional<StoredResponse> find(String key);
+
+    void save(String key, StoredResponse response);
+}
@@ -0,0 +1,66 @@
+package org.example.restfull_books.idempotency;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+// Ответы в памяти процесса: ConcurrentHashMap и очередь ключей в порядке записи.
+// Записи добавляются только в конец, поэтому и самые старые, и устаревшие по TTL — всегда в голове очереди
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private record Entry(String key, StoredResponse response) {
+    }
+
+    private final ConcurrentHashMap<String, StoredResponse> responses = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final int maximumSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    public InMemoryIdempotencyStore(int maximumSize, long ttlMillis) {
+        this(maximumSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    InMemoryIdempotencyStore(int maximumSize, long ttlMillis, LongSupplier clock) {
+        this.maximumSize = maximumSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        StoredResponse response = responses.get(key);
+        if (response == null || expired(response)) {
+            return Optional.empty();
+        }
+        return Optional.of(response);
+    }
+
+    @Override
+    public void save(String key, StoredResponse response) {
+        responses.put(key, response);
+        insertionOrder.add(new Entry(key, response));
+        evict();
+    }
+
+    public int size() {
+        return responses.size();
+    }
+
+    private void evict() {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (responses.size() > maximumSize || expired(oldest.response()))) {
+            if (insertionOrder.remove(oldest)) {
+                // remove(key, value): ключ могли перезаписать новым ответом, его не трогаем
+                responses.remove(oldest.key(), oldest.response());
+            }
+        }
+    }
+
+    private boolean expired(StoredResponse response) {
+        return clock.getAsLong() - response.getCreatedAtMillis() >= ttlMillis;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.restfull_books.idempotency;
+
+import lombok.Value;
+
+// Ответ на запрос с Idempotency-Key: тело в JSON, чтобы его можно было хранить и в таблице.
+// requestHash — SHA-256 тела запроса: тот же ключ с другим телом не повторяет чужой ответ
+@Value
+public class StoredResponse {
+    String requestHash;
+    int status;
+    String location;
+    String body;
+    long createdAtMillis;
+}
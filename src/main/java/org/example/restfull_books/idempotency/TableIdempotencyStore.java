@@ -0,0 +1,66 @@
+package org.example.restfull_books.idempotency;
+
+import org.example.restfull_books.entity.IdempotencyRecord;
+import org.example.restfull_books.repository.IdempotencyRecordRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Ответы в таблице idempotency_keys: повтор запроса после перезапуска приложения тоже узнаётся.
+// Устаревшие и лишние сверх maximumSize записи удаляются не на каждой вставке, а раз в purgeEvery вставок
+public class TableIdempotencyStore implements IdempotencyStore {
+
+    private final IdempotencyRecordRepository repository;
+    private final int maximumSize;
+    private final long ttlMillis;
+    private final int purgeEvery;
+    private final LongSupplier clock;
+    private final AtomicInteger savesSincePurge = new AtomicInteger();
+
+    public TableIdempotencyStore(IdempotencyRecordRepository repository, int maximumSize, long ttlMillis) {
+        this(repository, maximumSize, ttlMillis, 100, System::currentTimeMillis);
+    }
+
+    TableIdempotencyStore(IdempotencyRecordRepository repository, int maximumSize, long ttlMillis, int purgeEvery,
+                          LongSupplier clock) {
+        this.repository = repository;
+        this.maximumSize = maximumSize;
+        this.ttlMillis = ttlMillis;
+        this.purgeEvery = purgeEvery;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return repository.findById(key)
+                .filter(record -> clock.getAsLong() - record.getCreatedAtMillis() < ttlMillis)
+                .map(record -> new StoredResponse(record.getRequestHash(), record.getStatus(), record.getLocation(),
+                        record.getBody(), record.getCreatedAtMillis()));
+    }
+
+    @Override
+    public void save(String key, StoredResponse response) {
+        try {
+            repository.save(new IdempotencyRecord(key, response.getRequestHash(), response.getStatus(),
+                    response.getLocation(), response.getBody(), response.getCreatedAtMillis()));
+        } catch (DataIntegrityViolationException e) {
+            // Тот же ключ одновременно записал другой экземпляр приложения — его ответ остаётся
+        }
+        if (savesSincePurge.incrementAndGet() >= purgeEvery) {
+            savesSincePurge.set(0);
+            purge();
+        }
+    }
+
+    void purge() {
+        repository.deleteCreatedUpTo(clock.getAsLong() - ttlMillis);
+        List<Long> boundary = repository.findCreatedAtNewestFirst(PageRequest.of(maximumSize, 1));
+        if (!boundary.isEmpty()) {
+            repository.deleteCreatedUpTo(boundary.get(0));
+        }
+    }
+}
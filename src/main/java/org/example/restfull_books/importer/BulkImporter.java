@@ -0,0 +1,180 @@
+package org.example.restfull_books.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.dto.ImportStatus;
+import org.example.restfull_books.exception.ConflictException;
+import org.example.restfull_books.exception.InvalidImportException;
+import org.example.restfull_books.exception.NotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Импорт больших файлов CSV и NDJSON: POST /books/import и /users/import (файлы из app.import.dir)
+// и командная строка (ImportCommand). Каждый импорт — ImportJob со своими потоками; ход — по jobId.
+// Незавершённый импорт (ошибка вставки, остановка приложения) повторный запуск того же файла с resume=true
+// продолжает с контрольной точки в app.import.checkpoint-dir
+@Component
+public class BulkImporter implements SmartLifecycle {
+
+    private static final int RETAINED_JOBS = 100;
+
+    private final Map<String, ImportTarget<?>> targets = new LinkedHashMap<>();
+    private final ImportProgressStore progress;
+    private final ObjectMapper objectMapper;
+    private final Path importDir;
+    private final Path checkpointDir;
+    private final int threads;
+    private final int batchSize;
+    private final long splitSize;
+
+    private final AtomicLong jobIds = new AtomicLong();
+    private final Map<Long, ImportJob<?>> jobs = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    @Autowired
+    public BulkImporter(List<ImportTarget<?>> targets, ImportProgressStore progress, ObjectMapper objectMapper,
+                        @Value("${app.import.dir:./import}") Path importDir,
+                        @Value("${app.import.checkpoint-dir:./import_checkpoints}") Path checkpointDir,
+                        @Value("${app.import.threads:4}") int threads,
+                        @Value("${app.import.batch-size:500}") int batchSize,
+                        @Value("${app.import.split-size:64MB}") DataSize splitSize) {
+        targets.forEach(target -> this.targets.put(target.name(), target));
+        this.progress = progress;
+        this.objectMapper = objectMapper;
+        this.importDir = importDir.toAbsolutePath().normalize();
+        this.checkpointDir = checkpointDir;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        // Участок отображается в память одним MappedByteBuffer: до 2 ГБ, с запасом на последнюю строку
+        this.splitSize = Math.min(splitSize.toBytes(), 1L << 30);
+    }
+
+    // HTTP: имя файла относительно app.import.dir, выйти за его пределы нельзя
+    public ImportStatus startServerFile(String target, String name, String format, boolean resume) {
+        Path file = importDir.resolve(name).normalize();
+        if (!file.startsWith(importDir)) {
+            throw new InvalidImportException("File must be inside the import directory");
+        }
+        return start(target, file, format, resume).status();
+    }
+
+    // Командная строка: ждёт конца импорта, раз в progressInterval отдаёт ход в progress
+    public ImportStatus run(String target, Path file, String format, boolean resume, Duration progressInterval,
+                            Consumer<ImportStatus> progress) throws InterruptedException {
+        ImportJob<?> job = start(target, file, format, resume);
+        while (job.isRunning()) {
+            progress.accept(job.status());
+            TimeUnit.NANOSECONDS.sleep(progressInterval.toNanos());
+        }
+        job.await();
+        return job.status();
+    }
+
+    public ImportStatus status(String target, long jobId) {
+        ImportJob<?> job = jobs.get(jobId);
+        if (job == null || !job.targetName().equals(target)) {
+            throw new NotFoundException("Unknown import job " + jobId);
+        }
+        return job.status();
+    }
+
+    private ImportJob<?> start(String targetName, Path file, String format, boolean resume) {
+        ImportTarget<?> target = targets.get(targetName);
+        if (target == null) {
+            throw new InvalidImportException("Unknown import target: " + targetName);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new NotFoundException("No such file: " + file);
+        }
+        ImportFormat importFormat = ImportFormat.of(format, file);
+        Path absolute = file.toAbsolutePath().normalize();
+        ImportJob<?> job = create(target, absolute, importFormat);
+        // Проверка и регистрация под одной блокировкой: два запроса на один файл не начнут два импорта
+        synchronized (jobs) {
+            for (ImportJob<?> other : jobs.values()) {
+                if (other.isRunning() && other.targetName().equals(targetName) && other.file().equals(absolute)) {
+                    throw new ConflictException("Import of " + file.getFileName() + " is already running as job " + other.id());
+                }
+            }
+            try {
+                job.prepare(checkpointFile(targetName, absolute), resume, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            jobs.put(job.id(), job);
+            forgetOldJobs();
+        }
+        job.start();
+        return job;
+    }
+
+    private <T> ImportJob<T> create(ImportTarget<T> target, Path file, ImportFormat format) {
+        return new ImportJob<>(jobIds.incrementAndGet(), target, file, format, objectMapper.readerFor(target.type()),
+                threads, batchSize, splitSize);
+    }
+
+    private Path checkpointFile(String target, Path file) {
+        return checkpointDir.resolve(target + "-" + file.getFileName() + "-"
+                + Integer.toHexString(file.toString().hashCode()) + ".checkpoint");
+    }
+
+    // Помним ход последних RETAINED_JOBS импортов; идущие не забываются
+    private void forgetOldJobs() {
+        if (jobs.size() <= RETAINED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> !job.isRunning())
+                .sorted(Comparator.comparingLong(ImportJob::id))
+                .limit(jobs.size() - RETAINED_JOBS)
+                .toList()
+                .forEach(job -> jobs.remove(job.id()));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Остановка приложения: импорты дописывают текущие пакеты и сохраняют контрольную точку
+    @Override
+    public void stop() {
+        running = false;
+        jobs.values().forEach(ImportJob::stop);
+        for (ImportJob<?> job : jobs.values()) {
+            try {
+                job.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Как у BookIngestQueue: после веб-сервера, до закрытия DataSource
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.restfull_books.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Одна строка CSV прямо в отображённом в память файле: parse запоминает только границы полей,
+// text и integer читают байты поля из буфера — сама строка в String не превращается.
+// Индекс в text/integer — номер колонки в ImportTarget.columns, а не позиция в файле: порядок задаёт заголовок
+public final class CsvRow {
+
+    private final ByteBuffer buffer;
+    private final List<String> columns;
+    private final int[] fieldOfColumn;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] quoted = new boolean[8];
+    private int fields;
+    private byte[] scratch = new byte[256];
+
+    CsvRow(ByteBuffer buffer, List<String> columns, int[] fieldOfColumn) {
+        this.buffer = buffer;
+        this.columns = columns;
+        this.fieldOfColumn = fieldOfColumn;
+    }
+
+    // Пустое поле без кавычек — null, "" — пустая строка
+    public String text(int column) {
+        int field = fieldOfColumn[column];
+        if (field >= fields || !quoted[field] && starts[field] == ends[field]) {
+            return null;
+        }
+        int length = quoted[field] ? unquote(field) : copy(starts[field], ends[field]);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Целое со знаком без промежуточной строки
+    public int integer(int column) {
+        int field = fieldOfColumn[column];
+        int from = field < fields ? starts[field] : 0;
+        int to = field < fields ? ends[field] : 0;
+        boolean negative = from < to && buffer.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw new RowException("Empty value in column " + columns.get(column));
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            value = value * 10 + digit;
+            if (digit < 0 || digit > 9 || value > (long) Integer.MAX_VALUE + 1) {
+                throw new RowException("Invalid integer in column " + columns.get(column));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new RowException("Invalid integer in column " + columns.get(column));
+        }
+        return (int) value;
+    }
+
+    // Границы полей строки [from, to) — без перевода строки
+    void parse(int from, int to) {
+        fields = 0;
+        int i = from;
+        while (true) {
+            if (fields == starts.length) {
+                starts = Arrays.copyOf(starts, fields * 2);
+                ends = Arrays.copyOf(ends, fields * 2);
+                quoted = Arrays.copyOf(quoted, fields * 2);
+            }
+            if (i < to && buffer.get(i) == '"') {
+                int start = ++i;
+                while (true) {
+                    if (i >= to) {
+                        throw new RowException("Unterminated quoted field");
+                    }
+                    if (buffer.get(i) == '"') {
+                        if (i + 1 < to && buffer.get(i + 1) == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                starts[fields] = start;
+                ends[fields] = i;
+                quoted[fields++] = true;
+                i++;
+                if (i < to && buffer.get(i) != ',') {
+                    throw new RowException("Unexpected character after quoted field");
+                }
+            } else {
+                int start = i;
+                while (i < to && buffer.get(i) != ',') {
+                    i++;
+                }
+                starts[fields] = start;
+                ends[fields] = i;
+                quoted[fields++] = false;
+            }
+            if (i >= to) {
+                return;
+            }
+            i++; // запятая
+        }
+    }
+
+    // Поля как строки — только для заголовка
+    String[] names() {
+        String[] names = new String[fields];
+        for (int i = 0; i < fields; i++) {
+            int length = quoted[i] ? unquote(i) : copy(starts[i], ends[i]);
+            names[i] = new String(scratch, 0, length, StandardCharsets.UTF_8).trim();
+        }
+        return names;
+    }
+
+    private int copy(int from, int to) {
+        int length = to - from;
+        ensureScratch(length);
+        buffer.get(from, scratch, 0, length);
+        return length;
+    }
+
+    // "" внутри кавычек — одна кавычка
+    private int unquote(int field) {
+        ensureScratch(ends[field] - starts[field]);
+        int length = 0;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            byte b = buffer.get(i);
+            scratch[length++] = b;
+            if (b == '"') {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Integer.highestOneBit(length) << 1];
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.restfull_books.importer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Докуда импортирован каждый участок файла: смещение начала первой ещё не вставленной строки.
+// Смещение пишется дважды: в транзакции вставки (commit, ImportProgressStore) — вместе со строками до него,
+// и в свою ячейку файла после пакета (advance) — вместе со строками пакета, которые не вставились.
+// Повторный запуск продолжает с большего из двух, поэтому падение между коммитом и записью файла
+// не вставляет пакет второй раз. Заголовок файла — размер и время изменения исходного файла и размер участка:
+// изменился файл — импорт начинается заново
+final class ImportCheckpoint implements AutoCloseable {
+
+    private static final long MAGIC = 0x424F4F4B494D5031L; // "BOOKIMP1"
+    private static final int HEADER = 4 * Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final AtomicLongArray offsets;
+    private final boolean resumed;
+    private final ImportProgressStore progress;
+    private final String key;
+
+    private ImportCheckpoint(Path file, FileChannel channel, AtomicLongArray offsets, boolean resumed,
+                             ImportProgressStore progress) {
+        this.file = file;
+        this.channel = channel;
+        this.offsets = offsets;
+        this.resumed = resumed;
+        this.progress = progress;
+        this.key = file.getFileName().toString();
+    }
+
+    // resume=false или заголовок не совпал — все участки с начала
+    static ImportCheckpoint open(Path file, long sourceSize, long sourceModified, long splitSize, long[] starts,
+                                 boolean resume, ImportProgressStore progress) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putLong(MAGIC).putLong(sourceSize).putLong(sourceModified).putLong(splitSize).putInt(starts.length).flip();
+        if (resume && channel.size() == HEADER + (long) Long.BYTES * starts.length) {
+            ByteBuffer stored = ByteBuffer.allocate((int) channel.size());
+            while (stored.hasRemaining()) {
+                if (channel.read(stored, stored.position()) < 0) {
+                    break;
+                }
+            }
+            stored.flip();
+            if (stored.slice(0, HEADER).equals(header)) {
+                Map<Integer, Long> committed = progress.load(file.getFileName().toString());
+                AtomicLongArray offsets = new AtomicLongArray(starts.length);
+                for (int i = 0; i < starts.length; i++) {
+                    offsets.set(i, Math.max(stored.getLong(HEADER + i * Long.BYTES), committed.getOrDefault(i, 0L)));
+                }
+                return new ImportCheckpoint(file, channel, offsets, true, progress);
+            }
+        }
+        progress.delete(file.getFileName().toString());
+        ByteBuffer fresh = ByteBuffer.allocate(HEADER + Long.BYTES * starts.length);
+        fresh.put(header);
+        for (long start : starts) {
+            fresh.putLong(start);
+        }
+        fresh.flip();
+        channel.truncate(0);
+        while (fresh.hasRemaining()) {
+            channel.write(fresh, fresh.position());
+        }
+        return new ImportCheckpoint(file, channel, new AtomicLongArray(starts), false, progress);
+    }
+
+    boolean resumed() {
+        return resumed;
+    }
+
+    long offset(int split) {
+        return offsets.get(split);
+    }
+
+    // Строки до offset закоммичены — вызывается внутри их транзакции
+    void commit(int split, long offset) {
+        progress.save(key, split, offset);
+    }
+
+    // Пакет до offset обработан. Запись позиционная: потоки пишут каждый в свою ячейку
+    void advance(int split, long offset) {
+        offsets.set(split, offset);
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(offset).flip();
+        try {
+            while (value.hasRemaining()) {
+                channel.write(value, HEADER + (long) split * Long.BYTES + value.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Импорт завершён: продолжать нечего
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+        progress.delete(key);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.restfull_books.importer;
+
+import org.example.restfull_books.dto.ImportStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Импорт из командной строки, без HTTP:
+//   java -jar app.jar --spring.main.web-application-type=none --app.import.cli.file=books.csv [--app.import.cli.target=users]
+// Печатает ход раз в app.import.progress-interval и завершает процесс: 0 — импорт завершён, 1 — нет.
+// Повторный запуск после сбоя продолжает с контрольной точки (app.import.cli.resume=false — заново)
+@Component
+@ConditionalOnProperty(name = "app.import.cli.file")
+public class ImportCommand implements ApplicationRunner {
+
+    @Autowired
+    private BulkImporter importer;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${app.import.cli.target:books}")
+    private String target;
+
+    @Value("${app.import.cli.file}")
+    private Path file;
+
+    @Value("${app.import.cli.format:}")
+    private String format;
+
+    @Value("${app.import.cli.resume:true}")
+    private boolean resume;
+
+    @Value("${app.import.progress-interval:5s}")
+    private Duration progressInterval;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        ImportStatus result = importer.run(target, file, format, resume, progressInterval, ImportCommand::print);
+        print(result);
+        if (result.getError() != null) {
+            System.out.println("Import failed: " + result.getError());
+        }
+        int code = "COMPLETED".equals(result.getState()) ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private static void print(ImportStatus status) {
+        System.out.printf("import %s %s: %s, %d%% (%d of %d bytes), %d rows, %d failed, %.0f rows/s%s%n",
+                status.getTarget(), status.getFile(), status.getState(),
+                status.getBytesTotal() == 0 ? 100 : status.getBytesDone() * 100 / status.getBytesTotal(),
+                status.getBytesDone(), status.getBytesTotal(), status.getRowsImported(), status.getRowsFailed(),
+                status.getRowsPerSecond(), status.isResumed() ? ", resumed" : "");
+    }
+}
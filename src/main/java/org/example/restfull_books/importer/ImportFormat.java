@@ -0,0 +1,29 @@
+package org.example.restfull_books.importer;
+
+import org.example.restfull_books.exception.InvalidImportException;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+// CSV: первая строка — заголовок с именами колонок, поля через запятую, кавычки по RFC 4180 (кроме переводов строки
+// внутри кавычек: файл делится на участки по строкам). NDJSON: один JSON-объект на строку
+public enum ImportFormat {
+    CSV,
+    NDJSON;
+
+    // Явно заданный формат или по расширению файла
+    public static ImportFormat of(String name, Path file) {
+        String value = name != null && !name.isBlank() ? name : extension(file);
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "csv" -> CSV;
+            case "ndjson", "jsonl" -> NDJSON;
+            default -> throw new InvalidImportException("Unknown import format: " + value);
+        };
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1);
+    }
+}
@@ -0,0 +1,322 @@
+package org.example.restfull_books.importer;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.ImportStatus;
+import org.example.restfull_books.exception.InvalidImportException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Один импорт файла. prepare() в потоке запроса: заголовок CSV, деление файла на участки по границам строк,
+// контрольная точка; ошибки здесь — 400 до начала импорта. Затем threads потоков берут участки по очереди,
+// каждый отображает свой участок в память и вставляет записи пакетами по batchSize.
+// В куче одновременно только по одному пакету на поток, сколько бы ни весил файл
+final class ImportJob<T> {
+
+    private static final int MAX_ERRORS = 100;
+    private static final int HEADER_WINDOW = 1 << 20;
+
+    private final long id;
+    private final ImportTarget<T> target;
+    private final Path file;
+    private final ImportFormat format;
+    private final ObjectReader json;
+    private final int threads;
+    private final int batchSize;
+    private final long splitSize;
+
+    private FileChannel channel;
+    private ImportCheckpoint checkpoint;
+    private int[] fieldOfColumn;    // только CSV
+    private long[] starts;
+    private long[] ends;
+
+    private final AtomicInteger nextSplit = new AtomicInteger();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private volatile String state = "RUNNING";
+    private volatile String error;
+    private volatile boolean stopRequested;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private Thread coordinator;
+
+    ImportJob(long id, ImportTarget<T> target, Path file, ImportFormat format, ObjectReader json,
+              int threads, int batchSize, long splitSize) {
+        this.id = id;
+        this.target = target;
+        this.file = file;
+        this.format = format;
+        this.json = json;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.splitSize = splitSize;
+    }
+
+    long id() {
+        return id;
+    }
+
+    String targetName() {
+        return target.name();
+    }
+
+    Path file() {
+        return file;
+    }
+
+    boolean isRunning() {
+        return "RUNNING".equals(state);
+    }
+
+    void prepare(Path checkpointFile, boolean resume, ImportProgressStore progress) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            long dataStart = format == ImportFormat.CSV ? readHeader(size) : skipBom(size);
+            List<long[]> splits = new ArrayList<>();
+            for (long start = dataStart; start < size; ) {
+                long end = start + splitSize >= size ? size : nextLineStart(start + splitSize - 1, size);
+                splits.add(new long[]{start, end});
+                start = end;
+            }
+            starts = splits.stream().mapToLong(split -> split[0]).toArray();
+            ends = splits.stream().mapToLong(split -> split[1]).toArray();
+            checkpoint = ImportCheckpoint.open(checkpointFile, size, Files.getLastModifiedTime(file).toMillis(),
+                    splitSize, starts, resume, progress);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void start() {
+        startedNanos = System.nanoTime();
+        coordinator = Thread.ofPlatform().name("import-" + id).start(this::run);
+    }
+
+    void await() throws InterruptedException {
+        coordinator.join();
+    }
+
+    // Потоки дописывают текущий пакет и выходят; контрольная точка остаётся для resume
+    void stop() {
+        stopRequested = true;
+    }
+
+    ImportStatus status() {
+        long total = 0;
+        long done = 0;
+        for (int i = 0; i < starts.length; i++) {
+            total += ends[i] - starts[i];
+            done += checkpoint.offset(i) - starts[i];
+        }
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        long elapsedNanos = Math.max(1, end - startedNanos);
+        long imported = rows.sum();
+        return new ImportStatus(id, target.name(), file.toString(), format.name().toLowerCase(Locale.ROOT), state,
+                checkpoint.resumed(), total, done, imported, failed.sum(), imported * 1e9 / elapsedNanos,
+                elapsedNanos / 1_000_000, List.copyOf(errors), error);
+    }
+
+    private void run() {
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < Math.min(threads, Math.max(1, starts.length)); i++) {
+            workers.add(Thread.ofPlatform().name("import-" + id + "-worker-" + i).start(this::work));
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (error != null) {
+                state = "FAILED";
+            } else if (!allDone()) {
+                state = "STOPPED";
+            } else {
+                checkpoint.delete();
+                state = "COMPLETED";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = "STOPPED";
+        } catch (IOException e) {
+            fail(e);
+            state = "FAILED";
+        } finally {
+            finishedNanos = System.nanoTime();
+            try {
+                checkpoint.close();
+                channel.close();
+            } catch (IOException e) {
+                // файлы только читались или уже закрыты
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            int split;
+            while (!stopped() && (split = nextSplit.getAndIncrement()) < starts.length) {
+                importSplit(split);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void importSplit(int split) throws IOException {
+        long from = checkpoint.offset(split);
+        if (from >= ends[split]) {
+            return; // импортирован в прошлый раз
+        }
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, from, ends[split] - from);
+        SplitReader<T> reader = new SplitReader<>(region, target, fieldOfColumn, json);
+        List<T> batch = new ArrayList<>(batchSize);
+        // Конец строки каждой записи пакета: смещение, которое коммитится вместе с ней
+        long[] rowEnds = new long[batchSize];
+        while (reader.hasNext() && !stopped()) {
+            int rowStart = reader.position();
+            try {
+                T row = reader.next();
+                if (row != null) {
+                    rowEnds[batch.size()] = from + reader.position();
+                    batch.add(row);
+                }
+            } catch (RowException e) {
+                rowFailed("byte " + (from + rowStart) + ": " + e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                insert(split, batch, rowEnds);
+                checkpoint.advance(split, from + reader.position());
+            }
+        }
+        // Остановка: дописываем накопленное, чтобы контрольная точка указывала ровно на следующую строку
+        if (error == null) {
+            insert(split, batch, rowEnds);
+            checkpoint.advance(split, from + reader.position());
+        }
+    }
+
+    private void insert(int split, List<T> batch, long[] rowEnds) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<BatchItemResult> results = target.insert().insert(batch, index -> checkpoint.commit(split, rowEnds[index]));
+        for (BatchItemResult result : results) {
+            if (result.getId() != null) {
+                rows.increment();
+            } else {
+                rowFailed(result.getError());
+            }
+        }
+        batch.clear();
+    }
+
+    private boolean allDone() {
+        for (int i = 0; i < starts.length; i++) {
+            if (checkpoint.offset(i) < ends[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean stopped() {
+        return stopRequested || error != null;
+    }
+
+    private void rowFailed(String message) {
+        failed.increment();
+        if (errorCount.incrementAndGet() <= MAX_ERRORS) {
+            errors.add(message);
+        }
+    }
+
+    private synchronized void fail(Exception e) {
+        if (error == null) {
+            error = e instanceof UncheckedIOException unchecked ? unchecked.getCause().toString() : e.toString();
+        }
+    }
+
+    // Заголовок CSV сопоставляет колонки цели с позициями полей; возвращает начало данных
+    private long readHeader(long size) throws IOException {
+        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_WINDOW));
+        int from = (int) skipBom(size);
+        int end = from;
+        while (end < window.limit() && window.get(end) != '\n') {
+            end++;
+        }
+        if (end == window.limit() && window.limit() < size) {
+            throw new InvalidImportException("CSV header line is too long");
+        }
+        int dataStart = end < window.limit() ? end + 1 : end;
+        if (end > from && window.get(end - 1) == '\r') {
+            end--;
+        }
+        CsvRow header = new CsvRow(window, target.columns(), null);
+        try {
+            header.parse(from, end);
+        } catch (RowException e) {
+            throw new InvalidImportException("Invalid CSV header: " + e.getMessage());
+        }
+        String[] names = header.names();
+        fieldOfColumn = new int[target.columns().size()];
+        for (int column = 0; column < fieldOfColumn.length; column++) {
+            fieldOfColumn[column] = -1;
+            for (int field = 0; field < names.length; field++) {
+                if (names[field].equalsIgnoreCase(target.columns().get(column))) {
+                    fieldOfColumn[column] = field;
+                }
+            }
+            if (fieldOfColumn[column] < 0) {
+                throw new InvalidImportException("CSV header has no column " + target.columns().get(column));
+            }
+        }
+        return dataStart;
+    }
+
+    // Метка порядка байтов UTF-8 в начале файла пропускается
+    private long skipBom(long size) throws IOException {
+        if (size < 3) {
+            return 0;
+        }
+        ByteBuffer head = ByteBuffer.allocate(3);
+        channel.read(head, 0);
+        return head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB && head.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    // Начало строки, следующей за первым переводом строки не раньше from
+    private long nextLineStart(long from, long size) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+        for (long position = from; position < size; ) {
+            chunk.clear();
+            int read = channel.read(chunk, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (chunk.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.restfull_books.importer;
+
+import java.util.Map;
+
+// Смещения участков, закоммиченные вместе с пакетами: save вызывается внутри транзакции вставки,
+// поэтому смещение и строки до него либо записаны оба, либо ни одно
+public interface ImportProgressStore {
+
+    // Номер участка -> смещение
+    Map<Integer, Long> load(String checkpointKey);
+
+    void save(String checkpointKey, int split, long offset);
+
+    void delete(String checkpointKey);
+}
@@ -0,0 +1,23 @@
+package org.example.restfull_books.importer;
+
+import org.example.restfull_books.dto.BatchItemResult;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+// Что импортируется: name — books или users, columns — обязательные колонки CSV в порядке индексов CsvRow,
+// fromCsv собирает запись из строки CSV (NDJSON читает Jackson в type), insert — пакетная вставка сервиса
+public record ImportTarget<T>(String name,
+                              Class<T> type,
+                              List<String> columns,
+                              Function<CsvRow, T> fromCsv,
+                              BatchInsert<T> insert) {
+
+    // committed вызывается внутри транзакции каждой закоммиченной части пакета с индексом её последнего элемента:
+    // импорт пишет туда же смещение контрольной точки
+    @FunctionalInterface
+    public interface BatchInsert<T> {
+        List<BatchItemResult> insert(List<T> batch, IntConsumer committed);
+    }
+}
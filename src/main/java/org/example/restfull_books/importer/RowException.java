@@ -0,0 +1,8 @@
+package org.example.restfull_books.importer;
+
+// Строку файла нельзя превратить в запись: она считается ошибочной, импорт продолжается
+final class RowException extends RuntimeException {
+    RowException(String message) {
+        super(message, null, false, false);
+    }
+}
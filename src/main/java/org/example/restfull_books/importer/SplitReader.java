@@ -0,0 +1,68 @@
+package org.example.restfull_books.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+// Записи одного участка файла по порядку. Участок начинается с начала строки и кончается после перевода строки,
+// позиция после next() — начало следующей строки: её и запоминает контрольная точка
+final class SplitReader<T> {
+
+    private final ByteBuffer buffer;
+    private final ImportTarget<T> target;
+    private final CsvRow csv;           // null — NDJSON
+    private final ObjectReader json;
+    private byte[] line = new byte[256];
+    private int position;
+
+    SplitReader(ByteBuffer buffer, ImportTarget<T> target, int[] csvFieldOfColumn, ObjectReader json) {
+        this.buffer = buffer;
+        this.target = target;
+        this.csv = csvFieldOfColumn != null ? new CsvRow(buffer, target.columns(), csvFieldOfColumn) : null;
+        this.json = json;
+    }
+
+    boolean hasNext() {
+        return position < buffer.limit();
+    }
+
+    int position() {
+        return position;
+    }
+
+    // Следующая запись; null — пустая строка. RowException — строка ошибочна, позиция уже за ней
+    T next() {
+        int start = position;
+        int end = start;
+        int limit = buffer.limit();
+        while (end < limit && buffer.get(end) != '\n') {
+            end++;
+        }
+        position = end < limit ? end + 1 : end;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return null;
+        }
+        if (csv != null) {
+            csv.parse(start, end);
+            return target.fromCsv().apply(csv);
+        }
+        int length = end - start;
+        if (line.length < length) {
+            line = new byte[Integer.highestOneBit(length) << 1];
+        }
+        buffer.get(start, line, 0, length);
+        try {
+            return json.readValue(line, 0, length);
+        } catch (JsonProcessingException e) {
+            throw new RowException(e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.restfull_books.importer;
+
+import org.example.restfull_books.entity.ImportCheckpointRecord;
+import org.example.restfull_books.repository.ImportCheckpointRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Смещения в таблице import_checkpoints: save присоединяется к транзакции пакета, открытой BatchInsertExecutor.
+// Участок пишет один поток, поэтому строка участка обновляется без гонок
+@Component
+public class TableImportProgressStore implements ImportProgressStore {
+
+    @Autowired
+    private ImportCheckpointRecordRepository repository;
+
+    @Override
+    public Map<Integer, Long> load(String checkpointKey) {
+        Map<Integer, Long> offsets = new HashMap<>();
+        repository.findByCheckpointKey(checkpointKey)
+                .forEach(record -> offsets.put(record.getSplitIndex(), record.getOffsetBytes()));
+        return offsets;
+    }
+
+    @Override
+    public void save(String checkpointKey, int split, long offset) {
+        repository.save(new ImportCheckpointRecord(checkpointKey + "/" + split, checkpointKey, split, offset));
+    }
+
+    @Override
+    public void delete(String checkpointKey) {
+        repository.deleteByCheckpointKey(checkpointKey);
+    }
+}
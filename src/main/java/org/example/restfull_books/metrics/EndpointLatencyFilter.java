@@ -0,0 +1,138 @@
+package org.example.restfull_books.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Гистограммы задержки по методам BookController/UserController с тегами кода ответа и исключения.
+// Таймер для пары (метод контроллера, статус) создаётся один раз; на горячем пути — поиск в ConcurrentHashMap
+// по Method и запись в таймер Micrometer (LongAdder + атомарные счётчики корзин): без блокировок и без аллокаций.
+// Исключение, которое не обработал GlobalExceptionHandler и которое вылетело из цепочки, контейнер превратит в 500:
+// так запрос и записывается — status=500, exception=<класс>; у остальных запросов exception=none
+public class EndpointLatencyFilter extends OncePerRequestFilter {
+
+    public static final String METRIC = "books.http.server.latency";
+
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+
+    private final MeterRegistry registry;
+    private final String controllerPackage;
+    private final ConcurrentHashMap<Method, AtomicReferenceArray<Timer>> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Method, ConcurrentHashMap<Class<?>, Timer>> failureTimers = new ConcurrentHashMap<>();
+
+    public EndpointLatencyFilter(MeterRegistry registry, String controllerPackage) {
+        this.registry = registry;
+        this.controllerPackage = controllerPackage;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (failure != null) {
+                recordFailure(request, failure, start);
+            } else if (request.isAsyncStarted()) {
+                // StreamingResponseBody: время считаем до завершения выгрузки (редкий путь, слушатель допустим)
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, start);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long start) {
+        Timer timer = timerFor(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE), response.getStatus());
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Редкий путь: таймеры по классу исключения в обычной ConcurrentHashMap
+    private void recordFailure(HttpServletRequest request, Throwable failure, long start) {
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handlerMethod
+                && isController(handlerMethod)) {
+            failureTimers.computeIfAbsent(handlerMethod.getMethod(), key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(failure.getClass(), type -> timer(handlerMethod, 500, type.getSimpleName()))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timerFor(Object handler, int status) {
+        if (!(handler instanceof HandlerMethod handlerMethod) || status < MIN_STATUS || status > MAX_STATUS) {
+            return null;
+        }
+        Method method = handlerMethod.getMethod();
+        AtomicReferenceArray<Timer> byStatus = timers.get(method);
+        if (byStatus == null) {
+            if (!isController(handlerMethod)) {
+                return null;
+            }
+            byStatus = timers.computeIfAbsent(method, key -> new AtomicReferenceArray<>(MAX_STATUS - MIN_STATUS + 1));
+        }
+        Timer timer = byStatus.get(status - MIN_STATUS);
+        if (timer == null) {
+            timer = timer(handlerMethod, status, "none");
+            byStatus.compareAndSet(status - MIN_STATUS, null, timer);
+        }
+        return timer;
+    }
+
+    private boolean isController(HandlerMethod handlerMethod) {
+        return handlerMethod.getBeanType().getPackageName().equals(controllerPackage);
+    }
+
+    private Timer timer(HandlerMethod handlerMethod, int status, String exception) {
+        return Timer.builder(METRIC)
+                .description("Latency of BookController/UserController methods")
+                .tag("controller", handlerMethod.getBeanType().getSimpleName())
+                .tag("method", handlerMethod.getMethod().getName())
+                .tag("status", Integer.toString(status))
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
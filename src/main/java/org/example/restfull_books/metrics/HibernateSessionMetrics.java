@@ -0,0 +1,53 @@
+package org.example.restfull_books.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionEventListener;
+
+// Число SQL-запросов и flush на одну сессию Hibernate. open-in-view выключен, поэтому сессия — это транзакция
+// (или один вызов репозитория вне её), а не HTTP-запрос: запрос с несколькими транзакциями даёт несколько сессий.
+// Hibernate создаёт слушатель сам (hibernate.session.events.auto), поэтому сводки — статические поля,
+// а регистрирует их в реестре приложения бин MeterBinder из MetricsConfig; до этого сессии не учитываются
+public class HibernateSessionMetrics implements SessionEventListener {
+
+    private static volatile DistributionSummary statementsPerSession;
+    private static volatile DistributionSummary flushesPerSession;
+
+    private int statements;
+    private int flushes;
+
+    public static MeterBinder binder() {
+        return HibernateSessionMetrics::bindTo;
+    }
+
+    private static void bindTo(MeterRegistry registry) {
+        statementsPerSession = DistributionSummary.builder("books.hibernate.session.statements")
+                .description("JDBC statements executed per Hibernate session (one per transaction, not per HTTP request)")
+                .publishPercentileHistogram()
+                .register(registry);
+        flushesPerSession = DistributionSummary.builder("books.hibernate.session.flushes")
+                .description("Flushes per Hibernate session")
+                .register(registry);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statements++;
+    }
+
+    @Override
+    public void flushStart() {
+        flushes++;
+    }
+
+    @Override
+    public void end() {
+        DistributionSummary statementsSummary = statementsPerSession;
+        DistributionSummary flushesSummary = flushesPerSession;
+        if (statementsSummary != null) {
+            statementsSummary.record(statements);
+            flushesSummary.record(flushes);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.example.restfull_books.patch;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.slf4j.Slf4j;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.exception.InvalidPatchException;
+import org.example.restfull_books.repository.IdSequences;
+import org.hibernate.Session;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Частичное обновление по JSON Merge Patch (RFC 7396) и замена целиком (PUT) без предварительного SELECT:
+// UPDATE затрагивает только поля из патча, версия увеличивается в том же запросе,
+// If-Match превращается в условие "and version = ?". 0 строк — записи нет или версия другая
+@Slf4j
+@Component
+public class MergePatchExecutor {
+
+    public static final String ID = "id";
+    public static final String VERSION = "version";
+
+    private record Prepared(int index, long id, String sql, Object[] args) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private IdSequences idSequences;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Class<?>, PatchMetadata> metadata = new HashMap<>();
+
+    @Value("${app.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    public MergePatchExecutor(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMappingMetamodel()
+                    .getEntityDescriptor(entityType.getJavaType());
+            metadata.put(entityType.getJavaType(), new PatchMetadata(entityType, persister));
+        }
+    }
+
+    // Один патч. true — строка обновлена (или патч пустой и менять нечего), false — строки нет или версия не совпала
+    public boolean update(Class<?> entity, long id, Map<String, Object> patch, Long expectedVersion) {
+        PatchMetadata meta = metadata(entity);
+        Prepared prepared = prepare(meta, 0, id, patch, expectedVersion);
+        if (prepared == null) {
+            return true;
+        }
+        Integer updated = transactionTemplate.execute(status -> {
+            invalidateCaches(meta, List.of(id));
+            return session().doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(prepared.sql())) {
+                    bind(statement, prepared.args());
+                    return statement.executeUpdate();
+                }
+            });
+        });
+        return updated != null && updated > 0;
+    }
+
+    // PUT: все поля сущности одним UPDATE, новая версия возвращается тем же запросом.
+    // null — строки нет или версия не совпала с expectedVersion
+    public Long replace(Object entity, long id, Long expectedVersion) {
+        PatchMetadata meta = metadata(entity.getClass());
+        Object[] values = meta.values(entity);
+        Object[] args = Arrays.copyOf(values, values.length + (expectedVersion != null ? 2 : 1));
+        args[values.length] = id;
+        if (expectedVersion != null) {
+            args[values.length + 1] = expectedVersion;
+        }
+        return queryVersion(meta, id, meta.replaceSql(expectedVersion != null), args);
+    }
+
+    // PUT ?upsert=true: одним MERGE обновляет строку или создаёт её с этим id.
+    // Новая версия (0 — строка создана) или null — версия не совпала либо строки нет, а expectedVersion задан.
+    // ConflictException — строки нет, а id из уже выданного диапазона последовательности
+    public Long upsert(Object entity, long id, Long expectedVersion) {
+        PatchMetadata meta = metadata(entity.getClass());
+        Object[] values = meta.values(entity);
+        Object[] args = new Object[4 + 2 * values.length];
+        args[0] = id;
+        args[1] = expectedVersion;
+        args[2] = expectedVersion;
+        System.arraycopy(values, 0, args, 3, values.length);
+        args[3 + values.length] = expectedVersion;
+        System.arraycopy(values, 0, args, 4 + values.length, values.length);
+        if (expectedVersion != null) {
+            return queryVersion(meta, id, meta.upsertSql(), args);
+        }
+        // Без If-Match MERGE может создать строку: id сначала забирается у последовательности (IdSequences.claim)
+        return transactionTemplate.execute(status -> {
+            session().doWork(connection -> idSequences.claim(connection, meta.javaType, id));
+            return queryVersion(meta, id, meta.upsertSql(), args);
+        });
+    }
+
+    // Пакет патчей: у каждого элемента обязателен "id", необязателен "version" (как If-Match).
+    // Элементы с одинаковым набором полей уходят одним JDBC-батчем; порция chunk-size — одна транзакция
+    public List<BatchItemResult> updateAll(Class<?> entity, List<Map<String, Object>> patches) {
+        PatchMetadata meta = metadata(entity);
+        BatchItemResult[] results = new BatchItemResult[patches.size()];
+        List<Prepared> valid = new ArrayList<>(patches.size());
+        for (int i = 0; i < patches.size(); i++) {
+            Map<String, Object> patch = new LinkedHashMap<>(patches.get(i));
+            try {
+                long id = toLong(patch.remove(ID), ID);
+                Object version = patch.remove(VERSION);
+                Prepared prepared = prepare(meta, i, id, patch, version == null ? null : toLong(version, VERSION));
+                if (prepared == null) {
+                    results[i] = BatchItemResult.failed(i, "Empty patch");
+                } else {
+                    valid.add(prepared);
+                }
+            } catch (InvalidPatchException e) {
+                log.debug("Batch patch {} rejected: {}", i, e.getMessage());
+                results[i] = BatchItemResult.rejected(i, e);
+            }
+        }
+
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            List<Prepared> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    invalidateCaches(meta, chunk.stream().map(Prepared::id).toList());
+                    session().doWork(connection -> {
+                        Map<String, List<Prepared>> bySql = new LinkedHashMap<>();
+                        chunk.forEach(prepared -> bySql.computeIfAbsent(prepared.sql(), sql -> new ArrayList<>()).add(prepared));
+                        for (Map.Entry<String, List<Prepared>> group : bySql.entrySet()) {
+                            try (PreparedStatement statement = connection.prepareStatement(group.getKey())) {
+                                for (Prepared prepared : group.getValue()) {
+                                    bind(statement, prepared.args());
+                                    statement.addBatch();
+                                }
+                                int[] counts = statement.executeBatch();
+                                for (int i = 0; i < counts.length; i++) {
+                                    Prepared prepared = group.getValue().get(i);
+                                    results[prepared.index()] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO
+                                            ? BatchItemResult.updated(prepared.index(), prepared.id())
+                                            : BatchItemResult.failed(prepared.index(), "Not found or version mismatch");
+                                }
+                            }
+                        }
+                    });
+                });
+            } catch (RuntimeException e) {
+                // Порция откатилась целиком
+                log.warn("Batch patch chunk of {} rolled back", chunk.size(), e);
+                chunk.forEach(prepared -> results[prepared.index()] = BatchItemResult.rejected(prepared.index(), e));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private PatchMetadata metadata(Class<?> entity) {
+        PatchMetadata meta = metadata.get(entity);
+        if (meta == null) {
+            throw new IllegalArgumentException("Not an entity: " + entity);
+        }
+        return meta;
+    }
+
+    // null — в патче нет полей, UPDATE не нужен
+    private static Prepared prepare(PatchMetadata meta, int index, long id, Map<String, Object> patch, Long expectedVersion) {
+        if (patch.isEmpty()) {
+            return null;
+        }
+        // Значения раскладываем по номеру поля: порядок параметров совпадает с порядком колонок в SQL
+        Object[] byBit = new Object[Long.SIZE];
+        long mask = 0;
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            PatchMetadata.PatchField field = meta.field(entry.getKey());
+            byBit[field.bit()] = PatchMetadata.convert(field, entry.getValue());
+            mask |= 1L << field.bit();
+        }
+        Object[] args = new Object[Long.bitCount(mask) + (expectedVersion != null ? 2 : 1)];
+        int position = 0;
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            args[position++] = byBit[Long.numberOfTrailingZeros(rest)];
+        }
+        args[position++] = id;
+        if (expectedVersion != null) {
+            args[position] = expectedVersion;
+        }
+        return new Prepared(index, id, meta.updateSql(mask, expectedVersion != null), args);
+    }
+
+    private Long queryVersion(PatchMetadata meta, long id, String sql, Object[] args) {
+        return transactionTemplate.execute(status -> {
+            invalidateCaches(meta, List.of(id));
+            return session().doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    bind(statement, args);
+                    try (ResultSet rows = statement.executeQuery()) {
+                        return rows.next() ? rows.getLong(1) : null;
+                    }
+                }
+            });
+        });
+    }
+
+    // SQL идёт мимо Hibernate, поэтому кэш второго уровня и кэш запросов (app.cache.type=hibernate) о записи не знают.
+    // Как при bulk-HQL: таблица помечается изменяемой до записи и изменённой после коммита, строки вытесняются
+    // из региона сущности сейчас и ещё раз после транзакции — иначе чтение между ними вернуло бы в кэш старую версию
+    private void invalidateCaches(PatchMetadata meta, List<Long> ids) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SessionFactoryOptions options = session.getFactory().getSessionFactoryOptions();
+        if (!options.isSecondLevelCacheEnabled() && !options.isQueryCacheEnabled()) {
+            return;
+        }
+        CacheImplementor cache = session.getFactory().getCache();
+        cache.getTimestampsCache().preInvalidate(meta.querySpaces, session);
+        ids.forEach(id -> cache.evictEntityData(meta.javaType, id));
+        session.getActionQueue().registerProcess((success, completed) -> {
+            cache.getTimestampsCache().invalidate(meta.querySpaces, completed);
+            ids.forEach(id -> cache.evictEntityData(meta.javaType, id));
+        });
+    }
+
+    private static void bind(PreparedStatement statement, Object[] args) throws SQLException {
+        for (int i = 0; i < args.length; i++) {
+            statement.setObject(i + 1, args[i]);
+        }
+    }
+
+    private static long toLong(Object value, String name) {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        throw new InvalidPatchException("Field " + name + " must be an integer");
+    }
+
+    private Session session() {
+        return entityManager.unwrap(Session.class);
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.restfull_books.patch;
+
+import jakarta.persistence.metamodel.EntityType;
+import org.example.restfull_books.exception.InvalidPatchException;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Что можно менять в сущности через PATCH и PUT: колонка, тип и допустимость null для каждого поля, кроме id и version.
+// Строится один раз при старте из маппинга Hibernate; запрос только ищет поле в словаре и приводит значение.
+// Текст UPDATE для каждого набора полей собирается один раз и кэшируется
+final class PatchMetadata {
+
+    record PatchField(int bit, int property, String name, String column, Class<?> type, boolean nullable) {
+    }
+
+    final String entityName;
+    final Class<?> javaType;
+    final String[] querySpaces;     // таблицы сущности: по ним Hibernate отмечает устаревшие результаты кэша запросов
+    private final String table;
+    private final String idColumn;
+    private final String versionColumn; // null — сущность без @Version
+    private final Map<String, PatchField> fields = new LinkedHashMap<>();
+    private final Map<Long, String> updateSql = new ConcurrentHashMap<>();
+    private final AbstractEntityPersister persister;
+    private final String replaceSql;
+    private final String replaceIfVersionSql;
+    private final String upsertSql;
+
+    PatchMetadata(EntityType<?> entityType, AbstractEntityPersister persister) {
+        this.entityName = entityType.getName();
+        this.javaType = entityType.getJavaType();
+        this.querySpaces = (String[]) persister.getQuerySpaces();
+        this.persister = persister;
+        this.table = persister.getTableName();
+        this.idColumn = persister.getIdentifierColumnNames()[0];
+        this.versionColumn = persister.isVersioned()
+                ? persister.getPropertyColumnNames(persister.getVersionProperty())[0]
+                : null;
+
+        String[] names = persister.getPropertyNames();
+        boolean[] nullability = persister.getPropertyNullability();
+        for (int i = 0; i < names.length; i++) {
+            if (persister.isVersioned() && i == persister.getVersionProperty()) {
+                continue;
+            }
+            Class<?> type = entityType.getAttribute(names[i]).getJavaType();
+            boolean nullable = nullability[i] && !type.isPrimitive();
+            fields.put(names[i], new PatchField(fields.size(), i, names[i], persister.getPropertyColumnNames(i)[0],
+                    box(type), nullable));
+        }
+        if (fields.size() >= Long.SIZE) {
+            throw new IllegalStateException(entityName + " has too many fields for PATCH");
+        }
+        long all = (1L << fields.size()) - 1;
+        this.replaceSql = versionColumn == null ? null : returningVersion(updateSql(all, false));
+        this.replaceIfVersionSql = versionColumn == null ? null : returningVersion(updateSql(all, true));
+        this.upsertSql = versionColumn == null ? null : returningVersion(mergeSql());
+    }
+
+    PatchField field(String name) {
+        PatchField field = fields.get(name);
+        if (field == null) {
+            throw new InvalidPatchException("Invalid field: " + name);
+        }
+        return field;
+    }
+
+    // UPDATE только перечисленных в mask полей; версия увеличивается, при checkVersion сверяется
+    String updateSql(long mask, boolean checkVersion) {
+        return updateSql.computeIfAbsent(mask << 1 | (checkVersion ? 1 : 0), key -> {
+            StringBuilder sql = new StringBuilder("update ").append(table).append(" set ");
+            String separator = "";
+            for (PatchField field : fields.values()) {
+                if ((mask & 1L << field.bit()) != 0) {
+                    sql.append(separator).append(field.column()).append(" = ?");
+                    separator = ", ";
+                }
+            }
+            if (versionColumn != null) {
+                sql.append(separator).append(versionColumn).append(" = ").append(versionColumn).append(" + 1");
+            }
+            sql.append(" where ").append(idColumn).append(" = ?");
+            if (checkVersion && versionColumn != null) {
+                sql.append(" and ").append(versionColumn).append(" = ?");
+            }
+            return sql.toString();
+        });
+    }
+
+    // PUT: UPDATE всех полей; в результате — новая версия (0 строк — записи нет или версия другая)
+    String replaceSql(boolean checkVersion) {
+        if (replaceSql == null) {
+            throw new IllegalStateException(entityName + " has no @Version");
+        }
+        return checkVersion ? replaceIfVersionSql : replaceSql;
+    }
+
+    // PUT ?upsert=true, параметры: id, ожидаемая версия дважды, значения полей, ожидаемая версия, значения полей.
+    // Есть строка (и версия подходит) — UPDATE с увеличением версии, нет строки и версию не требовали — INSERT с версией 0
+    String upsertSql() {
+        if (upsertSql == null) {
+            throw new IllegalStateException(entityName + " has no @Version");
+        }
+        return upsertSql;
+    }
+
+    // Значения всех изменяемых полей сущности в порядке колонок SQL
+    Object[] values(Object entity) {
+        Object[] values = new Object[fields.size()];
+        for (PatchField field : fields.values()) {
+            values[field.bit()] = convert(field, persister.getValue(entity, field.property()));
+        }
+        return values;
+    }
+
+    private String mergeSql() {
+        StringBuilder update = new StringBuilder();
+        StringBuilder columns = new StringBuilder(idColumn);
+        StringBuilder values = new StringBuilder("s.").append(idColumn);
+        for (PatchField field : fields.values()) {
+            update.append(field.column()).append(" = ?, ");
+            columns.append(", ").append(field.column());
+            values.append(", ?");
+        }
+        return "merge into " + table + " t using (values (cast(? as bigint))) s(" + idColumn + ")"
+                + " on t." + idColumn + " = s." + idColumn
+                + " when matched and (cast(? as bigint) is null or t." + versionColumn + " = cast(? as bigint))"
+                + " then update set " + update + versionColumn + " = t." + versionColumn + " + 1"
+                + " when not matched and cast(? as bigint) is null"
+                + " then insert (" + columns + ", " + versionColumn + ") values (" + values + ", 0)";
+    }
+
+    // Диапазон изменений H2 (FINAL TABLE): строка после UPDATE/MERGE читается тем же запросом
+    private String returningVersion(String dataChange) {
+        return "select " + versionColumn + " from final table (" + dataChange + ")";
+    }
+
+    // Значение из JSON в тип поля: числа из Jackson приходят как Integer/Long/Double
+    static Object convert(PatchField field, Object value) {
+        if (value == null) {
+            if (!field.nullable()) {
+                throw new InvalidPatchException("Field " + field.name() + " must not be null");
+            }
+            return null;
+        }
+        Class<?> type = field.type();
+        if (type.isInstance(value) && !(value instanceof Number)) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            long number = ((Number) value).longValue();
+            if (type == Long.class) {
+                return number;
+            }
+            if (type == Integer.class && number == (int) number) {
+                return (int) number;
+            }
+        }
+        throw new InvalidPatchException("Invalid value for " + field.name() + ": " + value);
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        throw new IllegalStateException("Unsupported primitive type for PATCH: " + type);
+    }
+}
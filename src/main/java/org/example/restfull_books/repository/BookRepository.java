@@ -1,10 +1,101 @@
 package org.example.restfull_books.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.restfull_books.dto.BookView;
 import org.example.restfull_books.entity.Book;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+    // Keyset-пагинация: поиск по первичному ключу (id > after) вместо OFFSET.
+    // Для каждого набора фильтров свой запрос: условие вида (:author is null or ...) не даёт H2 выбрать индекс.
+    // Страницы кэшируются кэшем запросов Hibernate (app.cache.type=hibernate) до любой записи в books
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("""
+            select new org.example.restfull_books.dto.BookView(b.id, b.title, b.price, b.author) from Book b
+            where b.id > :after
+            order by b.id""")
+    List<BookView> findPage(@Param("after") long after, Limit limit);
+
+    // Поиск по индексу (author, id): равенство по author и id > after. Автор один, поэтому order by author, id —
+    // тот же порядок, что по id, но так H2 видит, что строки уже отсортированы индексом
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("""
+            select new org.example.restfull_books.dto.BookView(b.id, b.title, b.price, b.author) from Book b
+            where b.author = :author
+              and b.id > :after
+              and b.price between :minPrice and :maxPrice
+            order by b.author, b.id""")
+    List<BookView> findPageByAuthor(@Param("author") String author,
+                                    @Param("after") long after,
+                                    @Param("minPrice") int minPrice,
+                                    @Param("maxPrice") int maxPrice,
+                                    Limit limit);
+
+    // Диапазон по индексу (price, id) в порядке индекса: курсор — пара (afterPrice, after) последней строки.
+    // С order by id H2 предпочёл бы скан первичного ключа с фильтром по цене
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("""
+            select new org.example.restfull_books.dto.BookView(b.id, b.title, b.price, b.author) from Book b
+            where b.price between :afterPrice and :maxPrice
+              and (b.price > :afterPrice or b.id > :after)
+            order by b.price, b.id""")
+    List<BookView> findPageByPrice(@Param("afterPrice") int afterPrice,
+                                   @Param("after") long after,
+                                   @Param("maxPrice") int maxPrice,
+                                   Limit limit);
+
+    // Потоковая выгрузка всей таблицы: курсор JDBC с fetch size, сущности без снимков для dirty checking
+    // и мимо кэша второго уровня — полный проход не должен вытеснять из него горячие книги.
+    // Вызывать только внутри транзакции и закрывать Stream после использования
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAll();
+
+    // Только версия, без загрузки сущности: для If-None-Match / If-Match
+    @Query("select b.version from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    // Только id подходящих под фильтр книг, по возрастанию: порции для массового удаления
+    @Query("""
+            select b.id from Book b
+            where b.id > :after
+              and (:author is null or b.author = :author)
+              and (:minPrice is null or b.price >= :minPrice)
+              and (:maxPrice is null or b.price <= :maxPrice)
+            order by b.id""")
+    List<Long> findIds(@Param("after") long after,
+                       @Param("author") String author,
+                       @Param("minPrice") Integer minPrice,
+                       @Param("maxPrice") Integer maxPrice,
+                       Limit limit);
+
+    // Удаление одним DELETE без загрузки сущности; 0 — строки не было
+    @Transactional
+    @Modifying
+    @Query("delete from Book b where b.id = :id")
+    int deleteOne(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,164 @@
+package org.example.restfull_books.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.metamodel.EntityType;
+import org.example.restfull_books.exception.ConflictException;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+// Последовательности id сущностей (books_seq, users_seq) и их согласование с уже занятыми id.
+// БД, созданная до перехода с IDENTITY на последовательности, содержит строки, а последовательность
+// начинается с 1: при старте она переводится за max(id), иначе новые INSERT упали бы на первичном ключе.
+// Id, который выбрал клиент (PUT ?upsert=true), перед созданием строки забирается у последовательности — claim
+@Component
+public class IdSequences implements SmartInitializingSingleton {
+
+    private record IdSequence(String table, String idColumn, String sequence, int increment) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Class<?>, IdSequence> sequences = new HashMap<>();
+
+    // Дальше этого числа диапазонов впереди id не выбирается nextval-ами, а перезапуском последовательности
+    private static final int MAX_CLAIM_STEPS = 1000;
+
+    @Autowired
+    public IdSequences(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMappingMetamodel()
+                    .getEntityDescriptor(entityType.getJavaType());
+            if (persister.getGenerator() instanceof SequenceStyleGenerator generator) {
+                DatabaseStructure structure = generator.getDatabaseStructure();
+                sequences.put(entityType.getJavaType(), new IdSequence(persister.getTableName(),
+                        persister.getIdentifierColumnNames()[0],
+                        structure.getPhysicalName().getObjectName().getText(), structure.getIncrementSize()));
+            }
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        sequences.values().forEach(sequence -> transactionTemplate.executeWithoutResult(
+                status -> session().doWork(connection -> align(connection, sequence))));
+    }
+
+    // Создание строки с id клиента, в той же транзакции, что и INSERT/MERGE. Строка уже есть — ничего не нужно.
+    // Пуловый оптимизатор отдаёт id диапазонами (R - increment, R]: диапазон с этим id забирается своим nextval,
+    // и Hibernate его уже не выдаст. Если диапазон уже выдан раньше, id может лежать неиспользованным в памяти
+    // оптимизатора и позже уйти в INSERT — такой id отклоняется (409), создавать строку нужно без id
+    public void claim(Connection connection, Class<?> entity, long id) throws SQLException {
+        IdSequence sequence = sequences.get(entity);
+        if (sequence == null || exists(connection, sequence, id)) {
+            return;
+        }
+        synchronized (sequence) {
+            Long next = nextValue(connection, sequence);
+            if (next == null) {
+                return;
+            }
+            if (id <= next - sequence.increment()) {
+                throw reserved(sequence, id, next);
+            }
+            long steps = (id - next) / sequence.increment();
+            if (steps > MAX_CLAIM_STEPS) {
+                // Далеко впереди: сразу на диапазон, который кончается id. Гонки с nextval других потоков
+                // нет на практике — им пришлось бы успеть выбрать больше MAX_CLAIM_STEPS диапазонов
+                restart(connection, sequence, id);
+            }
+            long value;
+            do {
+                value = nextval(connection, sequence);
+            } while (value < id);
+            // Между нашими nextval диапазон с id мог забрать другой поток
+            if (id <= value - sequence.increment()) {
+                throw reserved(sequence, id, value + sequence.increment());
+            }
+        }
+    }
+
+    private static ConflictException reserved(IdSequence sequence, long id, long next) {
+        return new ConflictException("Id " + id + " is reserved by " + sequence.sequence()
+                + ": create without an id or choose an id above " + (next - sequence.increment()));
+    }
+
+    private static boolean exists(Connection connection, IdSequence sequence, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select 1 from " + sequence.table() + " where " + sequence.idColumn() + " = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static long nextval(Connection connection, IdSequence sequence) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select next value for " + sequence.sequence())) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Пуловый оптимизатор Hibernate по значению R выдаёт id из (R - increment, R]:
+    // следующий диапазон не должен задевать max(id), поэтому перезапуск — с max(id) + increment
+    private void align(Connection connection, IdSequence sequence) throws SQLException {
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "select max(" + sequence.idColumn() + ") from " + sequence.table())) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+        Long next = nextValue(connection, sequence);
+        if (maxId == 0 || next == null || next - sequence.increment() >= maxId) {
+            return;
+        }
+        restart(connection, sequence, maxId + sequence.increment());
+    }
+
+    // Значение, которое последовательность выдаст следующим; null — последовательности ещё нет
+    private static Long nextValue(Connection connection, IdSequence sequence) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select base_value from information_schema.sequences"
+                        + " where sequence_schema = schema() and sequence_name = upper(?)")) {
+            statement.setString(1, sequence.sequence());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    // В H2 перезапуск последовательности не транзакционный и не откатывается вместе с транзакцией
+    private static void restart(Connection connection, IdSequence sequence, long value) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter sequence " + sequence.sequence() + " restart with " + value);
+        }
+    }
+
+    private Session session() {
+        return entityManager.unwrap(Session.class);
+    }
+}
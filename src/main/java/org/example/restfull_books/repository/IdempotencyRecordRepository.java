@@ -0,0 +1,25 @@
+package org.example.restfull_books.repository;
+
+import org.example.restfull_books.entity.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface IdempotencyRecordRepository extends CrudRepository<IdempotencyRecord, String> {
+
+    // Время создания записей от новых к старым: со смещением maximumSize — граница лишних записей
+    @Query("select r.createdAtMillis from IdempotencyRecord r order by r.createdAtMillis desc")
+    List<Long> findCreatedAtNewestFirst(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAtMillis <= :cutoff")
+    int deleteCreatedUpTo(@Param("cutoff") long cutoff);
+}
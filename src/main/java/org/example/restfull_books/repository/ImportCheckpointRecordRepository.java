@@ -0,0 +1,22 @@
+package org.example.restfull_books.repository;
+
+import org.example.restfull_books.entity.ImportCheckpointRecord;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ImportCheckpointRecordRepository extends CrudRepository<ImportCheckpointRecord, String> {
+
+    List<ImportCheckpointRecord> findByCheckpointKey(String checkpointKey);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ImportCheckpointRecord r where r.checkpointKey = :checkpointKey")
+    int deleteByCheckpointKey(@Param("checkpointKey") String checkpointKey);
+}
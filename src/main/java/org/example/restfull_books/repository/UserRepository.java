@@ -1,11 +1,55 @@
 package org.example.restfull_books.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.restfull_books.entity.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
 
-}
+    // Keyset-пагинация по первичному ключу
+    List<User> findByIdGreaterThanOrderByIdAsc(long after, Limit limit);
+
+    // Потоковая выгрузка всей таблицы: курсор JDBC с fetch size, сущности без снимков для dirty checking
+    // и мимо кэша второго уровня.
+    // Вызывать только внутри транзакции и закрывать Stream после использования
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
+
+    // Только версия, без загрузки сущности: для If-None-Match / If-Match
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
 
+    // Только id пользователей с такой фамилией, по возрастанию: порции для массового удаления
+    @Query("select u.id from User u where u.id > :after and u.lastName = :lastName order by u.id")
+    List<Long> findIdsByLastName(@Param("after") long after, @Param("lastName") String lastName, Limit limit);
+
+    // Удаление одним DELETE без загрузки сущности; 0 — строки не было
+    @Transactional
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteOne(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from User u where u.id in :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+}
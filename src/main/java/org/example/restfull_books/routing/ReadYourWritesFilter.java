@@ -0,0 +1,99 @@
+package org.example.restfull_books.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.restfull_books.admission.ClientKeyResolver;
+import org.example.restfull_books.admission.SweepThrottle;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Чтение своих записей: запрос на запись и чтения клиента в течение window после неё идут в основную БД,
+// иначе GET сразу после POST мог бы попасть на отстающую реплику и не найти только что созданную запись.
+// Клиент — как у допуска запросов (ClientKeyResolver). Помнит только этот экземпляр приложения.
+// Клиентов не больше maxClients: если после чистки истёкших окон места нет, новые писатели делят одно окно
+// OVERFLOW_CLIENT, и пока оно открыто, все незнакомые клиенты читают с основной БД — лишняя нагрузка на неё,
+// но не чтение мимо своей записи
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String OVERFLOW_CLIENT = "*";
+
+    private final long windowNanos;
+    private final ClientKeyResolver clients;
+    private final int maxClients;
+    private final LongSupplier ticker;
+    private final ConcurrentHashMap<String, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final SweepThrottle sweepThrottle;
+
+    public ReadYourWritesFilter(long windowNanos, ClientKeyResolver clients, int maxClients) {
+        this(windowNanos, clients, maxClients, System::nanoTime);
+    }
+
+    ReadYourWritesFilter(long windowNanos, ClientKeyResolver clients, int maxClients, LongSupplier ticker) {
+        this.windowNanos = windowNanos;
+        this.clients = clients;
+        this.maxClients = maxClients;
+        this.ticker = ticker;
+        this.sweepThrottle = new SweepThrottle(ticker.getAsLong());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        boolean write = !("GET".equals(method) || "HEAD".equals(method));
+        String client = clients.clientOf(request);
+        if (write) {
+            // До обработки: ответ может уйти клиенту раньше, чем фильтр получит управление обратно
+            stick(client);
+        }
+        if (!write && !isSticky(client)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean previous = ReplicaRoutingDataSource.setReadsFromPrimary(true);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.setReadsFromPrimary(previous);
+            if (write) {
+                // Окно отсчитывается от конца записи: долгий запрос не съедает его
+                stick(client);
+            }
+        }
+    }
+
+    public int stickyClients() {
+        return stickyUntil.size();
+    }
+
+    private boolean isSticky(String client) {
+        Long until = stickyUntil.get(client);
+        if (until == null) {
+            until = stickyUntil.get(OVERFLOW_CLIENT);
+        }
+        return until != null && until - ticker.getAsLong() > 0;
+    }
+
+    private void stick(String client) {
+        long now = ticker.getAsLong();
+        if (!stickyUntil.containsKey(client) && stickyUntil.size() >= maxClients) {
+            sweep(now);
+            if (stickyUntil.size() >= maxClients) {
+                client = OVERFLOW_CLIENT;
+            }
+        }
+        stickyUntil.put(client, now + windowNanos);
+    }
+
+    // Истёкшие окна ничем не отличаются от отсутствующих
+    private void sweep(long now) {
+        if (sweepThrottle.tryStart(now)) {
+            stickyUntil.values().removeIf(until -> until - now <= 0);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.restfull_books.routing;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Источник соединений для транзакций только на чтение (@Transactional(readOnly = true) сервисов и JpaBookStore,
+// findById/findAll репозиториев; свои @Query-методы репозиториев транзакции не открывают):
+// LazyConnectionDataSourceProxy берёт соединение отсюда, если до первого запроса транзакция вызвала setReadOnly(true).
+// Живые реплики по кругу; реплика, не отдавшая соединение, выбывает до следующей удачной проверки здоровья.
+// Нет живых реплик или клиент только что писал (ReadYourWritesFilter) — соединение с основной БД
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final ScheduledExecutorService healthCheck;
+
+    private static final class Replica {
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    // healthCheckInterval == null — без фоновой проверки, только checkHealth()
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas,
+                                    Duration healthCheckInterval, Duration validationTimeout) {
+        this.primary = primary;
+        replicas.forEach(replica -> this.replicas.add(new Replica(replica)));
+        this.validationTimeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+        if (healthCheckInterval == null) {
+            healthCheck = null;
+            return;
+        }
+        healthCheck = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-health-check").daemon().factory());
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Чтения в этом потоке — с основной БД: клиент должен увидеть свою запись, а реплика могла её ещё не получить
+    static boolean setReadsFromPrimary(boolean readsFromPrimary) {
+        boolean previous = readsFromPrimary();
+        if (readsFromPrimary) {
+            PRIMARY_READS.set(Boolean.TRUE);
+        } else {
+            PRIMARY_READS.remove();
+        }
+        return previous;
+    }
+
+    static boolean readsFromPrimary() {
+        return PRIMARY_READS.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readsFromPrimary() && !replicas.isEmpty()) {
+            int size = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), size);
+            for (int i = 0; i < size; i++) {
+                Replica replica = replicas.get((start + i) % size);
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replicaReads.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replica.healthy = false;
+                }
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica credentials come from spring.datasource");
+    }
+
+    // Реплика жива, если отдаёт соединение и оно проходит Connection.isValid
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.healthy = connection.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    public long replicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    public long primaryReadCount() {
+        return primaryReads.sum();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package org.example.restfull_books.search;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.util.LongObjectHashMap;
+import org.example.restfull_books.util.Tombstones;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Инвертированный индекс по словам title и author для GET /books/search.
+// Словарь терминов отсортирован (TreeMap), поэтому префиксный поиск — это диапазон ключей, а не перебор.
+// Каждое слово запроса должно совпасть (целиком или как префикс) с каким-нибудь словом книги;
+// точное совпадение и совпадение в названии весят больше.
+// Запись с версией старше проиндексированной и запись вскоре после удаления книги игнорируются
+@Component
+public class BookSearchIndex {
+
+    static final int TITLE_EXACT = 4;
+    static final int AUTHOR_EXACT = 3;
+    static final int TITLE_PREFIX = 2;
+    static final int AUTHOR_PREFIX = 1;
+    private static final int WEIGHT_BITS = 3;
+    static final Duration TOMBSTONE_TTL = Duration.ofMinutes(1);
+
+    private record Document(long version, String[] title, String[] author) {
+    }
+
+    private final TreeMap<String, PostingList> titleTerms = new TreeMap<>();
+    private final TreeMap<String, PostingList> authorTerms = new TreeMap<>();
+    // Прямой индекс id -> версия и слова книги: нужен, чтобы убрать старые термины при обновлении
+    private final LongObjectHashMap<Document> documents = new LongObjectHashMap<>();
+    private final Tombstones removed;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookSearchIndex() {
+        this(new Tombstones(TOMBSTONE_TTL));
+    }
+
+    BookSearchIndex(Tombstones removed) {
+        this.removed = removed;
+    }
+
+    public void index(Book book) {
+        long version = book.getVersion() == null ? 0 : book.getVersion();
+        Document document = new Document(version, tokenize(book.getTitle()), tokenize(book.getAuthor()));
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.get(book.getId());
+            if (previous != null && previous.version() > version || removed.contains(book.getId())) {
+                return; // опоздавшая запись: книгу уже обновили или удалили
+            }
+            removeDocument(book.getId());
+            documents.put(book.getId(), document);
+            addTerms(titleTerms, document.title(), book.getId());
+            addTerms(authorTerms, document.author(), book.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            removed.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Книга с этим id создана заново после удаления — следующий index не должен её отвергнуть
+    public void revive(long id) {
+        lock.writeLock().lock();
+        try {
+            removed.revive(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            titleTerms.clear();
+            authorTerms.clear();
+            documents.clear();
+            removed.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // id книг от самой релевантной к наименее, не больше limit
+    public long[] search(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || limit <= 0) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            long[] ids = null;
+            int[] scores = null;
+            int size = 0;
+            for (String token : tokens) {
+                long[] matches = match(token);
+                if (ids == null) {
+                    ids = new long[matches.length];
+                    scores = new int[matches.length];
+                    for (long packed : matches) {
+                        ids[size] = packed >>> WEIGHT_BITS;
+                        scores[size++] = (int) (packed & ((1 << WEIGHT_BITS) - 1));
+                    }
+                } else {
+                    size = intersect(ids, scores, size, matches);
+                }
+                if (size == 0) {
+                    return new long[0];
+                }
+            }
+            TopK top = new TopK(limit);
+            for (int i = 0; i < size; i++) {
+                top.offer(ids[i], scores[i]);
+            }
+            return top.drainBestFirst();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Все книги, где есть слово с префиксом token: отсортированы по id, в младших битах — лучший вес совпадения
+    private long[] match(String token) {
+        List<long[]> parts = new ArrayList<>();
+        int total = collect(titleTerms, token, TITLE_EXACT, TITLE_PREFIX, parts);
+        total += collect(authorTerms, token, AUTHOR_EXACT, AUTHOR_PREFIX, parts);
+
+        long[] packed = new long[total];
+        int pos = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, packed, pos, part.length);
+            pos += part.length;
+        }
+        Arrays.sort(packed);
+
+        // После сортировки записи одной книги идут подряд, последняя несёт максимальный вес
+        int unique = 0;
+        for (int i = 0; i < packed.length; i++) {
+            if (i + 1 < packed.length && packed[i + 1] >>> WEIGHT_BITS == packed[i] >>> WEIGHT_BITS) {
+                continue;
+            }
+            packed[unique++] = packed[i];
+        }
+        return Arrays.copyOf(packed, unique);
+    }
+
+    private static int collect(TreeMap<String, PostingList> terms, String token, int exactWeight, int prefixWeight,
+                               List<long[]> parts) {
+        int total = 0;
+        NavigableMap<String, PostingList> range = terms.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (Map.Entry<String, PostingList> entry : range.entrySet()) {
+            int weight = entry.getKey().length() == token.length() ? exactWeight : prefixWeight;
+            PostingList postings = entry.getValue();
+            long[] part = new long[postings.size()];
+            for (int i = 0; i < part.length; i++) {
+                part[i] = postings.get(i) << WEIGHT_BITS | weight;
+            }
+            parts.add(part);
+            total += part.length;
+        }
+        return total;
+    }
+
+    // Пересечение отсортированных списков слиянием; счёт суммируется, результат пишется поверх ids/scores
+    private static int intersect(long[] ids, int[] scores, int size, long[] matches) {
+        int out = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < matches.length) {
+            long id = matches[j] >>> WEIGHT_BITS;
+            if (ids[i] < id) {
+                i++;
+            } else if (ids[i] > id) {
+                j++;
+            } else {
+                ids[out] = id;
+                scores[out++] = scores[i] + (int) (matches[j] & ((1 << WEIGHT_BITS) - 1));
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    private void removeDocument(long id) {
+        Document document = documents.remove(id);
+        if (document != null) {
+            removeTerms(titleTerms, document.title(), id);
+            removeTerms(authorTerms, document.author(), id);
+        }
+    }
+
+    private static void addTerms(TreeMap<String, PostingList> terms, String[] tokens, long id) {
+        for (String token : tokens) {
+            terms.computeIfAbsent(token, key -> new PostingList()).add(id);
+        }
+    }
+
+    private static void removeTerms(TreeMap<String, PostingList> terms, String[] tokens, long id) {
+        for (String token : tokens) {
+            PostingList postings = terms.get(token);
+            if (postings != null) {
+                postings.remove(id);
+                if (postings.isEmpty()) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    // Разбиение на слова: буквы и цифры любого алфавита, нижний регистр, "ё" приравнивается к "е"
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(c);
+                current.append(c == 'ё' ? 'е' : c);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString().toLowerCase(Locale.ROOT));
+                current.setLength(0);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.restfull_books.search;
+
+// Отбор k лучших результатов min-кучей на параллельных массивах: O(n log k) вместо сортировки всех совпадений.
+// При равном счёте выше стоит меньший id
+final class TopK {
+
+    private final long[] ids;
+    private final int[] scores;
+    private int size;
+
+    TopK(int k) {
+        ids = new long[k];
+        scores = new int[k];
+    }
+
+    void offer(long id, int score) {
+        if (ids.length == 0) {
+            return;
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (worse(0, id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    // Результаты от лучшего к худшему; куча при этом опустошается
+    long[] drainBestFirst() {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    // true, если элемент кучи i хуже кандидата (id, score)
+    private boolean worse(int i, long id, int score) {
+        return scores[i] < score || (scores[i] == score && ids[i] > id);
+    }
+
+    private boolean worse(int i, int j) {
+        return worse(i, ids[j], scores[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int worst = right < size && worse(right, left) ? right : left;
+            if (!worse(worst, i)) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        int score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
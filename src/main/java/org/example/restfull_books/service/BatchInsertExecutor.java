@@ -0,0 +1,89 @@
+package org.example.restfull_books.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
+
+// Пакетная вставка: каждая порция (chunk) коммитится в своей транзакции,
+// INSERT-ы уходят JDBC-батчами (hibernate.jdbc.batch_size), контекст очищается после каждой порции.
+// committed — в той же транзакции, с индексом последнего элемента порции (или строки при повторе поштучно)
+@Slf4j
+@Component
+public class BatchInsertExecutor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    public BatchInsertExecutor(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> List<BatchItemResult> insertAll(List<T> items, CrudRepository<T, Long> repository,
+                                               ToLongFunction<T> idGetter, Consumer<T> resetForInsert) {
+        return insertAll(items, repository, idGetter, resetForInsert, index -> { });
+    }
+
+    public <T> List<BatchItemResult> insertAll(List<T> items, CrudRepository<T, Long> repository,
+                                               ToLongFunction<T> idGetter, Consumer<T> resetForInsert,
+                                               IntConsumer committed) {
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            chunk.forEach(resetForInsert); // пакет всегда только вставляет новые строки
+            int last = from + chunk.size() - 1;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    repository.saveAll(chunk);
+                    entityManager.flush();
+                    entityManager.clear();
+                    committed.accept(last);
+                });
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(BatchItemResult.created(from + i, idGetter.applyAsLong(chunk.get(i))));
+                }
+            } catch (RuntimeException e) {
+                // Порция откатилась целиком: повторяем поштучно, чтобы вернуть ошибку конкретного элемента
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(insertOne(from + i, chunk.get(i), repository, idGetter, resetForInsert, committed));
+                }
+            }
+        }
+        return results;
+    }
+
+    private <T> BatchItemResult insertOne(int index, T item, CrudRepository<T, Long> repository,
+                                          ToLongFunction<T> idGetter, Consumer<T> resetForInsert,
+                                          IntConsumer committed) {
+        resetForInsert.accept(item); // после отката порции у элемента остались id и версия от persist
+        try {
+            T saved = transactionTemplate.execute(status -> {
+                T inserted = repository.save(item);
+                committed.accept(index);
+                return inserted;
+            });
+            return BatchItemResult.created(index, idGetter.applyAsLong(saved));
+        } catch (RuntimeException e) {
+            log.warn("Batch item {} rejected", index, e);
+            return BatchItemResult.rejected(index, e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.example.restfull_books.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.IngestStats;
+import org.example.restfull_books.dto.IngestStatus;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.NotFoundException;
+import org.example.restfull_books.exception.ServiceUnavailableException;
+import org.example.restfull_books.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Отложенная запись POST /books/new (app.ingest.mode=async): запрос кладёт книгу в очередь и сразу получает 202,
+// один поток-писатель забирает из очереди сколько накопилось (до max-batch) и пишет одной транзакцией —
+// один COMMIT и одна запись файла H2 на группу вместо одной на книгу.
+// Очередь без блокировок: ConcurrentLinkedQueue и счётчик мест, который занимается CAS до вставки;
+// места нет — 429 с Retry-After. При остановке приложения новые книги не принимаются (503), очередь дописывается
+// до конца; не успел писатель за shutdown-timeout — оставшиеся в очереди книги получают FAILED, а не висят в PENDING
+@Slf4j
+@Component
+public class BookIngestQueue implements SmartLifecycle {
+
+    private record Pending(long trackingId, Book book) {
+    }
+
+    // Старший бит счётчика мест: приём закрыт. Ставится тем же CAS-счётчиком, что занимает места,
+    // поэтому после закрытия новых мест нет, а каждое занятое до него место писатель дождётся в очереди
+    private static final int CLOSED = 1 << 30;
+
+    static final String WRITE_FAILED = "Book could not be written";
+    static final String STOPPED = "Application stopped before the book was written";
+
+    private final BookService bookService;
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxBatch;
+    private final int statusRetention;
+    private final Duration shutdownTimeout;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(CLOSED);   // занятые места | CLOSED
+    private final AtomicLong trackingIds = new AtomicLong();
+    private final ConcurrentHashMap<Long, IngestStatus> statuses = new ConcurrentHashMap<>();
+    // Завершённые в порядке завершения: старые статусы забываются, когда их больше statusRetention
+    private final Queue<Long> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger completedCount = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile Thread writer;
+
+    @Autowired
+    public BookIngestQueue(BookService bookService,
+                           @Value("${app.ingest.mode:sync}") String mode,
+                           @Value("${app.ingest.queue-capacity:10000}") int capacity,
+                           @Value("${app.ingest.max-batch:500}") int maxBatch,
+                           @Value("${app.ingest.status-retention:100000}") int statusRetention,
+                           @Value("${app.ingest.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.bookService = bookService;
+        this.enabled = switch (mode) {
+            case "sync" -> false;
+            case "async" -> true;
+            default -> throw new IllegalStateException("Unknown app.ingest.mode: " + mode);
+        };
+        if (capacity <= 0 || capacity >= CLOSED) {
+            throw new IllegalStateException("app.ingest.queue-capacity must be in (0, " + CLOSED + "): " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxBatch = maxBatch;
+        this.statusRetention = statusRetention;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Книга принята: вернуть клиенту trackingId для опроса статуса
+    public IngestStatus submit(Book book) {
+        if (!reserveSlot()) {
+            rejected.increment();
+            if ((size.get() & CLOSED) != 0) {
+                throw new ServiceUnavailableException("Ingest queue is shutting down", 1);
+            }
+            throw new TooManyRequestsException("Ingest queue is full", 1);
+        }
+        long trackingId = trackingIds.incrementAndGet();
+        IngestStatus status = IngestStatus.pending(trackingId);
+        statuses.put(trackingId, status);
+        queue.add(new Pending(trackingId, book));
+        accepted.increment();
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+        return status;
+    }
+
+    public IngestStatus status(long trackingId) {
+        IngestStatus status = statuses.get(trackingId);
+        if (status == null) {
+            throw new NotFoundException("Unknown or expired tracking id " + trackingId);
+        }
+        return status;
+    }
+
+    public IngestStats stats() {
+        return new IngestStats(enabled, reserved(), capacity, accepted.sum(), rejected.sum(),
+                created.sum(), failed.sum(), batches.sum());
+    }
+
+    // Закрытый приём тоже не даёт места: с битом CLOSED счётчик больше любой capacity
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    // Места, занятые книгами: в очереди или ещё на пути в неё
+    private int reserved() {
+        return size.get() & ~CLOSED;
+    }
+
+    // После закрытия приёма пишем, пока счётчик не дойдёт до нуля: книга, занявшая место до закрытия,
+    // может попасть в очередь уже после того, как писатель увидел её пустой
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || reserved() > 0) {
+            Pending next;
+            while (batch.size() < maxBatch && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                // Флаг ставится до повторной проверки: книга, добавленная после неё, разбудит писателя через unpark
+                parked = true;
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, Duration.ofMillis(100).toNanos());
+                }
+                parked = false;
+                continue;
+            }
+            size.addAndGet(-batch.size());
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    // Одна группа — одна транзакция: BookService.saveAll коммитит порцию целиком,
+    // а при ошибке повторяет книги поштучно, так что статус получает каждая
+    private void write(List<Pending> batch) {
+        List<Book> books = new ArrayList<>(batch.size());
+        batch.forEach(pending -> books.add(pending.book()));
+        batches.increment();
+        try {
+            for (BatchItemResult result : bookService.saveAll(books)) {
+                Pending pending = batch.get(result.getIndex());
+                complete(new IngestStatus(pending.trackingId(), result.getStatus(), result.getId(), result.getError()));
+            }
+        } catch (RuntimeException e) {
+            log.error("Ingest batch of {} books failed", batch.size(), e); // текст исключения клиенту не отдаём
+            batch.forEach(pending -> complete(new IngestStatus(pending.trackingId(), "FAILED", null, WRITE_FAILED)));
+        }
+    }
+
+    private void complete(IngestStatus status) {
+        (status.getBookId() != null ? created : failed).increment();
+        statuses.put(status.getTrackingId(), status);
+        completed.add(status.getTrackingId());
+        if (completedCount.incrementAndGet() > statusRetention) {
+            Long oldest = completed.poll();
+            if (oldest != null) {
+                statuses.remove(oldest);
+                completedCount.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        size.getAndUpdate(current -> current & ~CLOSED);
+        writer = Thread.ofPlatform().name("book-ingest-writer").start(this::runWriter);
+    }
+
+    // Сначала перестаём принимать книги, потом ждём, пока писатель допишет очередь
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        size.getAndUpdate(current -> current | CLOSED);
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            abandonQueued();
+        }
+    }
+
+    // Писатель завис на текущей группе: её книги он ещё допишет сам, а до остальных не дойдёт.
+    // poll забирает каждую книгу ровно одному — писателю или нам
+    private void abandonQueued() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            size.decrementAndGet();
+            complete(new IngestStatus(pending.trackingId(), "FAILED", null, STOPPED));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Останавливаемся после веб-сервера (он в фазах около DEFAULT_PHASE): новых запросов к этому моменту уже нет
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -1,29 +1,292 @@
 package org.example.restfull_books.service;
 
+import org.example.restfull_books.cache.EntityCache;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.dto.KeysetPage;
 import org.example.restfull_books.entity.Book;
-import org.example.restfull_books.repository.BookRepository;
+import org.example.restfull_books.exception.InvalidCursorException;
+import org.example.restfull_books.exception.NotFoundException;
+import org.example.restfull_books.exception.PreconditionFailedException;
+import org.example.restfull_books.search.BookSearchIndex;
+import org.example.restfull_books.stats.AuthorStats;
+import org.example.restfull_books.stats.BookStatistics;
+import org.example.restfull_books.stats.BookStats;
+import org.example.restfull_books.store.BookStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
 @Service
 public class BookService {
 
     @Autowired //внедрение зависимости
-    private BookRepository bookRepository;
+    private BookStore bookStore;
+
+    @Autowired
+    private BulkDeleteExecutor bulkDeleteExecutor;
+
+    @Autowired
+    private EntityCache<Book> bookCache;
+
+    @Autowired
+    private BookSearchIndex searchIndex;
+
+    @Autowired
+    private BookStatistics statistics;
 
     public Book save(Book book) {
-        return bookRepository.save(book);
+        Book saved = bookStore.insert(book);
+        bookCache.put(saved.getId(), saved);
+        searchIndex.index(saved);
+        statistics.record(saved);
+        return saved;
+    }
+
+    // POST /books/batch
+    public List<BatchItemResult> saveAll(List<Book> books) {
+        return saveAll(books, index -> { });
+    }
+
+    // Импорт: committed пишет контрольную точку в транзакции вставки (BookStore.insertAll)
+    public List<BatchItemResult> saveAll(List<Book> books, IntConsumer committed) {
+        List<BatchItemResult> results = bookStore.insertAll(books, committed);
+        // Новые id могли быть закэшированы как отсутствующие до вставки
+        results.stream()
+                .filter(result -> result.getId() != null)
+                .forEach(result -> {
+                    bookCache.invalidate(result.getId());
+                    searchIndex.index(books.get(result.getIndex()));
+                    statistics.record(books.get(result.getIndex()));
+                });
+        return results;
     }
 
     public Book getByBookId(long id) {
-        return bookRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
+        return bookCache.get(id, bookStore::findById)
+                .orElseThrow(() -> new NotFoundException("Book not found"));
+    }
+
+    // Текущая версия книги без загрузки сущности (If-None-Match): из кэша, если книга там есть, иначе одним SELECT version
+    public long getBookVersion(long id) {
+        return bookCache.getIfPresent(id).map(Book::getVersion).orElseGet(() -> storedVersion(id));
     }
 
-    public Book deleteBookById(long id) {
-        Book book = getByBookId(id);
-        bookRepository.delete(book);
+    // Версия в хранилище, мимо кэша: для текста 412 после неудачного UPDATE
+    private long storedVersion(long id) {
+        return bookStore.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("Book not found"));
+    }
+
+    // PUT /books/{id}: один UPDATE всех полей, новая версия приходит тем же запросом; 404/412 — по числу строк.
+    // book.version — версия из If-Match или null
+    public Book updateBook(Book book) {
+        Long newVersion = bookStore.replace(book, book.getVersion());
+        if (newVersion == null) {
+            long currentVersion = storedVersion(book.getId());
+            throw new PreconditionFailedException("Book version is " + currentVersion + ", not " + book.getVersion());
+        }
+        return replaced(book, newVersion);
+    }
+
+    // PUT /books/{id}?upsert=true: один MERGE — обновить или создать книгу с этим id. Версия 0 у результата — создана.
+    // id задаёт клиент: в режиме jpa новый id забирается у books_seq; id из уже выданного ей диапазона — 409
+    public Book upsertBook(Book book) {
+        Long newVersion = bookStore.upsert(book, book.getVersion());
+        if (newVersion == null) {
+            String current = bookStore.findVersionById(book.getId()).map(String::valueOf).orElse("absent");
+            throw new PreconditionFailedException("Book version is " + current + ", not " + book.getVersion());
+        }
+        if (newVersion == 0) {
+            // Создана: в режиме memory id мог принадлежать недавно удалённой книге
+            searchIndex.revive(book.getId());
+            statistics.revive(book.getId());
+        }
+        return replaced(book, newVersion);
+    }
+
+    private Book replaced(Book book, long newVersion) {
+        book.setVersion(newVersion);
+        bookCache.put(book.getId(), book);
+        searchIndex.index(book);
+        statistics.record(book);
         return book;
     }
 
+    // PATCH /books/{id}: JSON Merge Patch, UPDATE только переданных полей без предварительного SELECT.
+    // expectedVersion — версия из If-Match или null
+    public Book updatePartial(long id, Map<String, Object> updates, Long expectedVersion) {
+        Book saved = bookStore.updateAndFind(id, updates, expectedVersion).orElse(null);
+        if (saved == null) {
+            long currentVersion = storedVersion(id);
+            throw new PreconditionFailedException("Book version is " + currentVersion + ", not " + expectedVersion);
+        }
+        if (updates.isEmpty() && expectedVersion != null && !expectedVersion.equals(saved.getVersion())) {
+            throw new PreconditionFailedException("Book version is " + saved.getVersion() + ", not " + expectedVersion);
+        }
+        bookCache.put(id, saved);
+        if (updates.containsKey("title") || updates.containsKey("author")) {
+            searchIndex.index(saved);
+        }
+        statistics.record(saved);
+        return saved;
+    }
+
+    // PATCH /books: пакет патчей [{"id": 1, "version": 0, "price": 450}, ...] без чтения книг.
+    // Перечитываются только книги с новым названием, автором или ценой — для поискового индекса и статистики
+    public List<BatchItemResult> updatePartialAll(List<Map<String, Object>> patches) {
+        List<BatchItemResult> results = bookStore.updateAll(patches);
+        List<Long> reread = new ArrayList<>();
+        Set<Long> reindex = new HashSet<>();
+        for (BatchItemResult result : results) {
+            if (result.getId() == null) {
+                continue;
+            }
+            bookCache.invalidate(result.getId());
+            Map<String, Object> patch = patches.get(result.getIndex());
+            boolean textChanged = patch.containsKey("title") || patch.containsKey("author");
+            if (textChanged) {
+                reindex.add(result.getId());
+            }
+            if (textChanged || patch.containsKey("price")) {
+                reread.add(result.getId());
+            }
+        }
+        if (!reread.isEmpty()) {
+            bookStore.findAllById(reread).forEach(book -> {
+                if (reindex.contains(book.getId())) {
+                    searchIndex.index(book);
+                }
+                statistics.record(book);
+            });
+        }
+        return results;
+    }
+
+    // GET /books?after=&limit=&author=&minPrice=&maxPrice=&afterPrice=: запрос выбирается по набору фильтров,
+    // чтобы хранилище искало по индексу (author, id) или (price, id); открытая граница цены — крайнее значение int.
+    // Только с фильтром цены (без автора) страница идёт в порядке (price, id), а не id: курсор — nextAfter
+    // и nextAfterPrice последней книги страницы, оба обязательны. Цену по id не дочитываем: книгу курсора
+    // могли удалить, и страница началась бы не с того места — строки пропали бы или повторились
+    public KeysetPage<BookView> getPage(long after, int limit, String author, Integer minPrice, Integer maxPrice,
+                                        Integer afterPrice) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        Limit rowLimit = Limit.of(pageSize + 1);
+        int min = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int max = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        List<BookView> rows;
+        if (author != null) {
+            rows = bookStore.findPageByAuthor(author, after, min, max, rowLimit);
+        } else if (minPrice != null || maxPrice != null) {
+            if (after > 0 && afterPrice == null) {
+                throw new InvalidCursorException("Paging by price needs afterPrice with after: pass nextAfterPrice");
+            }
+            int fromPrice = afterPrice != null ? Math.max(afterPrice, min) : min;
+            rows = bookStore.findPageByPrice(fromPrice, after, max, rowLimit);
+            KeysetPage<BookView> page = KeysetPage.of(rows, pageSize, BookView::getId);
+            if (page.getNextAfter() != null) {
+                page.setNextAfterPrice(page.getItems().get(page.getItems().size() - 1).getPrice());
+            }
+            return page;
+        } else {
+            rows = bookStore.findPage(after, rowLimit);
+        }
+        return KeysetPage.of(rows, pageSize, BookView::getId);
+    }
+
+    // GET /books/by-author/{author}
+    public KeysetPage<BookView> getByAuthor(String author, long after, int limit) {
+        return getPage(after, limit, author, null, null, null);
+    }
+
+    // GET /books/export: книги по одной отдаются в sink, не накапливаясь в памяти
+    public void exportAll(Consumer<Book> sink) {
+        bookStore.forEach(sink);
+    }
+
+    // GET /books/search?q=: id берутся из индекса в порядке релевантности, книги — одним запросом
+    public List<Book> search(String query, int limit) {
+        long[] ids = searchIndex.search(query, KeysetPage.clampLimit(limit));
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        Map<Long, Book> byId = bookStore.findAllById(idList).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> books = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    // GET /books/stats
+    public BookStats getStats() {
+        return statistics.total();
+    }
+
+    // GET /books/stats/authors/{author}
+    public AuthorStats getAuthorStats(String author) {
+        AuthorStats stats = statistics.author(author);
+        if (stats == null) {
+            throw new NotFoundException("No books by author " + author);
+        }
+        return stats;
+    }
+
+    // Поисковый индекс и статистика живут в памяти: при старте заполняем их одним потоковым чтением хранилища
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildSearchIndex() {
+        searchIndex.clear();
+        statistics.clear();
+        exportAll(book -> {
+            searchIndex.index(book);
+            statistics.record(book);
+        });
+    }
+
+    // Один DELETE по id; что книги нет, узнаём по числу удалённых строк
+    public void deleteBookById(long id) {
+        if (bookStore.deleteOne(id) == 0) {
+            throw new NotFoundException("Book not found");
+        }
+        forget(List.of(id));
+    }
+
+    // DELETE /books с телом [id, ...]
+    public long deleteBooksByIds(Collection<Long> ids) {
+        return bulkDeleteExecutor.deleteIds(ids, bookStore::deleteAllByIds, this::forget);
+    }
+
+    // DELETE /books?author=&minPrice=&maxPrice=
+    public long deleteBooksMatching(String author, Integer minPrice, Integer maxPrice) {
+        return bulkDeleteExecutor.deleteMatching(
+                (after, limit) -> bookStore.findIds(after, author, minPrice, maxPrice, limit),
+                bookStore::deleteAllByIds, this::forget);
+    }
+
+    private void forget(List<Long> ids) {
+        for (long id : ids) {
+            bookCache.markMissing(id);
+            searchIndex.remove(id);
+            statistics.remove(id);
+        }
+    }
+
 }
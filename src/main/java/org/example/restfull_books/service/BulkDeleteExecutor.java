@@ -0,0 +1,70 @@
+package org.example.restfull_books.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+// Массовое удаление без загрузки сущностей: DELETE ... WHERE id IN (...) порциями по chunk-size id,
+// каждая порция — своя короткая транзакция, поэтому блокировки не держатся на всю операцию
+@Component
+public class BulkDeleteExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    public BulkDeleteExecutor(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Удаление по списку id; onDeleted получает id каждой закоммиченной порции (для кэша и индексов)
+    public long deleteIds(Collection<Long> ids, ToIntFunction<List<Long>> deleteChunk, Consumer<List<Long>> onDeleted) {
+        List<Long> sorted = ids.stream().distinct().sorted().toList(); // одинаковый порядок блокировок у параллельных запросов
+        long deleted = 0;
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            List<Long> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+            deleted += transactionTemplate.execute(status -> deleteChunk.applyAsInt(chunk));
+            onDeleted.accept(chunk);
+        }
+        return deleted;
+    }
+
+    // Удаление по условию: nextIds(after, limit) выбирает только id подходящих строк по возрастанию (keyset),
+    // затем они удаляются одним DELETE — в той же транзакции, что и выборка
+    public long deleteMatching(BiFunction<Long, Limit, List<Long>> nextIds, ToIntFunction<List<Long>> deleteChunk,
+                               Consumer<List<Long>> onDeleted) {
+        long deleted = 0;
+        long after = 0;
+        while (true) {
+            long cursor = after;
+            long[] count = new long[1];
+            List<Long> chunk = transactionTemplate.execute(status -> {
+                List<Long> ids = nextIds.apply(cursor, Limit.of(chunkSize));
+                if (!ids.isEmpty()) {
+                    count[0] = deleteChunk.applyAsInt(ids);
+                }
+                return ids;
+            });
+            if (chunk.isEmpty()) {
+                return deleted;
+            }
+            deleted += count[0];
+            onDeleted.accept(chunk);
+            if (chunk.size() < chunkSize) {
+                return deleted;
+            }
+            after = chunk.get(chunk.size() - 1);
+        }
+    }
+}
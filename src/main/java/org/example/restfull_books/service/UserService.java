@@ -1,13 +1,27 @@
 package org.example.restfull_books.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.restfull_books.cache.EntityCache;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.KeysetPage;
 import org.example.restfull_books.entity.User;
 import org.example.restfull_books.exception.CustomGatewayException;
 import org.example.restfull_books.exception.CustomNewNotFoundException;
+import org.example.restfull_books.exception.PreconditionFailedException;
+import org.example.restfull_books.patch.MergePatchExecutor;
 import org.example.restfull_books.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
 
 
 @Service
@@ -16,64 +30,164 @@ public class UserService {
     @Autowired //внедрение зависимости
     private UserRepository userRepository;
 
-    // POST
+    @Autowired
+    private BatchInsertExecutor batchInsertExecutor;
+
+    @Autowired
+    private BulkDeleteExecutor bulkDeleteExecutor;
+
+    @Autowired
+    private MergePatchExecutor mergePatchExecutor;
+
+    @Autowired
+    private EntityCache<User> userCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // POST. Ошибки не оборачиваются: их один раз разбирает GlobalExceptionHandler
     public User save(User user) {
-        try {
-            return userRepository.save(user);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to save user: " + e.getMessage(), e);
-        }
+        User saved = userRepository.save(user);
+        userCache.put(saved.getId(), saved);
+        return saved;
+    }
+
+    // POST /users/batch
+    public List<BatchItemResult> saveAll(List<User> users) {
+        return saveAll(users, index -> { });
+    }
+
+    // Импорт: committed пишет контрольную точку в транзакции каждой порции
+    public List<BatchItemResult> saveAll(List<User> users, IntConsumer committed) {
+        List<BatchItemResult> results = batchInsertExecutor.insertAll(users, userRepository, User::getId, user -> {
+            user.setId(0);
+            user.setVersion(null);
+        }, committed);
+        // Новые id могли быть закэшированы как отсутствующие до вставки
+        results.stream()
+                .filter(result -> result.getId() != null)
+                .forEach(result -> userCache.invalidate(result.getId()));
+        return results;
     }
 
     // GET
     public User getByUserId(Long id) {
-        return userRepository.findById(id)
+        return userCache.get(id, userRepository::findById)
                 .orElseThrow(() -> new CustomNewNotFoundException("Not Found"));
     }
 
-    // DELETE
-    public User deleteUserById(Long id) {
-        try {
-            if (id == 1000L) {
-                throw new CustomGatewayException("Simulated external service error for testing purposes");
-            }
-            User user = getByUserId(id);
-            userRepository.delete(user);
-            return user; // Возвращаем удаленного пользователя
-        } catch (CustomNewNotFoundException e) {
-            throw e; // Пропускаем исключение "Not Found" и передаем его дальше
-        } catch (CustomGatewayException e) {
-            throw e; // Пропускаем исключение "Bad Gateway"
-        } catch (Exception e) {
-            // Выбрасываем RuntimeException для других ошибок, если они не обработаны ранее
-            throw new RuntimeException("Failed to delete user: " + e.getMessage(), e);
+    // Текущая версия пользователя без загрузки сущности (If-None-Match): из кэша, если пользователь там есть
+    public long getUserVersion(Long id) {
+        return userCache.getIfPresent(id).map(User::getVersion)
+                .or(() -> userRepository.findVersionById(id))
+                .orElseThrow(() -> new CustomNewNotFoundException("Not Found"));
+    }
+
+    // GET /users?after=&limit=
+    @Transactional(readOnly = true)
+    public KeysetPage<User> getPage(long after, int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<User> rows = userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, User::getId);
+    }
+
+    // GET /users/export: строки читаются курсором и сразу отдаются в sink,
+    // после записи сущность отсоединяется от контекста, поэтому куча не растёт с размером таблицы
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<User> sink) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            users.forEach(user -> {
+                sink.accept(user);
+                entityManager.detach(user);
+            });
         }
     }
 
-    // PUT
+    // DELETE. Один DELETE по id; что пользователя нет, узнаём по числу удалённых строк
+    public void deleteUserById(Long id) {
+        if (id == 1000L) {
+            throw new CustomGatewayException("Simulated external service error for testing purposes");
+        }
+        if (userRepository.deleteOne(id) == 0) {
+            throw new CustomNewNotFoundException("Not Found");
+        }
+        userCache.markMissing(id);
+    }
+
+    // DELETE /users с телом [id, ...]
+    public long deleteUsersByIds(Collection<Long> ids) {
+        return bulkDeleteExecutor.deleteIds(ids, userRepository::deleteAllByIds, this::forget);
+    }
+
+    // DELETE /users?lastName=
+    public long deleteUsersByLastName(String lastName) {
+        return bulkDeleteExecutor.deleteMatching(
+                (after, limit) -> userRepository.findIdsByLastName(after, lastName, limit),
+                userRepository::deleteAllByIds, this::forget);
+    }
+
+    private void forget(List<Long> ids) {
+        ids.forEach(userCache::markMissing);
+    }
+
+    // PUT. user.version — версия из If-Match или null, если клиент её не передал (тогда последняя запись выигрывает).
+    // Один UPDATE всех полей, новая версия приходит тем же запросом; 404/412 — по числу затронутых строк
     public User updateUser(User user) {
-        if (!userRepository.existsById(user.getId())) {
-            throw new CustomNewNotFoundException("User not found");
+        Long newVersion = mergePatchExecutor.replace(user, user.getId(), user.getVersion());
+        if (newVersion == null) {
+            Long currentVersion = userRepository.findVersionById(user.getId())
+                    .orElseThrow(() -> new CustomNewNotFoundException("User not found"));
+            throw new PreconditionFailedException("User version is " + currentVersion + ", not " + user.getVersion());
         }
-        return userRepository.save(user); // Сохраняем изменения
+        user.setVersion(newVersion);
+        userCache.put(user.getId(), user);
+        return user;
+    }
+
+    // PUT ?upsert=true: один MERGE — обновить или создать пользователя с этим id. Версия 0 у результата — создан.
+    // id задаёт клиент: новый id забирается у users_seq; id из уже выданного ей диапазона — 409
+    public User upsertUser(User user) {
+        Long newVersion = mergePatchExecutor.upsert(user, user.getId(), user.getVersion());
+        if (newVersion == null) {
+            // MERGE ничего не сделал: задан If-Match, а версия другая или пользователя нет
+            String current = userRepository.findVersionById(user.getId()).map(String::valueOf).orElse("absent");
+            throw new PreconditionFailedException("User version is " + current + ", not " + user.getVersion());
+        }
+        user.setVersion(newVersion);
+        userCache.put(user.getId(), user);
+        return user;
     }
 
     //PATCH
     public User updatePartial(Long id, Map<String, Object> updates) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new CustomNewNotFoundException("User not found"));
-
-        updates.forEach((key, value) -> {
-            if (value != null) {
-                switch (key) {
-                    case "firstName" -> user.setFirstName((String) value);
-                    case "lastName" -> user.setLastName((String) value);
-                    default -> throw new RuntimeException("Invalid field: " + key);
+        return updatePartial(id, updates, null);
+    }
 
-                }
-            }
-        });
+    // expectedVersion — версия из If-Match или null. updates — JSON Merge Patch: UPDATE только этих полей,
+    // без предварительного SELECT; пользователь читается уже после обновления, для ответа
+    @Transactional
+    public User updatePartial(Long id, Map<String, Object> updates, Long expectedVersion) {
+        if (!mergePatchExecutor.update(User.class, id, updates, expectedVersion)) {
+            // UPDATE не затронул строк: выясняем, нет пользователя или версия другая
+            Long currentVersion = userRepository.findVersionById(id)
+                    .orElseThrow(() -> new CustomNewNotFoundException("User not found"));
+            throw new PreconditionFailedException("User version is " + currentVersion + ", not " + expectedVersion);
+        }
+        User saved = userRepository.findById(id)
+                .orElseThrow(() -> new CustomNewNotFoundException("User not found"));
+        if (updates.isEmpty() && expectedVersion != null && !expectedVersion.equals(saved.getVersion())) {
+            throw new PreconditionFailedException("User version is " + saved.getVersion() + ", not " + expectedVersion);
+        }
+        userCache.put(saved.getId(), saved);
+        return saved;
+    }
 
-        return userRepository.save(user);
+    // PATCH /users: пакет патчей [{"id": 1, "version": 0, "firstName": "..."}, ...] без чтения пользователей
+    public List<BatchItemResult> updatePartialAll(List<Map<String, Object>> patches) {
+        List<BatchItemResult> results = mergePatchExecutor.updateAll(User.class, patches);
+        results.stream()
+                .filter(result -> result.getId() != null)
+                .forEach(result -> userCache.invalidate(result.getId()));
+        return results;
     }
 }
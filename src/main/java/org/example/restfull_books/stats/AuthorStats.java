@@ -0,0 +1,13 @@
+package org.example.restfull_books.stats;
+
+import lombok.Value;
+
+// GET /books/stats/authors/{author}
+@Value
+public class AuthorStats {
+    String author;
+    long count;
+    int minPrice;
+    int maxPrice;
+    double avgPrice;
+}
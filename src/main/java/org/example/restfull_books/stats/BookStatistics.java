@@ -0,0 +1,198 @@
+package org.example.restfull_books.stats;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.util.LongObjectHashMap;
+import org.example.restfull_books.util.Tombstones;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Агрегаты по цене для GET /books/stats: всего и по каждому автору — число книг, min/max/среднее,
+// плюс гистограмма цен с шагом app.stats.price-bucket. Обновляются на каждой записи BookService вместо GROUP BY.
+// Помним автора и цену каждой книги (id -> Entry): удаление по id и смена цены или автора
+// сначала вычитают старый вклад книги, потом добавляют новый. Вместе с ценой помним @Version: опоздавшая запись
+// старой версии не откатывает вклад, а запись вскоре после удаления не возвращает удалённую книгу в агрегаты
+@Component
+public class BookStatistics {
+
+    static final Duration TOMBSTONE_TTL = Duration.ofMinutes(1);
+
+    private record Entry(String author, int price, long version) {
+
+        boolean sameContribution(Entry other) {
+            return price == other.price && Objects.equals(author, other.author);
+        }
+    }
+
+    // Вклад множества книг: min/max — первый и последний ключ мультимножества цен, O(log n)
+    private static final class Summary {
+        long count;
+        long sum;
+        final TreeMap<Integer, Integer> prices = new TreeMap<>();
+
+        void add(int price) {
+            count++;
+            sum += price;
+            prices.merge(price, 1, Integer::sum);
+        }
+
+        void remove(int price) {
+            count--;
+            sum -= price;
+            prices.computeIfPresent(price, (key, n) -> n == 1 ? null : n - 1);
+        }
+    }
+
+    private final int bucketWidth;
+    private final LongObjectHashMap<Entry> books = new LongObjectHashMap<>();
+    private final Summary total = new Summary();
+    private final Map<String, Summary> byAuthor = new HashMap<>();
+    private final TreeMap<Integer, Long> histogram = new TreeMap<>();   // начало корзины -> число книг
+    private final Tombstones removed;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public BookStatistics(@Value("${app.stats.price-bucket:100}") int bucketWidth) {
+        this(bucketWidth, new Tombstones(TOMBSTONE_TTL));
+    }
+
+    BookStatistics(int bucketWidth, Tombstones removed) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("app.stats.price-bucket must be positive: " + bucketWidth);
+        }
+        this.bucketWidth = bucketWidth;
+        this.removed = removed;
+    }
+
+    // Новая книга или новые автор/цена существующей
+    public void record(Book book) {
+        Entry entry = new Entry(book.getAuthor(), book.getPrice(), book.getVersion() == null ? 0 : book.getVersion());
+        lock.writeLock().lock();
+        try {
+            Entry previous = books.get(book.getId());
+            if (previous != null && previous.version() > entry.version() || removed.contains(book.getId())) {
+                return;
+            }
+            books.put(book.getId(), entry);
+            if (previous != null) {
+                if (previous.sameContribution(entry)) {
+                    return;
+                }
+                subtract(previous);
+            }
+            add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = books.remove(id);
+            if (previous != null) {
+                subtract(previous);
+            }
+            removed.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Книга с этим id создана заново после удаления
+    public void revive(long id) {
+        lock.writeLock().lock();
+        try {
+            removed.revive(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            books.clear();
+            total.count = 0;
+            total.sum = 0;
+            total.prices.clear();
+            byAuthor.clear();
+            histogram.clear();
+            removed.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Чтение: O(log n) на min/max плюс проход по непустым корзинам гистограммы
+    public BookStats total() {
+        lock.readLock().lock();
+        try {
+            List<BookStats.Bucket> buckets = new ArrayList<>(histogram.size());
+            histogram.forEach((from, count) -> buckets.add(new BookStats.Bucket(from, from + bucketWidth, count)));
+            return new BookStats(total.count, min(total), max(total), average(total), byAuthor.size(), buckets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null — книг этого автора нет
+    public AuthorStats author(String author) {
+        lock.readLock().lock();
+        try {
+            Summary summary = byAuthor.get(author);
+            if (summary == null) {
+                return null;
+            }
+            return new AuthorStats(author, summary.count, min(summary), max(summary), average(summary));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Entry entry) {
+        total.add(entry.price());
+        if (entry.author() != null) {
+            byAuthor.computeIfAbsent(entry.author(), key -> new Summary()).add(entry.price());
+        }
+        histogram.merge(bucket(entry.price()), 1L, Long::sum);
+    }
+
+    private void subtract(Entry entry) {
+        total.remove(entry.price());
+        if (entry.author() != null) {
+            Summary summary = byAuthor.get(entry.author());
+            summary.remove(entry.price());
+            if (summary.count == 0) {
+                byAuthor.remove(entry.author());
+            }
+        }
+        histogram.computeIfPresent(bucket(entry.price()), (key, n) -> n == 1 ? null : n - 1);
+    }
+
+    // floorDiv: отрицательные цены попадают в корзину ниже нуля, а не в [0, width)
+    private int bucket(int price) {
+        return Math.floorDiv(price, bucketWidth) * bucketWidth;
+    }
+
+    private static Integer min(Summary summary) {
+        return summary.prices.isEmpty() ? null : summary.prices.firstKey();
+    }
+
+    private static Integer max(Summary summary) {
+        return summary.prices.isEmpty() ? null : summary.prices.lastKey();
+    }
+
+    private static Double average(Summary summary) {
+        return summary.count == 0 ? null : (double) summary.sum / summary.count;
+    }
+}
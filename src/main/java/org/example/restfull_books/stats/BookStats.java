@@ -0,0 +1,24 @@
+package org.example.restfull_books.stats;
+
+import lombok.Value;
+
+import java.util.List;
+
+// GET /books/stats: цены по всем книгам; minPrice, maxPrice и avgPrice — null, если книг нет.
+// histogram — только непустые корзины [from, to)
+@Value
+public class BookStats {
+    long count;
+    Integer minPrice;
+    Integer maxPrice;
+    Double avgPrice;
+    int authors;
+    List<Bucket> histogram;
+
+    @Value
+    public static class Bucket {
+        int from;
+        int to;
+        long count;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.restfull_books.store;
+
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+import org.springframework.data.domain.Limit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Хранилище книг за BookService. app.store.type: jpa (таблица books, по умолчанию)
+// или memory (все книги в памяти, запись в журнал на диске, см. MemoryBookStore).
+// Кэш, поисковый индекс и статистика остаются в BookService и одинаковы для обоих вариантов
+public interface BookStore {
+
+    // Новая книга: id и версия 0 записываются в переданный объект
+    Book insert(Book book);
+
+    // POST /books/batch: id каждой созданной книги записывается в её объект из списка
+    List<BatchItemResult> insertAll(List<Book> books);
+
+    // committed(индекс последней книги части) — как только часть пакета закоммичена; JpaBookStore вызывает его
+    // внутри транзакции части. Без транзакций (MemoryBookStore) — после записи всего пакета
+    default List<BatchItemResult> insertAll(List<Book> books, IntConsumer committed) {
+        List<BatchItemResult> results = insertAll(books);
+        if (!books.isEmpty()) {
+            committed.accept(books.size() - 1);
+        }
+        return results;
+    }
+
+    Optional<Book> findById(long id);
+
+    List<Book> findAllById(Collection<Long> ids);
+
+    Optional<Long> findVersionById(long id);
+
+    // PUT: новая версия или null — книги нет или версия не совпала с expectedVersion
+    Long replace(Book book, Long expectedVersion);
+
+    // PUT ?upsert=true: новая версия (0 — книга создана) или null — версия не совпала либо книги нет, а expectedVersion задан
+    Long upsert(Book book, Long expectedVersion);
+
+    // JSON Merge Patch: true — книга обновлена или патч пустой, false — книги нет или версия не совпала
+    boolean update(long id, Map<String, Object> patch, Long expectedVersion);
+
+    // PATCH /books/{id}: патч и перечитанная книга; empty — книги нет или версия не совпала.
+    // JpaBookStore делает оба шага одной транзакцией
+    default Optional<Book> updateAndFind(long id, Map<String, Object> patch, Long expectedVersion) {
+        return update(id, patch, expectedVersion) ? findById(id) : Optional.empty();
+    }
+
+    // Пакет патчей с обязательным "id" и необязательным "version" в каждом элементе
+    List<BatchItemResult> updateAll(List<Map<String, Object>> patches);
+
+    // Страницы keyset: порядок и условия как у запросов BookRepository
+    List<BookView> findPage(long after, Limit limit);
+
+    List<BookView> findPageByAuthor(String author, long after, int minPrice, int maxPrice, Limit limit);
+
+    List<BookView> findPageByPrice(int afterPrice, long after, int maxPrice, Limit limit);
+
+    // id подходящих книг по возрастанию — порции для массового удаления
+    List<Long> findIds(long after, String author, Integer minPrice, Integer maxPrice, Limit limit);
+
+    // Все книги по возрастанию id, без накопления в памяти
+    void forEach(Consumer<Book> action);
+
+    // Число удалённых книг: 0 — книги не было
+    int deleteOne(long id);
+
+    int deleteAllByIds(Collection<Long> ids);
+}
@@ -0,0 +1,150 @@
+package org.example.restfull_books.store;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.patch.MergePatchExecutor;
+import org.example.restfull_books.repository.BookRepository;
+import org.example.restfull_books.service.BatchInsertExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+// app.store.type=jpa: книги в таблице books. Вставки — JDBC-батчами порциями, PUT и PATCH — одним UPDATE/MERGE
+// без предварительного SELECT (MergePatchExecutor), страницы — запросами по индексам BookRepository.
+// Чтения — в транзакциях только на чтение: с app.datasource.replicas они уходят на реплики
+public class JpaBookStore implements BookStore {
+
+    private final BookRepository bookRepository;
+    private final BatchInsertExecutor batchInsertExecutor;
+    private final MergePatchExecutor mergePatchExecutor;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public JpaBookStore(BookRepository bookRepository, BatchInsertExecutor batchInsertExecutor,
+                        MergePatchExecutor mergePatchExecutor) {
+        this.bookRepository = bookRepository;
+        this.batchInsertExecutor = batchInsertExecutor;
+        this.mergePatchExecutor = mergePatchExecutor;
+    }
+
+    @Override
+    public Book insert(Book book) {
+        book.setVersion(null); // null — INSERT, а не UPDATE
+        return bookRepository.save(book);
+    }
+
+    @Override
+    public List<BatchItemResult> insertAll(List<Book> books) {
+        return insertAll(books, index -> { });
+    }
+
+    @Override
+    public List<BatchItemResult> insertAll(List<Book> books, IntConsumer committed) {
+        return batchInsertExecutor.insertAll(books, bookRepository, Book::getId, book -> {
+            book.setId(0);
+            book.setVersion(null);
+        }, committed);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Book> findById(long id) {
+        return bookRepository.findById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> findAllById(Collection<Long> ids) {
+        return bookRepository.findAllById(ids);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersionById(long id) {
+        return bookRepository.findVersionById(id);
+    }
+
+    @Override
+    public Long replace(Book book, Long expectedVersion) {
+        return mergePatchExecutor.replace(book, book.getId(), expectedVersion);
+    }
+
+    @Override
+    public Long upsert(Book book, Long expectedVersion) {
+        return mergePatchExecutor.upsert(book, book.getId(), expectedVersion);
+    }
+
+    @Override
+    public boolean update(long id, Map<String, Object> patch, Long expectedVersion) {
+        return mergePatchExecutor.update(Book.class, id, patch, expectedVersion);
+    }
+
+    // UPDATE и SELECT обновлённой строки — одна транзакция: книга читается такой, какой её сделал этот патч
+    @Override
+    @Transactional
+    public Optional<Book> updateAndFind(long id, Map<String, Object> patch, Long expectedVersion) {
+        return BookStore.super.updateAndFind(id, patch, expectedVersion);
+    }
+
+    @Override
+    public List<BatchItemResult> updateAll(List<Map<String, Object>> patches) {
+        return mergePatchExecutor.updateAll(Book.class, patches);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookView> findPage(long after, Limit limit) {
+        return bookRepository.findPage(after, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookView> findPageByAuthor(String author, long after, int minPrice, int maxPrice, Limit limit) {
+        return bookRepository.findPageByAuthor(author, after, minPrice, maxPrice, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookView> findPageByPrice(int afterPrice, long after, int maxPrice, Limit limit) {
+        return bookRepository.findPageByPrice(afterPrice, after, maxPrice, limit);
+    }
+
+    @Override
+    public List<Long> findIds(long after, String author, Integer minPrice, Integer maxPrice, Limit limit) {
+        return bookRepository.findIds(after, author, minPrice, maxPrice, limit);
+    }
+
+    // Строки читаются курсором и сразу отдаются в action, после чего сущность отсоединяется от контекста,
+    // поэтому куча не растёт с размером таблицы
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<Book> action) {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            books.forEach(book -> {
+                action.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+
+    @Override
+    public int deleteOne(long id) {
+        return bookRepository.deleteOne(id);
+    }
+
+    @Override
+    public int deleteAllByIds(Collection<Long> ids) {
+        return bookRepository.deleteAllByIds(ids);
+    }
+}
@@ -0,0 +1,624 @@
+package org.example.restfull_books.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.InvalidPatchException;
+import org.example.restfull_books.util.LongObjectHashMap;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// app.store.type=memory: все книги в памяти, БД для них не нужна.
+// Книга по id — из хэш-таблицы long -> запись, читается без блокировки (оптимистичное чтение StampedLock);
+// страницы — из упорядоченных индексов ConcurrentSkipListMap по id, (author, id) и (price, id).
+// Записи неизменяемы: изменение книги заменяет запись, поэтому читатель никогда не видит её наполовину обновлённой.
+// Каждое изменение сначала дописывается в журнал (wal-N.log), потом применяется в памяти — под одной блокировкой,
+// в одном порядке; ответ уходит после fsync, общего для всех записей, успевших попасть в журнал (group commit).
+// Когда журнал перерастает snapshot-size, в фоне пишется снимок (snapshot-N.bin) и начинается новое поколение журнала;
+// при старте читается последний целый снимок и журналы его поколения и следующих
+@Slf4j
+public class MemoryBookStore implements BookStore, AutoCloseable {
+
+    private static final Pattern WAL_FILE = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    private record AuthorKey(String author, long id) implements Comparable<AuthorKey> {
+        @Override
+        public int compareTo(AuthorKey other) {
+            int byAuthor = author.compareTo(other.author);
+            return byAuthor != 0 ? byAuthor : Long.compare(id, other.id);
+        }
+    }
+
+    private record PriceKey(int price, long id) implements Comparable<PriceKey> {
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Integer.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(id, other.id);
+        }
+    }
+
+    // Проверенный патч: какие поля заменить
+    private record BookPatch(boolean setTitle, String title, Integer price, boolean setAuthor, String author) {
+        StoredBook apply(StoredBook book) {
+            return new StoredBook(book.id(), setTitle ? title : book.title(), price != null ? price : book.price(),
+                    setAuthor ? author : book.author(), book.version() + 1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Mutation<T> {
+        T apply(WriteAheadLog log) throws IOException;
+    }
+
+    private final Path dir;
+    private final boolean fsync;
+    private final long snapshotSize;
+
+    // Запись — под writeLock; чтение по id — без блокировки, если в это время никто не писал
+    private final StampedLock lock = new StampedLock();
+    private final LongObjectHashMap<StoredBook> books = new LongObjectHashMap<>();
+    // Индексы страниц: читаются без блокировки, меняются под writeLock
+    private final ConcurrentSkipListMap<Long, StoredBook> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<AuthorKey, StoredBook> byAuthor = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<PriceKey, StoredBook> byPrice = new ConcurrentSkipListMap<>();
+
+    private long lastId;            // под writeLock
+    private long generation;        // под writeLock
+    private WriteAheadLog wal;      // под writeLock; sync — уже без неё
+
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private volatile Thread snapshotWriter;
+
+    public MemoryBookStore(Path dir, boolean fsync, long snapshotSize) {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.snapshotSize = snapshotSize;
+        try {
+            Files.createDirectories(dir);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open book store in " + dir, e);
+        }
+    }
+
+    @Override
+    public Book insert(Book book) {
+        return mutate(log -> {
+            book.setId(++lastId);
+            book.setVersion(0L);
+            put(log, StoredBook.of(book, 0));
+            return book;
+        });
+    }
+
+    // Весь пакет — одна блокировка и один fsync. Пакет целиком или ничего, как транзакция в режиме jpa:
+    // сначала в журнал дописываются все книги, в память они попадают только потом; не дописалась одна —
+    // журнал обрезается до начала пакета, и ни одна книга пакета не создана
+    @Override
+    public List<BatchItemResult> insertAll(List<Book> books) {
+        return mutate(log -> {
+            long start = log.position();
+            List<StoredBook> stored = new ArrayList<>(books.size());
+            try {
+                for (Book book : books) {
+                    StoredBook next = new StoredBook(lastId + 1 + stored.size(), book.getTitle(), book.getPrice(),
+                            book.getAuthor(), 0);
+                    log.appendPut(next);
+                    stored.add(next);
+                }
+            } catch (IOException e) {
+                log.truncate(start);
+                throw e;
+            }
+            List<BatchItemResult> results = new ArrayList<>(books.size());
+            for (int i = 0; i < books.size(); i++) {
+                apply(stored.get(i));
+                books.get(i).setId(stored.get(i).id());
+                books.get(i).setVersion(0L);
+                results.add(BatchItemResult.created(i, stored.get(i).id()));
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public Optional<Book> findById(long id) {
+        return Optional.ofNullable(lookup(id)).map(StoredBook::toBook);
+    }
+
+    @Override
+    public List<Book> findAllById(Collection<Long> ids) {
+        List<Book> found = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            StoredBook book = lookup(id);
+            if (book != null) {
+                found.add(book.toBook());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<Long> findVersionById(long id) {
+        return Optional.ofNullable(lookup(id)).map(StoredBook::version);
+    }
+
+    @Override
+    public Long replace(Book book, Long expectedVersion) {
+        return mutate(log -> {
+            StoredBook current = books.get(book.getId());
+            if (current == null || expectedVersion != null && expectedVersion != current.version()) {
+                return null;
+            }
+            return put(log, StoredBook.of(book, current.version() + 1)).version();
+        });
+    }
+
+    @Override
+    public Long upsert(Book book, Long expectedVersion) {
+        return mutate(log -> {
+            StoredBook current = books.get(book.getId());
+            if (current == null) {
+                return expectedVersion == null ? put(log, StoredBook.of(book, 0)).version() : null;
+            }
+            if (expectedVersion != null && expectedVersion != current.version()) {
+                return null;
+            }
+            return put(log, StoredBook.of(book, current.version() + 1)).version();
+        });
+    }
+
+    @Override
+    public boolean update(long id, Map<String, Object> patch, Long expectedVersion) {
+        if (patch.isEmpty()) {
+            return true;
+        }
+        BookPatch checked = parse(patch);
+        return mutate(log -> {
+            StoredBook current = books.get(id);
+            if (current == null || expectedVersion != null && expectedVersion != current.version()) {
+                return false;
+            }
+            put(log, checked.apply(current));
+            return true;
+        });
+    }
+
+    // Ошибки в отдельных элементах — как у MergePatchExecutor.updateAll; все исправные патчи — один fsync
+    @Override
+    public List<BatchItemResult> updateAll(List<Map<String, Object>> patches) {
+        BatchItemResult[] results = new BatchItemResult[patches.size()];
+        long[] ids = new long[patches.size()];
+        Long[] versions = new Long[patches.size()];
+        BookPatch[] checked = new BookPatch[patches.size()];
+        for (int i = 0; i < patches.size(); i++) {
+            Map<String, Object> patch = new LinkedHashMap<>(patches.get(i));
+            try {
+                ids[i] = toLong(patch.remove("id"), "id");
+                Object version = patch.remove("version");
+                versions[i] = version == null ? null : toLong(version, "version");
+                if (patch.isEmpty()) {
+                    results[i] = BatchItemResult.failed(i, "Empty patch");
+                } else {
+                    checked[i] = parse(patch);
+                }
+            } catch (InvalidPatchException e) {
+                log.debug("Batch patch {} rejected: {}", i, e.getMessage());
+                results[i] = BatchItemResult.rejected(i, e);
+            }
+        }
+        mutate(log -> {
+            for (int i = 0; i < checked.length; i++) {
+                if (checked[i] == null) {
+                    continue;
+                }
+                StoredBook current = books.get(ids[i]);
+                if (current == null || versions[i] != null && versions[i] != current.version()) {
+                    results[i] = BatchItemResult.failed(i, "Not found or version mismatch");
+                } else {
+                    put(log, checked[i].apply(current));
+                    results[i] = BatchItemResult.updated(i, ids[i]);
+                }
+            }
+            return null;
+        });
+        return List.of(results);
+    }
+
+    @Override
+    public List<BookView> findPage(long after, Limit limit) {
+        List<BookView> page = new ArrayList<>();
+        for (StoredBook book : byId.tailMap(after, false).values()) {
+            if (page.size() >= limit.max()) {
+                break;
+            }
+            page.add(book.toView());
+        }
+        return page;
+    }
+
+    @Override
+    public List<BookView> findPageByAuthor(String author, long after, int minPrice, int maxPrice, Limit limit) {
+        List<BookView> page = new ArrayList<>();
+        if (author == null) {
+            return page;
+        }
+        for (Map.Entry<AuthorKey, StoredBook> entry : byAuthor.tailMap(new AuthorKey(author, after), false).entrySet()) {
+            if (page.size() >= limit.max() || !entry.getKey().author().equals(author)) {
+                break;
+            }
+            StoredBook book = entry.getValue();
+            if (book.price() >= minPrice && book.price() <= maxPrice) {
+                page.add(book.toView());
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<BookView> findPageByPrice(int afterPrice, long after, int maxPrice, Limit limit) {
+        List<BookView> page = new ArrayList<>();
+        for (Map.Entry<PriceKey, StoredBook> entry : byPrice.tailMap(new PriceKey(afterPrice, after), false).entrySet()) {
+            if (page.size() >= limit.max() || entry.getKey().price() > maxPrice) {
+                break;
+            }
+            page.add(entry.getValue().toView());
+        }
+        return page;
+    }
+
+    @Override
+    public List<Long> findIds(long after, String author, Integer minPrice, Integer maxPrice, Limit limit) {
+        int min = minPrice != null ? minPrice : Integer.MIN_VALUE;
+        int max = maxPrice != null ? maxPrice : Integer.MAX_VALUE;
+        List<Long> ids = new ArrayList<>();
+        Collection<StoredBook> candidates = author != null
+                ? byAuthor.subMap(new AuthorKey(author, after), false, new AuthorKey(author, Long.MAX_VALUE), true).values()
+                : byId.tailMap(after, false).values();
+        for (StoredBook book : candidates) {
+            if (ids.size() >= limit.max()) {
+                break;
+            }
+            if (book.price() >= min && book.price() <= max) {
+                ids.add(book.id());
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public void forEach(Consumer<Book> action) {
+        byId.values().forEach(book -> action.accept(book.toBook()));
+    }
+
+    @Override
+    public int deleteOne(long id) {
+        return mutate(log -> delete(log, id) ? 1 : 0);
+    }
+
+    @Override
+    public int deleteAllByIds(Collection<Long> ids) {
+        return mutate(log -> {
+            int deleted = 0;
+            for (long id : ids) {
+                if (delete(log, id)) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        });
+    }
+
+    // Снимок: под блокировкой только начинается новое поколение журнала и копируются ссылки на записи,
+    // файл пишется уже без неё. Журналы и снимки прошлых поколений удаляются, когда новый снимок целиком на диске
+    void snapshot() {
+        List<StoredBook> copy;
+        WriteAheadLog previous;
+        long snapshotGeneration;
+        long stamp = lock.writeLock();
+        try {
+            copy = new ArrayList<>(books.size());
+            books.forEachValue(copy::add);
+            previous = wal;
+            snapshotGeneration = generation + 1;
+            wal = WriteAheadLog.open(walFile(snapshotGeneration), 0);
+            generation = snapshotGeneration;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        try {
+            previous.close(); // fsync: ждущие в sync() старого журнала увидят, что их записи уже на диске
+            Path temporary = dir.resolve(snapshotFile(snapshotGeneration).getFileName() + ".tmp");
+            try (WriteAheadLog out = WriteAheadLog.open(temporary, 0)) {
+                for (StoredBook book : copy) {
+                    out.appendPut(book);
+                }
+                out.appendEnd(copy.size());
+            }
+            Files.move(temporary, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            deleteBefore(snapshotGeneration);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Остановка: снимок, чтобы следующий старт прочитал один файл вместо журнала
+    @Override
+    public void close() {
+        Thread writer = snapshotWriter;
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (wal.position() > 0) {
+            snapshot();
+        }
+        long stamp = lock.writeLock();
+        try {
+            wal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Чтение без блокировки: если запись шла одновременно (validate не прошёл, или таблица перестраивалась
+    // и чтение упало), повторяем под readLock
+    private StoredBook lookup(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                StoredBook book = books.get(id);
+                if (lock.validate(stamp)) {
+                    return book;
+                }
+            } catch (RuntimeException e) {
+                // несогласованное состояние таблицы во время resize
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return books.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Журнал и память меняются под одной блокировкой, fsync — после её снятия
+    private <T> T mutate(Mutation<T> mutation) {
+        WriteAheadLog log;
+        long position;
+        T result;
+        long stamp = lock.writeLock();
+        try {
+            log = wal;
+            result = mutation.apply(log);
+            position = log.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        try {
+            if (fsync) {
+                log.sync(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (position >= snapshotSize && snapshotting.compareAndSet(false, true)) {
+            snapshotWriter = Thread.ofPlatform().name("book-store-snapshot").start(() -> {
+                try {
+                    snapshot();
+                } catch (UncheckedIOException e) {
+                    // журнал цел, снимок повторится, когда он снова перерастёт snapshot-size
+                } finally {
+                    snapshotting.set(false);
+                }
+            });
+        }
+        return result;
+    }
+
+    private StoredBook put(WriteAheadLog log, StoredBook book) throws IOException {
+        log.appendPut(book);
+        apply(book);
+        return book;
+    }
+
+    private boolean delete(WriteAheadLog log, long id) throws IOException {
+        if (books.get(id) == null) {
+            return false;
+        }
+        log.appendDelete(id);
+        remove(id);
+        return true;
+    }
+
+    // Запись с тем же ключом индекса заменяется на месте; ключ сменился — старый удаляется до вставки нового,
+    // поэтому страница может на мгновение не увидеть меняющуюся книгу, но не увидит её дважды
+    private void apply(StoredBook book) {
+        StoredBook previous = books.put(book.id(), book);
+        byId.put(book.id(), book);
+        if (previous != null && previous.author() != null && !previous.author().equals(book.author())) {
+            byAuthor.remove(new AuthorKey(previous.author(), book.id()));
+        }
+        if (book.author() != null) {
+            byAuthor.put(new AuthorKey(book.author(), book.id()), book);
+        }
+        if (previous != null && previous.price() != book.price()) {
+            byPrice.remove(new PriceKey(previous.price(), book.id()));
+        }
+        byPrice.put(new PriceKey(book.price(), book.id()), book);
+        lastId = Math.max(lastId, book.id());
+    }
+
+    private void remove(long id) {
+        StoredBook previous = books.remove(id);
+        if (previous == null) {
+            return;
+        }
+        byId.remove(id);
+        if (previous.author() != null) {
+            byAuthor.remove(new AuthorKey(previous.author(), id));
+        }
+        byPrice.remove(new PriceKey(previous.price(), id));
+    }
+
+    // Последний целый снимок и журналы от его поколения; оборванный хвост последнего журнала отрезается
+    private void recover() throws IOException {
+        TreeMap<Long, Path> wals = files(WAL_FILE);
+        TreeMap<Long, Path> snapshots = files(SNAPSHOT_FILE);
+        long base = 0;
+        for (Map.Entry<Long, Path> snapshot : snapshots.descendingMap().entrySet()) {
+            if (loadSnapshot(snapshot.getValue())) {
+                base = snapshot.getKey();
+                break;
+            }
+            clear();
+        }
+        long last = Math.max(base, 1);
+        long valid = 0;
+        for (Map.Entry<Long, Path> entry : wals.tailMap(base, true).entrySet()) {
+            valid = WriteAheadLog.replay(entry.getValue(), (op, id, book) -> {
+                if (op == WriteAheadLog.PUT) {
+                    apply(book);
+                } else if (op == WriteAheadLog.DELETE) {
+                    remove(id);
+                }
+            });
+            last = entry.getKey();
+        }
+        generation = last;
+        wal = WriteAheadLog.open(walFile(last), valid);
+        deleteBefore(base);
+    }
+
+    // Снимок цел, только если дописан до записи END с числом книг
+    private boolean loadSnapshot(Path file) throws IOException {
+        long[] loaded = new long[1];
+        long[] expected = {-1};
+        WriteAheadLog.replay(file, (op, id, book) -> {
+            if (op == WriteAheadLog.PUT) {
+                apply(book);
+                loaded[0]++;
+            } else if (op == WriteAheadLog.END) {
+                expected[0] = id;
+            }
+        });
+        return expected[0] == loaded[0];
+    }
+
+    private void clear() {
+        books.clear();
+        byId.clear();
+        byAuthor.clear();
+        byPrice.clear();
+        lastId = 0;
+    }
+
+    private void deleteBefore(long keepGeneration) throws IOException {
+        for (Pattern pattern : List.of(WAL_FILE, SNAPSHOT_FILE)) {
+            for (Path file : files(pattern).headMap(keepGeneration, false).values()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> files(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.forEach(file -> {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    found.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return found;
+    }
+
+    private Path walFile(long generation) {
+        return dir.resolve(String.format("wal-%08d.log", generation));
+    }
+
+    private Path snapshotFile(long generation) {
+        return dir.resolve(String.format("snapshot-%08d.bin", generation));
+    }
+
+    // Поля и сообщения об ошибках — как у PATCH в режиме jpa (PatchMetadata)
+    private static BookPatch parse(Map<String, Object> patch) {
+        boolean setTitle = false;
+        boolean setAuthor = false;
+        String title = null;
+        String author = null;
+        Integer price = null;
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            switch (entry.getKey()) {
+                case "title" -> {
+                    setTitle = true;
+                    title = text("title", entry.getValue());
+                }
+                case "author" -> {
+                    setAuthor = true;
+                    author = text("author", entry.getValue());
+                }
+                case "price" -> price = price(entry.getValue());
+                default -> throw new InvalidPatchException("Invalid field: " + entry.getKey());
+            }
+        }
+        return new BookPatch(setTitle, title, price, setAuthor, author);
+    }
+
+    private static String text(String name, Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        throw new InvalidPatchException("Invalid value for " + name + ": " + value);
+    }
+
+    private static int price(Object value) {
+        if (value == null) {
+            throw new InvalidPatchException("Field price must not be null");
+        }
+        if ((value instanceof Integer || value instanceof Long) && ((Number) value).longValue() == ((Number) value).intValue()) {
+            return ((Number) value).intValue();
+        }
+        throw new InvalidPatchException("Invalid value for price: " + value);
+    }
+
+    private static long toLong(Object value, String name) {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        throw new InvalidPatchException("Field " + name + " must be an integer");
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.restfull_books.store;
+
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+
+// Неизменяемая запись книги в MemoryBookStore: её можно отдавать читателям без блокировки и копирования,
+// изменение книги — новая запись на месте старой
+record StoredBook(long id, String title, int price, String author, long version) {
+
+    static StoredBook of(Book book, long version) {
+        return new StoredBook(book.getId(), book.getTitle(), book.getPrice(), book.getAuthor(), version);
+    }
+
+    // Каждому читателю свой изменяемый объект: правка сущности вызывающим кодом не меняет хранилище
+    Book toBook() {
+        return new Book(id, title, price, author, version);
+    }
+
+    BookView toView() {
+        return new BookView(id, title, price, author);
+    }
+}
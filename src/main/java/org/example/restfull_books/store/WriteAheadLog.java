@@ -0,0 +1,240 @@
+package org.example.restfull_books.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Файл записей MemoryBookStore: журнал изменений и снимок пишутся в одном формате.
+// Запись: [длина тела][CRC32C тела][тело: операция, id, у PUT — версия, цена, название, автор].
+// Чтение останавливается на первой неполной или испорченной записи — это хвост, оборванный падением процесса.
+// append не потокобезопасен (вызывается под блокировкой записи хранилища), sync — потокобезопасен:
+// fsync делает первый пришедший поток за всех, кто успел дописать до него (group commit)
+final class WriteAheadLog implements AutoCloseable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte END = 3;   // последняя запись снимка, вместо id — число книг в нём
+
+    private static final int HEADER = 8;
+    private static final int MAX_BODY = 1 << 24;
+
+    // book — только у PUT
+    @FunctionalInterface
+    interface Replay {
+        void apply(byte op, long id, StoredBook book);
+    }
+
+    private final FileChannel channel;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(512);
+    private volatile long written;
+    private volatile long synced;
+    private volatile long syncs;
+
+    private WriteAheadLog(FileChannel channel, long length) {
+        this.channel = channel;
+        this.written = length;
+        this.synced = length;
+    }
+
+    // Открыть для дозаписи: всё после length (оборванный хвост) отрезается
+    static WriteAheadLog open(Path file, long length) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.truncate(length);
+        channel.position(length);
+        return new WriteAheadLog(channel, length);
+    }
+
+    // Прочитать записи по порядку; возвращает длину целой части файла
+    static long replay(Path file, Replay replay) throws IOException {
+        long valid = 0;
+        byte[] body = new byte[512];
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 9 || length > MAX_BODY) {
+                        return valid;
+                    }
+                    if (body.length < length) {
+                        body = new byte[length];
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return valid;
+                }
+                ByteBuffer record = ByteBuffer.wrap(body, 0, length);
+                byte op = record.get();
+                long id = record.getLong();
+                StoredBook book = null;
+                if (op == PUT) {
+                    long version = record.getLong();
+                    int price = record.getInt();
+                    book = new StoredBook(id, readString(record), price, readString(record), version);
+                }
+                replay.apply(op, id, book);
+                valid += HEADER + length;
+            }
+        }
+    }
+
+    long appendPut(StoredBook book) throws IOException {
+        byte[] title = bytes(book.title());
+        byte[] author = bytes(book.author());
+        int bodyLength = 1 + 8 + 8 + 4 + length(title) + length(author);
+        if (bodyLength > MAX_BODY) {
+            // replay остановился бы на такой записи и потерял бы все следующие
+            throw new IOException("Book " + book.id() + " is too large for the log: " + bodyLength + " bytes");
+        }
+        ByteBuffer body = begin(bodyLength);
+        body.put(PUT).putLong(book.id()).putLong(book.version()).putInt(book.price());
+        putString(body, title);
+        putString(body, author);
+        return finish();
+    }
+
+    long appendDelete(long id) throws IOException {
+        begin(1 + 8).put(DELETE).putLong(id);
+        return finish();
+    }
+
+    long appendEnd(long count) throws IOException {
+        begin(1 + 8).put(END).putLong(count);
+        return finish();
+    }
+
+    // Отрезать записи после position — пакет, дописанный не целиком. Под syncLock: fsync, начатый до отката,
+    // не должен потом объявить синхронизированными записи, которые займут это место
+    void truncate(long position) throws IOException {
+        syncLock.lock();
+        try {
+            channel.truncate(position);
+            channel.position(position);
+            written = position;
+            synced = Math.min(synced, position);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Конец последней дописанной записи
+    long position() {
+        return written;
+    }
+
+    long syncs() {
+        return syncs;
+    }
+
+    // Вернуться, когда на диске всё до position. Пока один поток ждёт fsync, другие дописывают следующие записи;
+    // их закроет следующий fsync, а не каждый свой
+    void sync(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (synced >= position) {
+                return;
+            }
+            long target = written;
+            channel.force(false);
+            syncs++;
+            synced = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            if (channel.isOpen()) {
+                long target = written;
+                channel.force(false);
+                synced = target;
+                channel.close();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private ByteBuffer begin(int bodyLength) {
+        if (buffer.capacity() < HEADER + bodyLength) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(HEADER + bodyLength) << 1);
+        }
+        buffer.clear();
+        buffer.putInt(bodyLength).putInt(0);
+        return buffer;
+    }
+
+    private long finish() throws IOException {
+        int end = buffer.position();
+        crc.reset();
+        crc.update(buffer.array(), HEADER, end - HEADER);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        long start = written;
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // Недописанная запись не должна остаться перед следующими: при чтении на ней журнал бы оборвался
+            channel.truncate(start);
+            channel.position(start);
+            throw e;
+        }
+        written = start + end;
+        return written;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    // Длина -1 — null
+    private static void putString(ByteBuffer body, byte[] value) {
+        if (value == null) {
+            body.putInt(-1);
+        } else {
+            body.putInt(value.length).put(value);
+        }
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.restfull_books.util;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.function.LongSupplier;
+
+// Недавно удалённые id для структур в памяти, которые BookService обновляет после записи в хранилище:
+// запись, опоздавшая к удалению (PATCH закоммичен раньше DELETE, а до индекса дошёл позже), не должна вернуть книгу.
+// Надгробие живёт ttl — дольше запись между хранилищем и индексом не задерживается.
+// Не потокобезопасна — синхронизация на стороне вызывающего
+public class Tombstones {
+
+    private record Removal(long id, long at) {
+    }
+
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+    private final LongObjectHashMap<Removal> removed = new LongObjectHashMap<>();
+    private final ArrayDeque<Removal> order = new ArrayDeque<>();   // от старых к новым
+
+    public Tombstones(Duration ttl) {
+        this(ttl, System::nanoTime);
+    }
+
+    public Tombstones(Duration ttl, LongSupplier ticker) {
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+    }
+
+    public void add(long id) {
+        long now = ticker.getAsLong();
+        expire(now);
+        Removal removal = new Removal(id, now);
+        removed.put(id, removal);
+        order.add(removal);
+    }
+
+    public boolean contains(long id) {
+        expire(ticker.getAsLong());
+        return removed.containsKey(id);
+    }
+
+    // Id создан заново (upsert в режиме memory) — прежнее удаление к нему больше не относится
+    public void revive(long id) {
+        removed.remove(id);
+    }
+
+    public void clear() {
+        removed.clear();
+        order.clear();
+    }
+
+    private void expire(long now) {
+        Removal oldest;
+        while ((oldest = order.peek()) != null && now - oldest.at() >= ttlNanos) {
+            order.poll();
+            // id могли удалить повторно: тогда в removed уже более новое надгробие
+            if (removed.get(oldest.id()) == oldest) {
+                removed.remove(oldest.id());
+            }
+        }
+    }
+}
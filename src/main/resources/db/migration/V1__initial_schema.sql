@@ -0,0 +1,41 @@
+-- Схема на момент перехода на версионные миграции (профиль fast-start): то же, что создавал ddl-auto: update.
+-- Базы, созданные через ddl-auto, Flyway принимает как уже имеющие эту версию (baseline-version: 1)
+
+create sequence books_seq start with 1 increment by 50;
+
+create sequence users_seq start with 1 increment by 50;
+
+create table books (
+    price integer not null,
+    id bigint not null,
+    version bigint default 0 not null,
+    author varchar(255),
+    title varchar(255),
+    primary key (id)
+);
+
+create table users (
+    id bigint not null,
+    version bigint default 0 not null,
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+);
+
+create table idempotency_keys (
+    status integer not null,
+    created_at_millis bigint not null,
+    request_hash varchar(64) not null,
+    idempotency_key varchar(100) not null,
+    location varchar(255),
+    body clob,
+    primary key (idempotency_key)
+);
+
+create index idx_books_author_id on books (author, id);
+
+create index idx_books_price_id on books (price, id);
+
+create index idx_books_title on books (title);
+
+create index idx_idempotency_keys_created on idempotency_keys (created_at_millis);
@@ -0,0 +1,11 @@
+-- Смещения участков импорта, записанные в транзакции вставки пакета (ImportCheckpointRecord)
+
+create table import_checkpoints (
+    split_index integer not null,
+    offset_bytes bigint not null,
+    checkpoint_key varchar(255) not null,
+    id varchar(300) not null,
+    primary key (id)
+);
+
+create index idx_import_checkpoints_key on import_checkpoints (checkpoint_key);
@@ -0,0 +1,61 @@
+package org.example.restfull_books.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = 200_000_000L;
+
+    @Test
+    void rejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, THRESHOLD, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(1_000_000L, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    // release() без замера освобождает место и не трогает предел
+    @Test
+    void releaseWithoutLatencyKeepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, THRESHOLD, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        limiter.release();
+
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    // Медленные ответы и 5xx уменьшают предел в разы, быстрые возвращают его понемногу, не выше максимума
+    @Test
+    void adaptsLimitToLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, THRESHOLD, 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(THRESHOLD + 1, false);
+        assertEquals(4, limiter.getLimit());
+        limiter.tryAcquire();
+        limiter.release(1_000_000L, true);
+        assertEquals(2, limiter.getLimit());
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+            limiter.release(THRESHOLD + 1, false);
+        }
+        assertEquals(1, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(1_000_000L, false);
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
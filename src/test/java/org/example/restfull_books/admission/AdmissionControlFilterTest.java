@@ -0,0 +1,133 @@
+package org.example.restfull_books.admission;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.restfull_books.exception.DomainException;
+import org.example.restfull_books.exception.ServiceUnavailableException;
+import org.example.restfull_books.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterTest {
+
+    // Вместо GlobalExceptionHandler: запоминает отказ и выставляет его статус
+    private final List<Exception> rejections = new ArrayList<>();
+    private final HandlerExceptionResolver resolver = (request, response, handler, ex) -> {
+        rejections.add(ex);
+        response.setStatus(((DomainException) ex).status().value());
+        return new ModelAndView();
+    };
+
+    private final AdaptiveConcurrencyLimiter readConcurrency = new AdaptiveConcurrencyLimiter(1, 1, 200_000_000L, 0.9);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(
+            new AdmissionControlFilter.Budget(new ClientRateLimiter(1000, 1000, 100), readConcurrency),
+            new AdmissionControlFilter.Budget(new ClientRateLimiter(1, 1, 100), new AdaptiveConcurrencyLimiter(1, 5, 200_000_000L, 0.9)),
+            new ClientKeyResolver("X-Client-Id"), resolver);
+
+    private MockHttpServletResponse perform(String method, String uri, String client, Runnable handler) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                handler.run();
+            }
+        }));
+        return response;
+    }
+
+    // Ведро записи одно на клиента и не тратит бюджет чтения
+    @Test
+    void rateLimitsWritesPerClient() throws Exception {
+        assertEquals(200, perform("POST", "/books/new", "a", () -> { }).getStatus());
+        assertEquals(429, perform("POST", "/books/new", "a", () -> { }).getStatus());
+        assertEquals(200, perform("POST", "/books/new", "b", () -> { }).getStatus());
+        assertEquals(200, perform("GET", "/books/1", "a", () -> { }).getStatus());
+
+        TooManyRequestsException rejection = (TooManyRequestsException) rejections.get(0);
+        assertEquals(1L, rejection.retryAfterSeconds());
+    }
+
+    // Пока чтение на пределе одновременных запросов, следующее получает 503; запись идёт по своему пределу
+    @Test
+    void shedsReadsAboveConcurrencyLimit() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slow = Thread.ofPlatform().start(() -> {
+            try {
+                perform("GET", "/books", "a", () -> {
+                    entered.countDown();
+                    await(release);
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        assertEquals(503, perform("GET", "/books/1", "b", () -> { }).getStatus());
+        assertInstanceOf(ServiceUnavailableException.class, rejections.get(0));
+        assertEquals(200, perform("POST", "/users/new", "b", () -> { }).getStatus());
+
+        release.countDown();
+        slow.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(200, perform("GET", "/books/1", "b", () -> { }).getStatus());
+        assertEquals(0, readConcurrency.getInFlight());
+    }
+
+    // Выгрузка StreamingResponseBody (асинхронный запрос) держит место до конца, но предел по её длительности не снижается
+    @Test
+    void streamingResponseKeepsSlotButNotLatencySignal() throws Exception {
+        AdaptiveConcurrencyLimiter concurrency = new AdaptiveConcurrencyLimiter(1, 4, 0L, 0.5);
+        AdmissionControlFilter streaming = new AdmissionControlFilter(
+                new AdmissionControlFilter.Budget(new ClientRateLimiter(1000, 1000, 100), concurrency),
+                new AdmissionControlFilter.Budget(new ClientRateLimiter(1000, 1000, 100), concurrency),
+                new ClientKeyResolver(""), resolver);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books/export");
+        request.setAsyncSupported(true);
+        streaming.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        }));
+
+        assertEquals(1, concurrency.getInFlight());
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, concurrency.getInFlight());
+        assertEquals(4, concurrency.getLimit());
+    }
+
+    // Actuator и прочее мимо контроллеров книг и пользователей не ограничиваются
+    @Test
+    void skipsOtherPaths() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform("POST", "/actuator/health", "a", () -> { }).getStatus());
+        }
+        assertTrue(rejections.isEmpty());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
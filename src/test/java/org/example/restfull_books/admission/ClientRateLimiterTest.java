@@ -0,0 +1,53 @@
+package org.example.restfull_books.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    // 10 запросов в секунду, запас 3: три подряд проходят, четвёртый ждёт 100 мс
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 3, 100, now::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(100_000_000L, limiter.tryAcquire("a"));
+
+        now.addAndGet(100_000_000L);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    // У каждого клиента своё ведро
+    @Test
+    void keepsSeparateBucketPerClient() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 100, now::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    // Карта полна: полные (простаивающие) вёдра удаляются, активные остаются; новым клиентам — общее ведро
+    @Test
+    void boundsNumberOfClients() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 2, now::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertTrue(limiter.tryAcquire("d") > 0); // делит ведро с "c"
+        assertEquals(3, limiter.clients());
+
+        now.addAndGet(2_000_000_000L);
+        assertEquals(0, limiter.tryAcquire("e"));
+        assertEquals(1, limiter.clients());
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.restfull_books.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.exception.CustomNewNotFoundException;
+import org.example.restfull_books.exception.NotFoundException;
+import org.example.restfull_books.service.BookService;
+import org.example.restfull_books.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// app.cache.type=hibernate: чтения идут через кэш второго уровня и кэш запросов,
+// а каждый путь записи BookService/UserService (в том числе UPDATE и MERGE мимо Hibernate) должен их сбрасывать
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "app.cache.type=hibernate",
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+public class SecondLevelCacheCoherenceTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedReadIsServedFromSecondLevelCache() {
+        long id = bookService.save(new Book(0, "Белая гвардия", 400, "Булгаков")).getId();
+        bookService.getByBookId(id);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals("Белая гвардия", bookService.getByBookId(id).getTitle());
+        assertTrue(statistics.getDomainDataRegionStatistics("books").getHitCount() > 0);
+        assertEquals(statements, statistics.getPrepareStatementCount()); // в БД не ходили
+    }
+
+    @Test
+    void mergePatchIsVisibleAfterCachedRead() {
+        long id = bookService.save(new Book(0, "Собачье сердце", 300, "Булгаков")).getId();
+        long version = bookService.getByBookId(id).getVersion();
+
+        bookService.updatePartial(id, Map.of("price", 350), null);
+
+        Book book = bookService.getByBookId(id);
+        assertEquals(350, book.getPrice());
+        assertEquals(version + 1, book.getVersion());
+    }
+
+    @Test
+    void batchPatchIsVisibleAfterCachedRead() {
+        long id = bookService.save(new Book(0, "Роковые яйца", 200, "Булгаков")).getId();
+        bookService.getByBookId(id);
+
+        bookService.updatePartialAll(List.of(Map.of("id", id, "title", "Роковые яйца (1925)")));
+
+        assertEquals("Роковые яйца (1925)", bookService.getByBookId(id).getTitle());
+    }
+
+    @Test
+    void putAndUpsertAreVisibleAfterCachedRead() {
+        long id = bookService.save(new Book(0, "Бег", 100, "Булгаков")).getId();
+        bookService.getByBookId(id);
+
+        bookService.updateBook(new Book(id, "Бег", 150, "Булгаков", null));
+        assertEquals(150, bookService.getByBookId(id).getPrice());
+
+        bookService.upsertBook(new Book(id, "Бег", 175, "Булгаков", null));
+        assertEquals(175, bookService.getByBookId(id).getPrice());
+    }
+
+    @Test
+    void deletedBookIsNotServedFromCache() {
+        long single = bookService.save(new Book(0, "Театральный роман", 300, "Булгаков")).getId();
+        long bulk = bookService.save(new Book(0, "Морфий", 100, "Булгаков")).getId();
+        bookService.getByBookId(single);
+        bookService.getByBookId(bulk);
+
+        bookService.deleteBookById(single);
+        bookService.deleteBooksByIds(List.of(bulk));
+
+        assertThrows(NotFoundException.class, () -> bookService.getByBookId(single));
+        assertThrows(NotFoundException.class, () -> bookService.getByBookId(bulk));
+    }
+
+    @Test
+    void cachedQueryPageSeesUpdatesAndDeletes() {
+        long first = bookService.save(new Book(0, "Анна Каренина", 800, "Толстой")).getId();
+        long second = bookService.save(new Book(0, "Воскресение", 600, "Толстой")).getId();
+        bookService.getByAuthor("Толстой", 0, 50);
+        long hits = statistics.getQueryCacheHitCount();
+
+        assertEquals(List.of(800, 600), prices(bookService.getByAuthor("Толстой", 0, 50).getItems()));
+        assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+
+        // Страница из кэша запросов не должна пережить UPDATE мимо Hibernate
+        bookService.updatePartial(first, Map.of("price", 850), null);
+        assertEquals(List.of(850, 600), prices(bookService.getByAuthor("Толстой", 0, 50).getItems()));
+
+        bookService.deleteBookById(second);
+        assertEquals(List.of(850), prices(bookService.getByAuthor("Толстой", 0, 50).getItems()));
+    }
+
+    @Test
+    void userPatchAndDeleteAreCoherent() {
+        long id = userService.save(new User(0, "Михаил", "Булгаков")).getId();
+        userService.getByUserId(id);
+
+        userService.updatePartial(id, Map.of("firstName", "Михаил Афанасьевич"));
+        assertEquals("Михаил Афанасьевич", userService.getByUserId(id).getFirstName());
+
+        userService.deleteUserById(id);
+        assertThrows(CustomNewNotFoundException.class, () -> userService.getByUserId(id));
+    }
+
+    private static List<Integer> prices(List<BookView> books) {
+        return books.stream().map(BookView::getPrice).toList();
+    }
+}
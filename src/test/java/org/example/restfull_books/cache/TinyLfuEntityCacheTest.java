@@ -0,0 +1,205 @@
+package org.example.restfull_books.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TinyLfuEntityCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private TinyLfuEntityCache<String> newCache(int maximumSize) {
+        return new TinyLfuEntityCache<>(maximumSize, 1_000, 100, TinyLfuEntityCacheTest::versionOf, now::get);
+    }
+
+    // Версия значения — после '@': "title@3"; без неё 0
+    private static Long versionOf(String value) {
+        int at = value.indexOf('@');
+        return at < 0 ? 0L : Long.valueOf(value.substring(at + 1));
+    }
+
+    private Optional<String> load(long id) {
+        loads.incrementAndGet();
+        return id < 0 ? Optional.empty() : Optional.of("value-" + id);
+    }
+
+    @Test
+    void readThroughLoadsOnceUntilTtlExpires() {
+        TinyLfuEntityCache<String> cache = newCache(10);
+
+        assertEquals("value-1", cache.get(1, this::load).orElseThrow());
+        assertEquals("value-1", cache.get(1, this::load).orElseThrow());
+        assertEquals(1, loads.get());
+
+        // TTL истёк — снова идём в загрузчик
+        now.addAndGet(1_000);
+        cache.get(1, this::load);
+        assertEquals(2, loads.get());
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void missesAreCachedWithNegativeTtl() {
+        TinyLfuEntityCache<String> cache = newCache(10);
+
+        assertTrue(cache.get(-1, this::load).isEmpty());
+        assertTrue(cache.get(-1, this::load).isEmpty());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getNegativeHits());
+
+        // Отрицательная запись живёт меньше положительной
+        now.addAndGet(100);
+        cache.get(-1, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void putAndMarkMissingOverwriteEntries() {
+        TinyLfuEntityCache<String> cache = newCache(10);
+        cache.get(1, this::load);
+
+        cache.put(1, "updated");
+        assertEquals("updated", cache.get(1, this::load).orElseThrow());
+
+        cache.markMissing(1);
+        assertTrue(cache.get(1, this::load).isEmpty());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void frequentKeysSurviveScanOfOneHitKeys() {
+        TinyLfuEntityCache<String> cache = newCache(16);
+        // Популярные ключи 0..7: много обращений
+        for (int round = 0; round < 10; round++) {
+            for (long id = 0; id < 8; id++) {
+                cache.get(id, this::load);
+            }
+        }
+        // Поток однократных обращений к другим ключам не должен вымыть популярные
+        for (long id = 1_000; id < 1_200; id++) {
+            cache.get(id, this::load);
+        }
+
+        assertTrue(cache.stats().getSize() <= 16);
+        assertTrue(cache.stats().getEvictions() > 0);
+        int loadsBefore = loads.get();
+        for (long id = 0; id < 8; id++) {
+            cache.get(id, this::load);
+        }
+        assertEquals(loadsBefore, loads.get());
+    }
+
+    @Test
+    void reorderedPutsKeepNewestVersion() throws Exception {
+        TinyLfuEntityCache<String> cache = newCache(10);
+        cache.put(1, "title@3");
+        cache.put(1, "title@2");
+        assertEquals("title@3", cache.getIfPresent(1).orElseThrow());
+
+        // Несколько PATCH-ей одной книги завершаются в произвольном порядке: в кэше остаётся последняя версия
+        List<Integer> versions = new ArrayList<>();
+        for (int version = 4; version < 1_000; version++) {
+            versions.add(version);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> puts = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                List<Integer> order = new ArrayList<>(versions);
+                Collections.shuffle(order);
+                puts.add(executor.submit(() -> order.forEach(version -> cache.put(1, "title@" + version))));
+            }
+            for (Future<?> put : puts) {
+                put.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("title@999", cache.getIfPresent(1).orElseThrow());
+    }
+
+    @Test
+    void putAfterDeleteDoesNotResurrect() throws Exception {
+        TinyLfuEntityCache<String> cache = newCache(10);
+        cache.get(1, this::load);
+
+        // PATCH-и, закоммиченные до DELETE, кладут результат в кэш параллельно с удалением
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> puts = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                puts.add(executor.submit(() -> {
+                    start.await();
+                    for (int version = 1; version < 500; version++) {
+                        cache.put(1, "title@" + version);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            cache.markMissing(1);
+            for (Future<?> put : puts) {
+                put.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(cache.getIfPresent(1).isEmpty());
+        assertTrue(cache.get(1, this::load).isEmpty());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void loadStartedBeforeInvalidateIsNotCached() throws Exception {
+        TinyLfuEntityCache<String> cache = newCache(10);
+        cache.put(2, "title@1");
+        now.addAndGet(1_000); // запись 2 устарела — следующий get загружает
+
+        // Загрузки прочитали строки до пакетного PATCH, а кладут в кэш уже после invalidate
+        assertEquals("title@1", loadAround(cache, 1, "title@1", () -> cache.invalidate(1)));
+        assertEquals("title@1", loadAround(cache, 2, "title@1", () -> cache.invalidate(2)));
+        assertEquals("title@1", loadAround(cache, 3, "title@1", () -> cache.markMissing(3)));
+
+        assertEquals("title@2", cache.get(1, id -> Optional.of("title@2")).orElseThrow());
+        assertEquals("title@2", cache.get(2, id -> Optional.of("title@2")).orElseThrow());
+        assertTrue(cache.get(3, this::load).isEmpty());
+        assertEquals(0, loads.get());
+    }
+
+    // get с загрузчиком, который возвращает stale только после того, как отработает write
+    private String loadAround(TinyLfuEntityCache<String> cache, long id, String stale, Runnable write) throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        CompletableFuture<Optional<String>> reader = CompletableFuture.supplyAsync(() -> cache.get(id, key -> {
+            loading.countDown();
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(stale);
+        }));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        write.run();
+        written.countDown();
+        return reader.get(10, TimeUnit.SECONDS).orElseThrow();
+    }
+}
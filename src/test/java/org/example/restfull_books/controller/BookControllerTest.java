@@ -0,0 +1,392 @@
+package org.example.restfull_books.controller;
+
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.example.restfull_books.config.BinaryFormatsConfig;
+import org.example.restfull_books.config.IdempotencyConfig;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.dto.ImportStatus;
+import org.example.restfull_books.dto.IngestStatus;
+import org.example.restfull_books.dto.KeysetPage;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.NotFoundException;
+import org.example.restfull_books.exception.TooManyRequestsException;
+import org.example.restfull_books.idempotency.IdempotencyExecutor;
+import org.example.restfull_books.importer.BulkImporter;
+import org.example.restfull_books.service.BookIngestQueue;
+import org.example.restfull_books.service.BookService;
+import org.example.restfull_books.stats.AuthorStats;
+import org.example.restfull_books.stats.BookStats;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = BookController.class, properties = "app.batch.chunk-size=2")
+@AutoConfigureMockMvc
+@Import({BinaryFormatsConfig.class, IdempotencyConfig.class, IdempotencyExecutor.class})
+public class BookControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookService bookService;
+
+    // По умолчанию isEnabled() == false: POST /books/new пишет книгу синхронно
+    @MockBean
+    private BookIngestQueue ingestQueue;
+
+    @MockBean
+    private BulkImporter importer;
+
+    // 200 OK. Пакетная вставка книг JSON-массивом, ответ по каждому элементу
+    @Test
+    public void testBatchJsonArray() throws Exception {
+        String booksJson = """
+                [
+                    {"title": "Мастер и Маргарита", "price": 500, "author": "Булгаков"},
+                    {"title": "Белая гвардия", "price": 400, "author": "Булгаков"}
+                ]
+                """;
+
+        when(bookService.saveAll(Mockito.anyList()))
+                .thenReturn(List.of(BatchItemResult.created(0, 1L), BatchItemResult.created(1, 2L)));
+
+        mockMvc.perform(post("/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(booksJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    // 200 OK. Пакетная вставка книг в формате NDJSON, одна книга на строку: тело читается порциями
+    // по app.batch.chunk-size (здесь 2), индексы в ответе — позиции во всём потоке
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchNdjson() throws Exception {
+        String booksNdjson = """
+                {"title": "Мастер и Маргарита", "price": 500, "author": "Булгаков"}
+                {"title": "Белая гвардия", "price": 400, "author": "Булгаков"}
+                {"title": "Собачье сердце", "price": 300, "author": "Булгаков"}
+                """;
+
+        when(bookService.saveAll(Mockito.anyList()))
+                .thenReturn(List.of(BatchItemResult.created(0, 1L), BatchItemResult.failed(1, "constraint violation")))
+                .thenReturn(List.of(BatchItemResult.created(0, 3L)));
+
+        mockMvc.perform(post("/books/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(booksNdjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].error").value("constraint violation"))
+                .andExpect(jsonPath("$[2].index").value(2))
+                .andExpect(jsonPath("$[2].id").value(3));
+
+        // Три строки переданы в сервис двумя порциями: 2 + 1
+        ArgumentCaptor<List<Book>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bookService, Mockito.times(2)).saveAll(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+        assertEquals("Собачье сердце", captor.getAllValues().get(1).get(0).getTitle());
+    }
+
+    // 200 OK. Постраничный список книг: курсор after и фильтры передаются в сервис
+    @Test
+    public void testGetBooksPage() throws Exception {
+        List<BookView> books = List.of(new BookView(11L, "Белая гвардия", 400, "Булгаков"),
+                new BookView(12L, "Собачье сердце", 300, "Булгаков"));
+        when(bookService.getPage(10L, 2, "Булгаков", 100, null, null))
+                .thenReturn(new KeysetPage<>(books, 12L));
+
+        mockMvc.perform(get("/books")
+                        .param("after", "10")
+                        .param("limit", "2")
+                        .param("author", "Булгаков")
+                        .param("minPrice", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(11))
+                .andExpect(jsonPath("$.nextAfter").value(12));
+    }
+
+    // 200 OK. Потоковая выгрузка: каждая книга, переданная сервисом в sink, становится строкой NDJSON.
+    // Латиница, т.к. ответ NDJSON без charset MockMvc декодирует как ISO-8859-1
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Book> sink = invocation.getArgument(0);
+            sink.accept(new Book(1L, "The Master and Margarita", 500, "Bulgakov"));
+            sink.accept(new Book(2L, "War and Peace", 900, "Tolstoy"));
+            return null;
+        }).when(bookService).exportAll(Mockito.any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/books/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"id":1,"title":"The Master and Margarita","price":500,"author":"Bulgakov"}
+                        {"id":2,"title":"War and Peace","price":900,"author":"Tolstoy"}
+                        """));
+    }
+
+    // 200 OK. Массовое удаление по списку id в теле, в ответе — число удалённых строк
+    @Test
+    public void testDeleteBooksByIds() throws Exception {
+        when(bookService.deleteBooksByIds(List.of(1L, 2L, 3L))).thenReturn(2L);
+
+        mockMvc.perform(delete("/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2, 3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+    }
+
+    // 200 OK. Массовое удаление по фильтру автора и цены
+    @Test
+    public void testDeleteBooksByFilter() throws Exception {
+        when(bookService.deleteBooksMatching("Булгаков", null, 300)).thenReturn(5L);
+
+        mockMvc.perform(delete("/books")
+                        .param("author", "Булгаков")
+                        .param("maxPrice", "300"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(5));
+    }
+
+    // 400 Bad Request. Ни id, ни фильтра — удалять всю таблицу не даём
+    @Test
+    public void testDeleteBooksWithoutCriteria() throws Exception {
+        mockMvc.perform(delete("/books"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(bookService);
+    }
+
+    // 200 OK. JSON Merge Patch книги: версия из If-Match передаётся в сервис, в ответе новый ETag
+    @Test
+    public void testPatchBook() throws Exception {
+        Book patched = new Book(7L, "Белая гвардия", 450, "Булгаков", 3L);
+        when(bookService.updatePartial(7L, Map.of("price", 450), 2L)).thenReturn(patched);
+
+        mockMvc.perform(patch("/books/7")
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"2\"")
+                        .content("{\"price\": 450}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.price").value(450));
+    }
+
+    // 200 OK. Пакет патчей: результат по каждому элементу
+    @Test
+    public void testPatchBooksBatch() throws Exception {
+        when(bookService.updatePartialAll(Mockito.anyList()))
+                .thenReturn(List.of(BatchItemResult.updated(0, 1L), BatchItemResult.failed(1, "Invalid field: pages")));
+
+        mockMvc.perform(patch("/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\": 1, \"price\": 450}, {\"id\": 2, \"pages\": 300}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$[1].error").value("Invalid field: pages"));
+    }
+
+    // 404 Not Found. Ошибка сервиса превращается в application/problem+json с кодом
+    @Test
+    public void testGetMissingBookProblem() throws Exception {
+        when(bookService.getByBookId(42L)).thenThrow(new NotFoundException("Book not found"));
+
+        mockMvc.perform(get("/books/42"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.code").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.detail").value("Book not found"));
+    }
+
+    // 200 OK. Accept: application/x-jackson-smile — книга в бинарном Smile, тело читается SmileMapper-ом
+    @Test
+    public void testGetBookSmile() throws Exception {
+        when(bookService.getByBookId(7L)).thenReturn(new Book(7L, "Белая гвардия", 400, "Булгаков", 1L));
+
+        byte[] body = mockMvc.perform(get("/books/7").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Book book = new SmileMapper().readValue(body, Book.class);
+        assertEquals("Белая гвардия", book.getTitle());
+        assertEquals(400, book.getPrice());
+    }
+
+    // 200 OK. Книга в теле POST /books/new в формате Smile
+    @Test
+    public void testCreateBookSmile() throws Exception {
+        Book book = new Book(0L, "Собачье сердце", 300, "Булгаков");
+        when(bookService.save(Mockito.any(Book.class))).thenReturn(new Book(5L, "Собачье сердце", 300, "Булгаков"));
+
+        mockMvc.perform(post("/books/new")
+                        .contentType("application/x-jackson-smile")
+                        .content(new SmileMapper().writeValueAsBytes(book)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(5));
+
+        ArgumentCaptor<Book> captor = ArgumentCaptor.forClass(Book.class);
+        verify(bookService).save(captor.capture());
+        assertEquals("Собачье сердце", captor.getValue().getTitle());
+    }
+
+    // 200 OK. Повтор POST /books/new с тем же Idempotency-Key не создаёт вторую книгу
+    @Test
+    public void testCreateBookIdempotentReplay() throws Exception {
+        String bookJson = "{\"title\": \"Белая гвардия\", \"price\": 400, \"author\": \"Булгаков\"}";
+        when(bookService.save(Mockito.any(Book.class))).thenReturn(new Book(9L, "Белая гвардия", 400, "Булгаков"));
+
+        mockMvc.perform(post("/books/new")
+                        .header("Idempotency-Key", "create-book-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(9));
+        mockMvc.perform(post("/books/new")
+                        .header("Idempotency-Key", "create-book-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookJson))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(9))
+                .andExpect(jsonPath("$.title").value("Белая гвардия"));
+
+        verify(bookService, Mockito.times(1)).save(Mockito.any(Book.class));
+    }
+
+    // 202 Accepted. Отложенная запись: книга в очереди, в ответе trackingId и ссылка на статус
+    @Test
+    public void testCreateBookAsync() throws Exception {
+        when(ingestQueue.isEnabled()).thenReturn(true);
+        when(ingestQueue.submit(Mockito.any(Book.class))).thenReturn(IngestStatus.pending(7L));
+
+        mockMvc.perform(post("/books/new")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Белая гвардия\", \"price\": 400, \"author\": \"Булгаков\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/books/ingest/7"))
+                .andExpect(jsonPath("$.trackingId").value(7))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verify(bookService, Mockito.never()).save(Mockito.any(Book.class));
+    }
+
+    // 429 Too Many Requests. Очередь отложенной записи заполнена, клиенту подсказка Retry-After
+    @Test
+    public void testCreateBookAsyncQueueFull() throws Exception {
+        when(ingestQueue.isEnabled()).thenReturn(true);
+        when(ingestQueue.submit(Mockito.any(Book.class)))
+                .thenThrow(new TooManyRequestsException("Ingest queue is full", 1));
+
+        mockMvc.perform(post("/books/new")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Белая гвардия\", \"price\": 400, \"author\": \"Булгаков\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.code").value("TOO_MANY_REQUESTS"));
+    }
+
+    // 200 OK. Статус книги, записанной фоновым писателем
+    @Test
+    public void testGetIngestStatus() throws Exception {
+        when(ingestQueue.status(7L)).thenReturn(new IngestStatus(7L, "CREATED", 42L, null));
+
+        mockMvc.perform(get("/books/ingest/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CREATED"))
+                .andExpect(jsonPath("$.bookId").value(42));
+    }
+
+    // 200 OK. Статистика по всем книгам с гистограммой цен
+    @Test
+    public void testGetStats() throws Exception {
+        when(bookService.getStats()).thenReturn(new BookStats(3, 300, 500, 400.0, 1,
+                List.of(new BookStats.Bucket(300, 400, 1), new BookStats.Bucket(400, 500, 1), new BookStats.Bucket(500, 600, 1))));
+
+        mockMvc.perform(get("/books/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.avgPrice").value(400.0))
+                .andExpect(jsonPath("$.histogram[2].from").value(500));
+    }
+
+    // 200 OK. Статистика автора; имя с пробелом передаётся в пути
+    @Test
+    public void testGetAuthorStats() throws Exception {
+        when(bookService.getAuthorStats("Михаил Булгаков"))
+                .thenReturn(new AuthorStats("Михаил Булгаков", 2, 400, 500, 450.0));
+
+        mockMvc.perform(get("/books/stats/authors/{author}", "Михаил Булгаков"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.minPrice").value(400));
+    }
+
+    // 200 OK. Книги автора: курсор и лимит передаются в сервис, в ответе проекции без версии
+    @Test
+    public void testGetBooksByAuthor() throws Exception {
+        when(bookService.getByAuthor("Булгаков", 0L, 50))
+                .thenReturn(new KeysetPage<>(List.of(new BookView(3L, "Собачье сердце", 300, "Булгаков")), null));
+
+        mockMvc.perform(get("/books/by-author/Булгаков"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].title").value("Собачье сердце"))
+                .andExpect(jsonPath("$.items[0].version").doesNotExist())
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+    }
+
+    // 202 Accepted. Импорт файла из каталога импорта в фоне, ход — по Location
+    @Test
+    public void testImportBooksAccepted() throws Exception {
+        when(importer.startServerFile("books", "books.csv", null, true)).thenReturn(new ImportStatus(3L, "books",
+                "/data/import/books.csv", "csv", "RUNNING", false, 1000, 0, 0, 0, 0, 0, List.of(), null));
+
+        mockMvc.perform(post("/books/import").param("file", "books.csv"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/books/import/3"))
+                .andExpect(jsonPath("$.jobId").value(3))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+}
@@ -1,7 +1,14 @@
 package org.example.restfull_books.controller;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.example.restfull_books.config.BinaryFormatsConfig;
+import org.example.restfull_books.config.IdempotencyConfig;
+import org.example.restfull_books.dto.ImportStatus;
 import org.example.restfull_books.entity.User;
 import org.example.restfull_books.exception.CustomNewNotFoundException;
+import org.example.restfull_books.exception.PreconditionFailedException;
+import org.example.restfull_books.idempotency.IdempotencyExecutor;
+import org.example.restfull_books.importer.BulkImporter;
 import org.example.restfull_books.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -9,10 +16,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -20,6 +31,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(UserController.class)
 @AutoConfigureMockMvc
+@Import({BinaryFormatsConfig.class, IdempotencyConfig.class, IdempotencyExecutor.class})
 public class UserControllerTest {
 
     @Autowired
@@ -28,6 +40,9 @@ public class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private BulkImporter importer;
+
     // 201 Created Тест успешного создания пользователя POST-запрос
     @Test
     public void testCreateUserSuccess() throws Exception {
@@ -54,6 +69,50 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.lastName").value("Булгаков"));
     }
 
+    // 201 Created. Повтор POST /users/new с тем же Idempotency-Key: первый ответ без второго обращения к сервису
+    @Test
+    public void testCreateUserIdempotentReplay() throws Exception {
+        String userJson = """
+                {"firstName": "Михаил", "lastName": "Булгаков"}
+                """;
+        when(userService.save(Mockito.any(User.class)))
+                .thenReturn(new User(1L, "Михаил", "Булгаков"), new User(2L, "Михаил", "Булгаков"));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/users/new")
+                            .header("Idempotency-Key", "create-user-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(userJson))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.id").value(1));
+        }
+        mockMvc.perform(post("/users/new")
+                        .header("Idempotency-Key", "create-user-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson))
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        Mockito.verify(userService, Mockito.times(1)).save(Mockito.any(User.class));
+    }
+
+    // 422 Unprocessable Entity. Тот же Idempotency-Key с другим телом запроса
+    @Test
+    public void testCreateUserIdempotencyKeyReused() throws Exception {
+        when(userService.save(Mockito.any(User.class))).thenReturn(new User(1L, "Михаил", "Булгаков"));
+
+        mockMvc.perform(post("/users/new")
+                        .header("Idempotency-Key", "create-user-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Михаил\", \"lastName\": \"Булгаков\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/users/new")
+                        .header("Idempotency-Key", "create-user-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Лев\", \"lastName\": \"Толстой\"}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_KEY_REUSED"));
+    }
+
     // 200 OK тест внесение изменений в существующий пользователь, PUT-запрос
     @Test
     public void testPutUserSuccess() throws Exception {
@@ -88,7 +147,7 @@ public class UserControllerTest {
         User updatedUser = new User(1L, "Алексей", "Иванов");
 
         // Настройка мока
-        when(userService.updatePartial(Mockito.eq(1L), Mockito.anyMap()))
+        when(userService.updatePartial(Mockito.eq(1L), Mockito.anyMap(), Mockito.isNull()))
                 .thenReturn(updatedUser);
 
         // JSON для частичного обновления
@@ -150,6 +209,27 @@ public class UserControllerTest {
                         //.andExpect(jsonPath("$.message").value("Internal server error: Internal server error"));
     }
 
+    // 400 Bad Request. Тело не JSON: ошибка клиента, а не 500, и без текста парсера
+    @Test
+    public void testMalformedJsonIsBadRequest() throws Exception {
+        mockMvc.perform(post("/users/new")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("MALFORMED_REQUEST"))
+                .andExpect(jsonPath("$.detail").value("Request body is missing or malformed"));
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    // 400 Bad Request. id в пути не число
+    @Test
+    public void testNonNumericIdIsBadRequest() throws Exception {
+        mockMvc.perform(get("/users/abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_PARAMETER"))
+                .andExpect(jsonPath("$.detail").value("Parameter 'id' must be long"));
+    }
+
     // NotFound, 404 GET-запрос. Тест получения ответа, что пользователь не найден
     @Test
     public void testGetUserNotFound() throws Exception {
@@ -221,6 +301,99 @@ public class UserControllerTest {
 
 
 
+    // 304 Not Modified. GET с If-None-Match: версия совпала, пользователь не загружается
+    @Test
+    public void testGetUserNotModified() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/users/1")
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""));
+        Mockito.verify(userService, Mockito.never()).getByUserId(Mockito.anyLong());
+    }
+
+    // 200 OK. GET с устаревшим If-None-Match: тело и новый ETag
+    @Test
+    public void testGetUserModifiedReturnsETag() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(4L);
+        when(userService.getByUserId(1L)).thenReturn(new User(1L, "Михаил", "Булгаков", 4L));
+
+        mockMvc.perform(get("/users/1")
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    // 412 Precondition Failed. PUT с If-Match устаревшей версии
+    @Test
+    public void testPutUserPreconditionFailed() throws Exception {
+        Mockito.doThrow(new PreconditionFailedException("User version is 4, not 3"))
+                .when(userService).updateUser(Mockito.argThat(user -> Long.valueOf(3L).equals(user.getVersion())));
+
+        mockMvc.perform(put("/users/1")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "firstName": "Петр",
+                                    "lastName": "Петров"
+                                }
+                                """))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    // 400 Bad Request. If-Match не сильный ETag с числом: сервис не вызывается
+    @Test
+    public void testPutUserMalformedIfMatch() throws Exception {
+        mockMvc.perform(put("/users/1")
+                        .header("If-Match", "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "firstName": "Петр",
+                                    "lastName": "Петров"
+                                }
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_ETAG"));
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    // 201 Created. PUT ?upsert=true создал пользователя с этим id (версия 0)
+    @Test
+    public void testPutUpsertCreatesUser() throws Exception {
+        when(userService.upsertUser(Mockito.any(User.class))).thenReturn(new User(500L, "Петр", "Петров", 0L));
+
+        mockMvc.perform(put("/users/500")
+                        .param("upsert", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "firstName": "Петр",
+                                    "lastName": "Петров"
+                                }
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.id").value(500));
+        Mockito.verify(userService, Mockito.never()).updateUser(Mockito.any(User.class));
+    }
+
+    // 412 Precondition Failed. PATCH с If-Match, а пользователя успели изменить
+    @Test
+    public void testPatchUserPreconditionFailed() throws Exception {
+        when(userService.updatePartial(Mockito.eq(1L), Mockito.anyMap(), Mockito.eq(3L)))
+                .thenThrow(new PreconditionFailedException("User version is 4, not 3"));
+
+        mockMvc.perform(patch("/users/1")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Алексей\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     //502 BAD_GATEWAY при создании пользователя(проблема на стороне сервера), post-запрос /users/new, ответ от сервера, если есть сбой. Причины возникновения ошибки: высокая нагрузка сервера, сетевые проблемы, проблемы DNS, хакерская атака, ошибки в коде сайта, проблемы с браузером. Лечить - отключить плагины поочередно.
 //    @Test
 //    public void testCreateUserBadGateway() throws Exception {
@@ -243,7 +416,37 @@ public class UserControllerTest {
 //                .andExpect(status().isBadGateway()) // Ожидаем статус 502 Bad Gateway
 //                .andExpect(content().string(org.hamcrest.Matchers.containsString("External service unavailable"))); // Проверяем сообщение об ошибке
 //    }
-}
 
+    // 201 Created. Запрос и ответ в CBOR: Content-Type и Accept application/cbor
+    @Test
+    public void testCreateUserCbor() throws Exception {
+        CBORMapper cbor = new CBORMapper();
+        when(userService.save(Mockito.any(User.class)))
+                .thenReturn(new User(1L, "Михаил", "Булгаков"));
+
+        byte[] body = mockMvc.perform(post("/users/new")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(new User(0L, "Михаил", "Булгаков"))))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        User created = cbor.readValue(body, User.class);
+        assertEquals(1L, created.getId());
+        assertEquals("Булгаков", created.getLastName());
+    }
 
+    // 202 Accepted. Импорт файла из каталога импорта в фоне, ход — по Location
+    @Test
+    public void testImportUsersAccepted() throws Exception {
+        when(importer.startServerFile("users", "users.csv", null, true)).thenReturn(new ImportStatus(3L, "users",
+                "/data/import/users.csv", "csv", "RUNNING", false, 1000, 0, 0, 0, 0, 0, List.of(), null));
 
+        mockMvc.perform(post("/users/import").param("file", "users.csv"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/users/import/3"))
+                .andExpect(jsonPath("$.jobId").value(3))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+}
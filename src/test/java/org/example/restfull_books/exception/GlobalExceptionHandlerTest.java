@@ -0,0 +1,108 @@
+package org.example.restfull_books.exception;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GlobalExceptionHandlerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(registry);
+
+    // 404 Not Found. Доменное исключение: статус и код берутся из самого исключения
+    @Test
+    public void testNotFoundProblem() {
+        ResponseEntity<ProblemDetail> response = handler.handleDomainException(new CustomNewNotFoundException("Not Found"));
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, response.getHeaders().getContentType());
+        assertEquals(404, response.getBody().getStatus());
+        assertEquals("NOT_FOUND", response.getBody().getProperties().get("code"));
+        assertEquals("Not Found", response.getBody().getDetail());
+    }
+
+    // 412 Precondition Failed. Конфликт версий из сервиса и из Hibernate отдаёт один и тот же код
+    @Test
+    public void testVersionMismatchCode() {
+        ProblemDetail domain = handler.handleDomainException(new PreconditionFailedException("stale")).getBody();
+        ProblemDetail locking = handler.handleOptimisticLocking(new OptimisticLockingFailureException("stale")).getBody();
+
+        assertEquals(412, domain.getStatus());
+        assertEquals(412, locking.getStatus());
+        assertEquals("VERSION_MISMATCH", domain.getProperties().get("code"));
+        assertEquals("VERSION_MISMATCH", locking.getProperties().get("code"));
+    }
+
+    // 500 Internal Server Error. Текст исключения наружу не уходит
+    @Test
+    public void testInternalErrorHidesMessage() {
+        ProblemDetail problem = handler.handleRuntimeExceptions(
+                new IllegalStateException("could not execute statement [select * from books]")).getBody();
+
+        assertEquals(500, problem.getStatus());
+        assertEquals("Internal server error", problem.getDetail());
+    }
+
+    // 409 и 412 из БД и Hibernate: в теле ни SQL, ни имён таблиц и классов — только постоянный текст
+    @Test
+    public void testConflictAndLockingHideMessage() {
+        ProblemDetail conflict = handler.handleDataIntegrityViolation(new DataIntegrityViolationException(
+                "could not execute statement [insert into books (author,price,title,version,id) values (?,?,?,?,?)]",
+                new SQLIntegrityConstraintViolationException(
+                        "Unique index or primary key violation: \"PUBLIC.PRIMARY_KEY_3 ON PUBLIC.BOOKS(ID)\"", "23505")))
+                .getBody();
+        ProblemDetail locking = handler.handleOptimisticLocking(new OptimisticLockingFailureException(
+                "Row was updated or deleted by another transaction: [org.example.restfull_books.entity.Book#1]"))
+                .getBody();
+
+        assertEquals(409, conflict.getStatus());
+        assertEquals("Conflicting data", conflict.getDetail());
+        assertEquals(412, locking.getStatus());
+        assertEquals("Resource was modified concurrently", locking.getDetail());
+        for (ProblemDetail problem : new ProblemDetail[]{conflict, locking}) {
+            String body = problem.getDetail() + problem.getTitle() + problem.getProperties();
+            assertFalse(body.toLowerCase().contains("books"));
+            assertFalse(body.contains("org.example"));
+            assertFalse(body.contains("insert"));
+        }
+    }
+
+    // 412 — отдельный исход, а не разновидность 409: обработчик конфликтов его не перехватит
+    @Test
+    public void testPreconditionFailedIsNotConflict() {
+        assertFalse(ConflictException.class.isAssignableFrom(PreconditionFailedException.class));
+    }
+
+    // Частые 404/409/412 создаются без стека; 502 стек сохраняет — это настоящий сбой
+    @Test
+    public void testStacklessExceptions() {
+        assertEquals(0, new NotFoundException("x").getStackTrace().length);
+        assertEquals(0, new ConflictException("x").getStackTrace().length);
+        assertEquals(0, new PreconditionFailedException("x").getStackTrace().length);
+        assertTrue(new CustomGatewayException("x").getStackTrace().length > 0);
+    }
+
+    // Счётчик ошибок по типу исключения и статусу
+    @Test
+    public void testErrorCounter() {
+        handler.handleDomainException(new CustomNewNotFoundException("a"));
+        handler.handleDomainException(new CustomNewNotFoundException("b"));
+        handler.handleRuntimeExceptions(new IllegalStateException("c"));
+
+        assertEquals(2.0, registry.get("books.http.errors")
+                .tag("exception", "CustomNewNotFoundException").tag("status", "404").counter().count());
+        assertEquals(1.0, registry.get("books.http.errors")
+                .tag("exception", "IllegalStateException").tag("status", "500").counter().count());
+    }
+}
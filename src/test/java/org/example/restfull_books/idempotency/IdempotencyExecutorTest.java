@@ -0,0 +1,119 @@
+package org.example.restfull_books.idempotency;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyExecutorTest {
+
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(100, 60_000);
+    private final IdempotencyExecutor executor = new IdempotencyExecutor(store, new ObjectMapper());
+    private final Book request = new Book(0L, "Белая гвардия", 400, "Булгаков");
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private ResponseEntity<?> create() {
+        long id = executions.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .location(URI.create("/books/" + id))
+                .body(new Book(id, "Белая гвардия", 400, "Булгаков"));
+    }
+
+    @Test
+    void replaysStoredResponse() {
+        ResponseEntity<?> first = executor.execute("books", "key-1", request, this::create);
+        ResponseEntity<?> second = executor.execute("books", "key-1", request, this::create);
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals("/books/1", second.getHeaders().getLocation().toString());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+        assertEquals(1, ((JsonNode) second.getBody()).get("id").asLong());
+        assertNull(first.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+    }
+
+    // Ключи разных эндпоинтов не пересекаются, запросы без ключа выполняются каждый раз
+    @Test
+    void scopesKeysAndSkipsRequestsWithoutKey() {
+        executor.execute("books", "key-1", request, this::create);
+        executor.execute("users", "key-1", request, this::create);
+        executor.execute("books", null, request, this::create);
+        executor.execute("books", null, request, this::create);
+
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    void rejectsKeyReusedWithDifferentBody() {
+        executor.execute("books", "key-1", request, this::create);
+
+        Book other = new Book(0L, "Собачье сердце", 300, "Булгаков");
+        assertThrows(IdempotencyKeyReusedException.class, () -> executor.execute("books", "key-1", other, this::create));
+        assertEquals(1, executions.get());
+    }
+
+    // Ошибка не запоминается: повтор с тем же ключом выполняет запрос заново
+    @Test
+    void doesNotStoreFailures() {
+        assertThrows(IllegalStateException.class, () -> executor.execute("books", "key-1", request, () -> {
+            throw new IllegalStateException("database is down");
+        }));
+        ResponseEntity<?> retry = executor.execute("books", "key-1", request, this::create);
+
+        assertEquals(1, executions.get());
+        assertNull(retry.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+    }
+
+    // Одновременные запросы с одним ключом: выполняется один, остальные получают его ответ
+    @Test
+    void coalescesConcurrentRequests() throws Exception {
+        int threads = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+            responses.add(pool.submit(() -> executor.execute("books", "key-1", request, () -> {
+                started.countDown();
+                await(release);
+                return create();
+            })));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                responses.add(pool.submit(() -> executor.execute("books", "key-1", request, this::create)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<ResponseEntity<?>> response : responses) {
+                assertEquals(HttpStatus.CREATED, response.get(10, TimeUnit.SECONDS).getStatusCode());
+            }
+            assertEquals(1, executions.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
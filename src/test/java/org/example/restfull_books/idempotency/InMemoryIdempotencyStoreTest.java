@@ -0,0 +1,44 @@
+package org.example.restfull_books.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryIdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private StoredResponse response() {
+        return new StoredResponse("hash", 201, null, "{}", now.get());
+    }
+
+    @Test
+    void evictsOldestBeyondMaximumSize() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(3, 60_000, now::get);
+        for (int i = 0; i < 5; i++) {
+            store.save("key-" + i, response());
+        }
+
+        assertEquals(3, store.size());
+        assertTrue(store.find("key-0").isEmpty());
+        assertTrue(store.find("key-1").isEmpty());
+        assertTrue(store.find("key-4").isPresent());
+    }
+
+    @Test
+    void expiresAfterTtl() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(100, 60_000, now::get);
+        store.save("old", response());
+        now.addAndGet(30_000);
+        store.save("new", response());
+        now.addAndGet(30_000);
+
+        assertTrue(store.find("old").isEmpty());
+        assertTrue(store.find("new").isPresent());
+        // Следующая запись вычищает устаревшие из памяти
+        store.save("newest", response());
+        assertEquals(2, store.size());
+    }
+}
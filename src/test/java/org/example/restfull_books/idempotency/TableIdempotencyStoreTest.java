@@ -0,0 +1,78 @@
+package org.example.restfull_books.idempotency;
+
+import org.example.restfull_books.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class TableIdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // deleteAll не подходит: CrudRepository.delete пропускает записи, у которых isNew() == true
+    @BeforeEach
+    @AfterEach
+    void clear() {
+        repository.deleteCreatedUpTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void findsSavedResponseUntilTtl() {
+        TableIdempotencyStore store = new TableIdempotencyStore(repository, 100, 60_000, 100, now::get);
+        store.save("books:key", new StoredResponse("hash", 201, "/books/1", "{\"id\":1}", now.get()));
+
+        StoredResponse found = store.find("books:key").orElseThrow();
+        assertEquals(201, found.getStatus());
+        assertEquals("/books/1", found.getLocation());
+        assertEquals("{\"id\":1}", found.getBody());
+
+        now.addAndGet(60_000);
+        assertTrue(store.find("books:key").isEmpty());
+    }
+
+    // Тот же ключ уже записал другой экземпляр: вставка отклоняется, сохранённый первым ответ не перезаписывается.
+    // Без общей транзакции теста — каждый save в своей, как у двух экземпляров приложения
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void duplicateKeyDoesNotOverwriteStoredResponse() {
+        TableIdempotencyStore first = new TableIdempotencyStore(repository, 100, 60_000, 100, now::get);
+        TableIdempotencyStore second = new TableIdempotencyStore(repository, 100, 60_000, 100, now::get);
+        first.save("books:key", new StoredResponse("hash", 201, "/books/1", "{\"id\":1}", now.get()));
+
+        second.save("books:key", new StoredResponse("hash", 201, "/books/2", "{\"id\":2}", now.get()));
+
+        StoredResponse found = second.find("books:key").orElseThrow();
+        assertEquals("/books/1", found.getLocation());
+        assertEquals("{\"id\":1}", found.getBody());
+        assertEquals(1, repository.count());
+    }
+
+    // Раз в purgeEvery вставок удаляются устаревшие записи и самые старые сверх maximumSize
+    @Test
+    void purgesExpiredAndOldestBeyondMaximumSize() {
+        TableIdempotencyStore store = new TableIdempotencyStore(repository, 3, 60_000, 6, now::get);
+        store.save("expired", new StoredResponse("hash", 201, null, "{}", now.get()));
+        now.addAndGet(60_000);
+        for (int i = 0; i < 5; i++) {
+            now.incrementAndGet();
+            store.save("key-" + i, new StoredResponse("hash", 201, null, "{}", now.get()));
+        }
+
+        assertEquals(3, repository.count());
+        assertFalse(repository.existsById("expired"));
+        assertFalse(repository.existsById("key-1"));
+        assertTrue(repository.existsById("key-2"));
+    }
+}
@@ -0,0 +1,266 @@
+package org.example.restfull_books.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.ImportStatus;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.InvalidImportException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkImporterTest {
+
+    @TempDir
+    Path dir;
+
+    private final Queue<Book> inserted = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile int failOnCall = -1;
+    private volatile int crashAfterCommitOnCall = -1;
+
+    // Смещения «в таблице»: пишутся вместе со строками в insert, как в транзакции пакета
+    private final Map<String, Map<Integer, Long>> committedOffsets = new ConcurrentHashMap<>();
+    private final ImportProgressStore progress = new ImportProgressStore() {
+        @Override
+        public Map<Integer, Long> load(String checkpointKey) {
+            return Map.copyOf(committedOffsets.getOrDefault(checkpointKey, Map.of()));
+        }
+
+        @Override
+        public void save(String checkpointKey, int split, long offset) {
+            committedOffsets.computeIfAbsent(checkpointKey, key -> new ConcurrentHashMap<>()).put(split, offset);
+        }
+
+        @Override
+        public void delete(String checkpointKey) {
+            committedOffsets.remove(checkpointKey);
+        }
+    };
+
+    // Вставка как у BookService.saveAll, весь пакет — одна транзакция. На вызове failOnCall падает целиком,
+    // ничего не вставив — как откат; на вызове crashAfterCommitOnCall падает уже после коммита —
+    // как процесс, упавший до записи контрольной точки в файл
+    private List<BatchItemResult> insert(List<Book> books, IntConsumer committed) {
+        int call = calls.incrementAndGet();
+        if (call == failOnCall) {
+            throw new IllegalStateException("database is down");
+        }
+        List<BatchItemResult> results = new ArrayList<>();
+        int lastCreated = -1;
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (book.getPrice() < 0) {
+                results.add(BatchItemResult.failed(i, "Price must not be negative"));
+            } else {
+                inserted.add(book);
+                results.add(BatchItemResult.created(i, inserted.size()));
+                lastCreated = i;
+            }
+        }
+        if (lastCreated >= 0) {
+            committed.accept(lastCreated);
+        }
+        if (call == crashAfterCommitOnCall) {
+            throw new IllegalStateException("process crashed");
+        }
+        return results;
+    }
+
+    private BulkImporter importer(int threads, int batchSize, DataSize splitSize) {
+        ImportTarget<Book> books = new ImportTarget<>("books", Book.class, List.of("title", "price", "author"),
+                row -> new Book(0, row.text(0), row.integer(1), row.text(2)), this::insert);
+        return new BulkImporter(List.of(books), progress, new ObjectMapper(), dir, dir.resolve("checkpoints"),
+                threads, batchSize, splitSize);
+    }
+
+    private ImportStatus run(BulkImporter importer, Path file, boolean resume) throws InterruptedException {
+        return importer.run("books", file, null, resume, Duration.ofMillis(10), status -> { });
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content);
+    }
+
+    // Колонки в любом порядке, кавычки с запятыми и удвоенными кавычками внутри, CRLF, пустое поле — null
+    @Test
+    void importsCsvWithQuotedFields() throws Exception {
+        Path file = write("books.csv", "\uFEFFauthor,price,title\r\n"
+                + "Булгаков,500,\"Мастер и Маргарита\"\r\n"
+                + "\"Толстой, Л. Н.\",700,\"Война и мир\"\r\n"
+                + "\r\n"
+                + ",300,\"Роман \"\"без\"\" автора\"\r\n");
+
+        ImportStatus status = run(importer(1, 10, DataSize.ofMegabytes(1)), file, true);
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(3, status.getRowsImported());
+        assertEquals(status.getBytesTotal(), status.getBytesDone());
+        List<Book> books = List.copyOf(inserted);
+        assertEquals("Мастер и Маргарита", books.get(0).getTitle());
+        assertEquals(500, books.get(0).getPrice());
+        assertEquals("Толстой, Л. Н.", books.get(1).getAuthor());
+        assertEquals("Роман \"без\" автора", books.get(2).getTitle());
+        assertNull(books.get(2).getAuthor());
+        // Импорт завершён — контрольная точка удалена
+        try (var checkpoints = Files.list(dir.resolve("checkpoints"))) {
+            assertEquals(0, checkpoints.count());
+        }
+    }
+
+    @Test
+    void importsNdjson() throws Exception {
+        Path file = write("books.ndjson", """
+                {"title": "Бег", "price": 100, "author": "Булгаков"}
+                {"title": "Морфий", "price": 200, "author": "Булгаков"}
+                """);
+
+        ImportStatus status = run(importer(2, 10, DataSize.ofMegabytes(1)), file, true);
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals("ndjson", status.getFormat());
+        assertEquals(2, status.getRowsImported());
+        assertEquals(List.of("Бег", "Морфий"), inserted.stream().map(Book::getTitle).toList());
+    }
+
+    // Маленькие участки в нескольких потоках: каждая строка вставлена ровно один раз
+    @Test
+    void importsSplitsInParallelWithoutLosingRows() throws Exception {
+        Path file = write("many.csv", csv(5000));
+
+        ImportStatus status = run(importer(4, 64, DataSize.ofBytes(4096)), file, true);
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(5000, status.getRowsImported());
+        assertEquals(5000, inserted.size());
+        assertEquals(5000, new HashSet<>(inserted.stream().map(Book::getTitle).toList()).size());
+    }
+
+    // Ошибочные строки пропускаются и попадают в errors со смещением, остальные вставляются
+    @Test
+    void skipsInvalidRows() throws Exception {
+        Path file = write("bad.csv", """
+                title,price,author
+                Бег,100,Булгаков
+                Морфий,дорого,Булгаков
+                "Без кавычки,100,Булгаков
+                Дьяволиада,-1,Булгаков
+                Белая гвардия,300,Булгаков
+                """);
+
+        ImportStatus status = run(importer(1, 10, DataSize.ofMegabytes(1)), file, true);
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(2, status.getRowsImported());
+        assertEquals(3, status.getRowsFailed());
+        assertTrue(status.getErrors().get(0).startsWith("byte "));
+        assertTrue(status.getErrors().contains("Price must not be negative"));
+    }
+
+    // Вставка упала посреди файла: повторный запуск продолжает с контрольной точки, строки не дублируются
+    @Test
+    void resumesAfterFailureWithoutDuplicates() throws Exception {
+        Path file = write("resume.csv", csv(3000));
+        BulkImporter importer = importer(3, 50, DataSize.ofBytes(8192));
+        failOnCall = 20;
+
+        ImportStatus failed = run(importer, file, true);
+
+        assertEquals("FAILED", failed.getState());
+        assertTrue(failed.getError().contains("database is down"));
+        int before = inserted.size();
+        assertTrue(before > 0 && before < 3000);
+
+        failOnCall = -1;
+        ImportStatus resumed = run(importer, file, true);
+
+        assertEquals("COMPLETED", resumed.getState());
+        assertTrue(resumed.isResumed());
+        assertEquals(3000 - before, resumed.getRowsImported());
+        assertEquals(3000, inserted.size());
+        assertEquals(3000, new HashSet<>(inserted.stream().map(Book::getTitle).toList()).size());
+    }
+
+    // Пакет закоммичен, а до записи контрольной точки в файл дело не дошло: смещение, закоммиченное
+    // вместе с пакетом, не даёт вставить его второй раз
+    @Test
+    void resumesAfterCrashBetweenCommitAndCheckpointWithoutDuplicates() throws Exception {
+        Path file = write("crash.csv", csv(1000));
+        BulkImporter importer = importer(1, 50, DataSize.ofMegabytes(1));
+        crashAfterCommitOnCall = 4;
+
+        ImportStatus crashed = run(importer, file, true);
+
+        assertEquals("FAILED", crashed.getState());
+        assertEquals(200, inserted.size());
+        // В файле — только три пакета из четырёх
+        assertEquals(150 * 100 / 1000, crashed.getBytesDone() * 100 / crashed.getBytesTotal(), 1);
+
+        crashAfterCommitOnCall = -1;
+        ImportStatus resumed = run(importer, file, true);
+
+        assertEquals("COMPLETED", resumed.getState());
+        assertEquals(800, resumed.getRowsImported());
+        assertEquals(1000, inserted.size());
+        assertEquals(1000, new HashSet<>(inserted.stream().map(Book::getTitle).toList()).size());
+        assertTrue(committedOffsets.isEmpty());
+    }
+
+    // resume=false — импорт с начала, даже если контрольная точка есть
+    @Test
+    void restartsWhenResumeIsOff() throws Exception {
+        Path file = write("restart.csv", csv(500));
+        BulkImporter importer = importer(1, 50, DataSize.ofMegabytes(1));
+        failOnCall = 3;
+        assertEquals("FAILED", run(importer, file, true).getState());
+
+        failOnCall = -1;
+        ImportStatus restarted = run(importer, file, false);
+
+        assertFalse(restarted.isResumed());
+        assertEquals(500, restarted.getRowsImported());
+    }
+
+    @Test
+    void rejectsHeaderWithoutRequiredColumn() throws Exception {
+        Path file = write("nocolumn.csv", "title,author\nБег,Булгаков\n");
+
+        InvalidImportException e = assertThrows(InvalidImportException.class,
+                () -> run(importer(1, 10, DataSize.ofMegabytes(1)), file, true));
+        assertTrue(e.getMessage().contains("price"));
+        assertTrue(inserted.isEmpty());
+    }
+
+    // По HTTP — только файлы из каталога импорта
+    @Test
+    void rejectsFileOutsideImportDirectory() {
+        BulkImporter importer = importer(1, 10, DataSize.ofMegabytes(1));
+
+        assertThrows(InvalidImportException.class,
+                () -> importer.startServerFile("books", "../../etc/passwd", "csv", true));
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("title,price,author\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Книга ").append(i).append(',').append(i % 1000).append(",Автор ").append(i % 7).append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.restfull_books.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.restfull_books.controller.BookController;
+import org.example.restfull_books.controller.CacheController;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EndpointLatencyFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EndpointLatencyFilter filter = new EndpointLatencyFilter(registry, BookController.class.getPackageName());
+
+    private void perform(Object handler, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // Обработчик и статус выставляет DispatcherServlet внутри цепочки фильтров
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+                resp.setStatus(status);
+            }
+        });
+        filter.doFilter(request, response, chain);
+    }
+
+    // Обработчик найден, но контроллер бросил исключение, которое не превратилось в ответ
+    private void performThrowing(Object handler, RuntimeException failure) {
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+                throw failure;
+            }
+        });
+        assertThrows(failure.getClass(),
+                () -> filter.doFilter(new MockHttpServletRequest("GET", "/books/1"), new MockHttpServletResponse(), chain));
+    }
+
+    private HandlerMethod handler(Object bean, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return new HandlerMethod(bean, bean.getClass().getMethod(name, parameterTypes));
+    }
+
+    @Test
+    void recordsLatencyPerControllerMethodAndStatus() throws Exception {
+        HandlerMethod getBook = handler(new BookController(), "getBook", long.class, String.class);
+
+        perform(getBook, 200);
+        perform(getBook, 200);
+        perform(getBook, 304);
+
+        Timer ok = registry.get(EndpointLatencyFilter.METRIC)
+                .tags("controller", "BookController", "method", "getBook", "status", "200").timer();
+        Timer notModified = registry.get(EndpointLatencyFilter.METRIC)
+                .tags("controller", "BookController", "method", "getBook", "status", "304").timer();
+        assertEquals(2, ok.count());
+        assertEquals(1, notModified.count());
+    }
+
+    // Исключение из цепочки: статус ответа ещё 200, но клиент получит 500 — так и записано, с классом исключения
+    @Test
+    void recordsExceptionFromChainAsServerError() throws Exception {
+        HandlerMethod getBook = handler(new BookController(), "getBook", long.class, String.class);
+
+        performThrowing(getBook, new IllegalStateException("boom"));
+        perform(getBook, 200);
+
+        Timer failed = registry.get(EndpointLatencyFilter.METRIC)
+                .tags("method", "getBook", "status", "500", "exception", "IllegalStateException").timer();
+        Timer ok = registry.get(EndpointLatencyFilter.METRIC)
+                .tags("method", "getBook", "status", "200", "exception", "none").timer();
+        assertEquals(1, failed.count());
+        assertEquals(1, ok.count());
+    }
+
+    @Test
+    void ignoresRequestsWithoutControllerHandler() throws Exception {
+        perform(null, 404);
+        perform(handler("not a controller", "length"), 200);
+
+        assertTrue(registry.find(EndpointLatencyFilter.METRIC).timers().isEmpty());
+    }
+
+    @Test
+    void sameTimerInstanceIsReusedForRepeatedRequests() throws Exception {
+        HandlerMethod getStats = handler(new CacheController(), "getStats");
+        perform(getStats, 200);
+        Timer first = registry.get(EndpointLatencyFilter.METRIC).timer();
+        perform(getStats, 200);
+
+        assertSame(first, registry.get(EndpointLatencyFilter.METRIC).timer());
+        assertEquals(2, first.count());
+    }
+}
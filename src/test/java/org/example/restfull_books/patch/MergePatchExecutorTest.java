@@ -0,0 +1,151 @@
+package org.example.restfull_books.patch;
+
+import jakarta.persistence.EntityManager;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.InvalidPatchException;
+import org.example.restfull_books.repository.BookRepository;
+import org.example.restfull_books.repository.IdSequences;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({MergePatchExecutor.class, IdSequences.class})
+public class MergePatchExecutorTest {
+
+    @Autowired
+    private MergePatchExecutor mergePatchExecutor;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        book = bookRepository.saveAndFlush(new Book(0, "Белая гвардия", 400, "Булгаков"));
+        entityManager.clear(); // UPDATE идёт мимо контекста, дальше читаем только из БД
+    }
+
+    @Test
+    void updateChangesOnlyPatchedFieldsAndBumpsVersion() {
+        assertTrue(mergePatchExecutor.update(Book.class, book.getId(), Map.of("price", 450), null));
+
+        Book updated = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(450, updated.getPrice());
+        assertEquals("Белая гвардия", updated.getTitle());
+        assertEquals(book.getVersion() + 1, updated.getVersion());
+    }
+
+    @Test
+    void updateWithStaleVersionOrMissingIdTouchesNothing() {
+        assertFalse(mergePatchExecutor.update(Book.class, book.getId(), Map.of("price", 1), book.getVersion() + 1));
+        assertFalse(mergePatchExecutor.update(Book.class, book.getId() + 100, Map.of("price", 1), null));
+
+        assertEquals(400, bookRepository.findById(book.getId()).orElseThrow().getPrice());
+    }
+
+    @Test
+    void nullClearsNullableFieldButNotRequiredOne() {
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("author", null);
+        assertTrue(mergePatchExecutor.update(Book.class, book.getId(), patch, null));
+        assertNull(bookRepository.findById(book.getId()).orElseThrow().getAuthor());
+
+        // price — примитив, null в нём не бывает
+        Map<String, Object> nullPrice = new HashMap<>();
+        nullPrice.put("price", null);
+        assertThrows(InvalidPatchException.class, () -> mergePatchExecutor.update(Book.class, book.getId(), nullPrice, null));
+    }
+
+    @Test
+    void unknownFieldsAndWrongTypesAreRejected() {
+        assertThrows(InvalidPatchException.class,
+                () -> mergePatchExecutor.update(Book.class, book.getId(), Map.of("isbn", "123"), null));
+        assertThrows(InvalidPatchException.class,
+                () -> mergePatchExecutor.update(Book.class, book.getId(), Map.of("version", 7), null));
+        assertThrows(InvalidPatchException.class,
+                () -> mergePatchExecutor.update(Book.class, book.getId(), Map.of("price", "дорого"), null));
+        assertThrows(InvalidPatchException.class,
+                () -> mergePatchExecutor.update(Book.class, book.getId(), Map.of("price", 4.5), null));
+    }
+
+    @Test
+    void updateAllReportsEachItem() {
+        Book other = bookRepository.saveAndFlush(new Book(0, "Война и мир", 900, "Толстой"));
+        entityManager.clear();
+
+        List<BatchItemResult> results = mergePatchExecutor.updateAll(Book.class, List.of(
+                Map.of("id", book.getId(), "price", 500),
+                Map.of("id", other.getId(), "version", other.getVersion(), "price", 950),
+                Map.of("id", other.getId(), "version", other.getVersion(), "title", "устаревшая версия"),
+                Map.of("id", book.getId(), "pages", 300),
+                Map.of("price", 1)));
+
+        assertEquals("UPDATED", results.get(0).getStatus());
+        assertEquals("UPDATED", results.get(1).getStatus());
+        // Третий патч проверяет ту же версию, но её уже увеличил второй
+        assertEquals("FAILED", results.get(2).getStatus());
+        assertEquals(BatchItemResult.INVALID_ITEM, results.get(3).getError());
+        assertEquals("FAILED", results.get(4).getStatus());
+
+        entityManager.clear();
+        assertEquals(500, bookRepository.findById(book.getId()).orElseThrow().getPrice());
+        assertEquals("Война и мир", bookRepository.findById(other.getId()).orElseThrow().getTitle());
+    }
+
+    // Порция откатилась на ограничении колонки: у её элементов код ошибки, а не текст SQL-исключения
+    @Test
+    void updateAllReportsCodeWhenChunkRollsBack() {
+        List<BatchItemResult> results = mergePatchExecutor.updateAll(Book.class, List.of(
+                Map.of("id", book.getId(), "price", 500),
+                Map.of("id", book.getId(), "title", "длинное название".repeat(50))));
+
+        assertEquals(List.of(BatchItemResult.CONSTRAINT_VIOLATION, BatchItemResult.CONSTRAINT_VIOLATION),
+                results.stream().map(BatchItemResult::getError).toList());
+    }
+
+    @Test
+    void replaceReturnsNewVersionInSameStatement() {
+        Book replacement = new Book(book.getId(), "Бег", 350, "Булгаков");
+
+        assertEquals(book.getVersion() + 1, mergePatchExecutor.replace(replacement, book.getId(), book.getVersion()));
+        // Повтор с той же (уже устаревшей) версией и несуществующий id ничего не меняют
+        assertNull(mergePatchExecutor.replace(replacement, book.getId(), book.getVersion()));
+        assertNull(mergePatchExecutor.replace(replacement, book.getId() + 100, null));
+
+        Book stored = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals("Бег", stored.getTitle());
+        assertEquals(350, stored.getPrice());
+    }
+
+    @Test
+    void upsertUpdatesExistingRowOrInsertsNewOne() {
+        long newId = book.getId() + 1_000_000;
+
+        assertEquals(book.getVersion() + 1,
+                mergePatchExecutor.upsert(new Book(book.getId(), "Бег", 350, "Булгаков"), book.getId(), null));
+        // Строки нет — создаётся с версией 0
+        assertEquals(0L, mergePatchExecutor.upsert(new Book(newId, "Морфий", 200, "Булгаков"), newId, null));
+        // If-Match с устаревшей версией и If-Match для отсутствующей строки — ничего не делают
+        assertNull(mergePatchExecutor.upsert(new Book(book.getId(), "Бег", 1, "Булгаков"), book.getId(), book.getVersion()));
+        assertNull(mergePatchExecutor.upsert(new Book(newId + 1, "Роковые яйца", 1, "Булгаков"), newId + 1, 0L));
+
+        assertEquals("Морфий", bookRepository.findById(newId).orElseThrow().getTitle());
+        assertEquals(350, bookRepository.findById(book.getId()).orElseThrow().getPrice());
+        assertEquals(2, bookRepository.count());
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.restfull_books.perf;
+
+import org.example.restfull_books.RestfullBooksApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Приложение на случайном порту со своей in-memory H2 — для нагрузочных прогонов
+final class EmbeddedApp implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    final String baseUrl;
+
+    private EmbeddedApp(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    static EmbeddedApp start(String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:perf-" + UUID.randomUUID(),
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                // Генератор нагрузки — один клиент: его ведро отсекло бы прогон 429-ми
+                "app.admission.enabled=false"));
+        properties.addAll(List.of(extraProperties));
+        return new EmbeddedApp(new SpringApplicationBuilder(RestfullBooksApplication.class)
+                .properties(properties.toArray(new String[0]))
+                .run());
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.restfull_books.perf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Сравнение режимов выполнения запросов: платформенные потоки Tomcat против виртуальных.
+// Одинаковая нагрузка (CONCURRENCY клиентов, чтения книг через JPA без кэша) на свежем приложении в каждом режиме.
+// Запуск: mvn test -Dtest=ExecutionModeComparisonTest -Dperf=true [-Dperf.concurrency=400 -Dperf.seconds=15]
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class ExecutionModeComparisonTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("perf.concurrency", 400);
+    private static final long SECONDS = Long.getLong("perf.seconds", 15);
+    private static final int BOOKS = 1000;
+
+    // Без расписания (rate = 0): клиенты шлют запросы сразу, меряем предельную пропускную способность
+    private static final Map<LoadGenerator.Operation, Integer> READS =
+            Map.of(LoadGenerator.Operation.GET_BOOK, 1, LoadGenerator.Operation.LIST_BOOKS, 1);
+
+    @Test
+    void compareVirtualAndPlatformThreads() throws Exception {
+        LoadGenerator.Report platform = run(false);
+        LoadGenerator.Report virtual = run(true);
+
+        System.out.printf("%nconcurrency=%d, %ds per mode%n", CONCURRENCY, SECONDS);
+        System.out.printf("platform threads%n%s%nvirtual threads%n%s", platform.format(), virtual.format());
+
+        assertTrue(platform.requests() > 0 && virtual.requests() > 0);
+    }
+
+    private LoadGenerator.Report run(boolean virtualThreads) throws Exception {
+        try (EmbeddedApp app = EmbeddedApp.start(
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "app.cache.type=none")) {
+            LoadGenerator generator = new LoadGenerator(app.baseUrl);
+            try {
+                generator.seed(BOOKS, 0);
+                generator.run(new LoadGenerator.Config(CONCURRENCY, Duration.ofSeconds(3), 0, READS)); // прогрев
+                return generator.run(new LoadGenerator.Config(CONCURRENCY, Duration.ofSeconds(SECONDS), 0, READS));
+            } finally {
+                generator.close();
+            }
+        }
+    }
+}
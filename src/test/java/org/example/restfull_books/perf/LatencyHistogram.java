@@ -0,0 +1,67 @@
+package org.example.restfull_books.perf;
+
+// Лог-линейная гистограмма задержек в микросекундах (в духе HdrHistogram): 64 корзины на каждую степень двойки,
+// относительная погрешность перцентилей не больше 1/64. Один экземпляр на поток нагрузки, потом merge
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 64;
+
+    private final long[] counts = new long[SUB_BUCKETS * 64 + 2 * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts[index(micros)]++;
+        total++;
+        max = Math.max(max, micros);
+    }
+
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    // Верхняя граница корзины, в которую попадает перцентиль p (0..1), в миллисекундах
+    double percentileMillis(double p) {
+        if (total == 0) {
+            return 0;
+        }
+        if (p >= 1.0) {
+            return max / 1000.0;
+        }
+        long target = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), max) / 1000.0;
+            }
+        }
+        return max / 1000.0;
+    }
+
+    private static int index(long micros) {
+        if (micros < 2 * SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - 6; // старшие 7 бит значения — мантисса 64..127
+        return shift * SUB_BUCKETS + (int) (micros >>> shift);
+    }
+
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
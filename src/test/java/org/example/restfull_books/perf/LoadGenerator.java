@@ -0,0 +1,326 @@
+package org.example.restfull_books.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+// Генератор нагрузки с замкнутым циклом: concurrency клиентов, каждый ждёт ответа перед следующим запросом.
+// Если задан rate, клиенты идут по расписанию (rate/concurrency запросов в секунду каждый), а задержка
+// считается от запланированного момента отправки, а не от фактического — так задержка, которую сервер
+// вызвал, придержав клиента, не пропадает из перцентилей (coordinated omission).
+// Время обслуживания (от фактической отправки) пишется отдельно
+final class LoadGenerator {
+
+    enum Operation { GET_BOOK, LIST_BOOKS, CREATE_BOOK, PATCH_USER, DELETE_BOOK }
+
+    // mix — веса операций; rate <= 0 — без расписания, максимальная пропускная способность
+    record Config(int concurrency, Duration duration, double rate, Map<Operation, Integer> mix) {
+
+        // Формат "GET_BOOK=70,CREATE_BOOK=10,PATCH_USER=15,DELETE_BOOK=5"
+        static Map<Operation, Integer> parseMix(String mix) {
+            Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+            for (String part : mix.split(",")) {
+                String[] pair = part.trim().split("=");
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+            }
+            return weights;
+        }
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ExecutorService clients;
+    private long[] bookIds = new long[0];
+    private long[] userIds = new long[0];
+
+    LoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.clients = Executors.newVirtualThreadPerTaskExecutor();
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clients)
+                .build();
+    }
+
+    // Начальные данные через пакетные эндпоинты; запоминаем выданные id для GET и PATCH
+    void seed(int books, int users) throws IOException, InterruptedException {
+        StringBuilder booksJson = new StringBuilder("[");
+        for (int i = 0; i < books; i++) {
+            booksJson.append(i == 0 ? "" : ",")
+                    .append("{\"title\":\"Book ").append(i).append("\",\"price\":").append(i % 1000)
+                    .append(",\"author\":\"Author ").append(i % 50).append("\"}");
+        }
+        bookIds = createdIds("/books/batch", booksJson.append("]").toString());
+
+        StringBuilder usersJson = new StringBuilder("[");
+        for (int i = 0; i < users; i++) {
+            usersJson.append(i == 0 ? "" : ",")
+                    .append("{\"firstName\":\"First").append(i).append("\",\"lastName\":\"Last").append(i).append("\"}");
+        }
+        userIds = createdIds("/users/batch", usersJson.append("]").toString());
+    }
+
+    private long[] createdIds(String path, String json) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(post(path, json), HttpResponse.BodyHandlers.ofString());
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode item : JSON.readTree(response.body())) {
+            if (item.hasNonNull("id")) {
+                ids.add(item.get("id").asLong());
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    Report run(Config config) throws Exception {
+        int[] cumulative = cumulativeWeights(config.mix());
+        long intervalNanos = config.rate() > 0 ? (long) (config.concurrency() * 1e9 / config.rate()) : 0;
+        long start = System.nanoTime();
+        long deadline = start + config.duration().toNanos();
+
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int c = 0; c < config.concurrency(); c++) {
+            // Клиенты равномерно сдвинуты по фазе, чтобы не отправлять запросы пачками
+            long firstSend = start + (intervalNanos * c) / config.concurrency();
+            futures.add(clients.submit(() -> new Worker().run(firstSend, intervalNanos, deadline, cumulative)));
+        }
+        Report report = new Report(config);
+        for (Future<Worker> future : futures) {
+            report.merge(future.get());
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    void close() {
+        clients.shutdownNow();
+    }
+
+    private static int[] cumulativeWeights(Map<Operation, Integer> mix) {
+        int[] cumulative = new int[Operation.values().length];
+        int sum = 0;
+        for (Operation operation : Operation.values()) {
+            sum += mix.getOrDefault(operation, 0);
+            cumulative[operation.ordinal()] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Load mix has no positive weights: " + mix);
+        }
+        return cumulative;
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    // Один клиент: свои гистограммы без синхронизации, объединяются после прогона
+    private final class Worker {
+        final OperationStats[] stats = new OperationStats[Operation.values().length];
+        final ArrayDeque<Long> ownBooks = new ArrayDeque<>(); // созданные этим клиентом — их и удаляем
+
+        Worker() {
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = new OperationStats();
+            }
+        }
+
+        Worker run(long firstSend, long intervalNanos, long deadline, int[] cumulative) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long intended = firstSend;
+            while (intended < deadline) {
+                long now = System.nanoTime();
+                if (intervalNanos > 0 && intended > now) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                long sent = System.nanoTime();
+                if (sent >= deadline) {
+                    break;
+                }
+                if (intervalNanos == 0) {
+                    intended = sent;
+                }
+                Operation operation = pick(cumulative, random.nextInt(cumulative[cumulative.length - 1]));
+                if (operation == Operation.DELETE_BOOK && ownBooks.isEmpty()) {
+                    operation = Operation.CREATE_BOOK; // удалять пока нечего — сначала создаём
+                }
+                boolean ok;
+                try {
+                    ok = execute(operation, random);
+                } catch (IOException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                long done = System.nanoTime();
+                stats[operation.ordinal()].record(done - intended, done - sent, ok);
+                intended += intervalNanos;
+            }
+            return this;
+        }
+
+        private Operation pick(int[] cumulative, int roll) {
+            for (Operation operation : Operation.values()) {
+                if (roll < cumulative[operation.ordinal()]) {
+                    return operation;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        private boolean execute(Operation operation, ThreadLocalRandom random) throws IOException, InterruptedException {
+            return switch (operation) {
+                case GET_BOOK -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + any(bookIds, random))).build()) == 200;
+                case LIST_BOOKS -> send(HttpRequest.newBuilder(
+                        URI.create(baseUrl + "/books?limit=20&after=" + any(bookIds, random))).build()) == 200;
+                case CREATE_BOOK -> {
+                    HttpResponse<String> response = http.send(post("/books/new",
+                                    "{\"title\":\"Load " + random.nextInt() + "\",\"price\":" + random.nextInt(1000)
+                                            + ",\"author\":\"Load author\"}"),
+                            HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() / 100 != 2) {
+                        yield false;
+                    }
+                    ownBooks.add(JSON.readTree(response.body()).get("id").asLong());
+                    yield true;
+                }
+                case PATCH_USER -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + any(userIds, random)))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                                "{\"firstName\":\"Patched" + random.nextInt(1000) + "\"}"))
+                        .build()) == 200;
+                case DELETE_BOOK -> send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + ownBooks.poll()))
+                        .DELETE().build()) / 100 == 2;
+            };
+        }
+
+        private int send(HttpRequest request) throws IOException, InterruptedException {
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+
+        private long any(long[] ids, ThreadLocalRandom random) {
+            return ids.length == 0 ? 1 : ids[random.nextInt(ids.length)];
+        }
+    }
+
+    static final class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        long errors;
+
+        void record(long latencyNanos, long serviceNanos, boolean ok) {
+            latency.recordNanos(latencyNanos);
+            serviceTime.recordNanos(serviceNanos);
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void merge(OperationStats other) {
+            latency.merge(other.latency);
+            serviceTime.merge(other.serviceTime);
+            errors += other.errors;
+        }
+    }
+
+    static final class Report {
+        final Config config;
+        final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+        long elapsedNanos;
+
+        Report(Config config) {
+            this.config = config;
+        }
+
+        void merge(Worker worker) {
+            for (Operation operation : Operation.values()) {
+                OperationStats stats = worker.stats[operation.ordinal()];
+                if (stats.latency.count() > 0) {
+                    operations.computeIfAbsent(operation, key -> new OperationStats()).merge(stats);
+                }
+            }
+        }
+
+        long requests() {
+            return operations.values().stream().mapToLong(stats -> stats.latency.count()).sum();
+        }
+
+        long errors() {
+            return operations.values().stream().mapToLong(stats -> stats.errors).sum();
+        }
+
+        double throughput() {
+            return requests() / (elapsedNanos / 1e9);
+        }
+
+        void writeJson(Path file) throws IOException {
+            Map<String, Object> root = new LinkedHashMap<>();
+            root.put("concurrency", config.concurrency());
+            root.put("durationSeconds", config.duration().toSeconds());
+            root.put("targetRate", config.rate());
+            root.put("mix", config.mix());
+            root.put("requests", requests());
+            root.put("errors", errors());
+            root.put("throughput", throughput());
+            Map<String, Object> byOperation = new LinkedHashMap<>();
+            operations.forEach((operation, stats) -> {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("requests", stats.latency.count());
+                entry.put("errors", stats.errors);
+                entry.put("throughput", stats.latency.count() / (elapsedNanos / 1e9));
+                entry.put("latencyMs", percentiles(stats.latency));
+                entry.put("serviceTimeMs", percentiles(stats.serviceTime));
+                byOperation.put(operation.name(), entry);
+            });
+            root.put("operations", byOperation);
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            JSON.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), root);
+        }
+
+        String format() {
+            StringBuilder text = new StringBuilder(String.format("%-12s %9s %9s %9s %9s %9s %9s %7s%n",
+                    "operation", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+            operations.forEach((operation, stats) -> text.append(String.format(
+                    "%-12s %9.0f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", operation,
+                    stats.latency.count() / (elapsedNanos / 1e9),
+                    stats.latency.percentileMillis(0.50), stats.latency.percentileMillis(0.90),
+                    stats.latency.percentileMillis(0.99), stats.latency.percentileMillis(0.999),
+                    stats.latency.percentileMillis(1.0), stats.errors)));
+            return text.append(String.format("total %.0f req/s, %d requests, %d errors%n",
+                    throughput(), requests(), errors())).toString();
+        }
+
+        private static Map<String, Double> percentiles(LatencyHistogram histogram) {
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("p50", histogram.percentileMillis(0.50));
+            values.put("p90", histogram.percentileMillis(0.90));
+            values.put("p99", histogram.percentileMillis(0.99));
+            values.put("p999", histogram.percentileMillis(0.999));
+            values.put("max", histogram.percentileMillis(1.0));
+            return values;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.restfull_books.perf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Нагрузочный прогон REST API на встроенном сервере: смесь чтений, создания, PATCH и удаления.
+// Отчёт с пропускной способностью и перцентилями (с поправкой на coordinated omission) — в target/load-report.json.
+// Запуск: mvn test -Dtest=LoadTest -Dperf=true [-Dload.concurrency=32 -Dload.seconds=30 -Dload.rate=1000
+//         -Dload.mix=GET_BOOK=70,CREATE_BOOK=10,PATCH_USER=15,DELETE_BOOK=5 -Dload.report=target/load-report.json]
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class LoadTest {
+
+    private static final LoadGenerator.Config CONFIG = new LoadGenerator.Config(
+            Integer.getInteger("load.concurrency", 32),
+            Duration.ofSeconds(Long.getLong("load.seconds", 30)),
+            Double.parseDouble(System.getProperty("load.rate", "1000")),
+            LoadGenerator.Config.parseMix(System.getProperty("load.mix",
+                    "GET_BOOK=70,CREATE_BOOK=10,PATCH_USER=15,DELETE_BOOK=5")));
+
+    @Test
+    void mixedWorkload() throws Exception {
+        try (EmbeddedApp app = EmbeddedApp.start()) {
+            LoadGenerator generator = new LoadGenerator(app.baseUrl);
+            try {
+                generator.seed(Integer.getInteger("load.books", 10_000), Integer.getInteger("load.users", 1_000));
+                generator.run(new LoadGenerator.Config(CONFIG.concurrency(), Duration.ofSeconds(5),
+                        CONFIG.rate(), CONFIG.mix())); // прогрев JIT, пулов соединений и кэшей
+
+                LoadGenerator.Report report = generator.run(CONFIG);
+                report.writeJson(Path.of(System.getProperty("load.report", "target/load-report.json")));
+                System.out.printf("%nconcurrency=%d, %ds, target rate %.0f req/s%n%s",
+                        CONFIG.concurrency(), CONFIG.duration().toSeconds(), CONFIG.rate(), report.format());
+
+                assertTrue(report.requests() > 0);
+                assertTrue(report.errors() <= report.requests() / 100, "more than 1% of requests failed");
+            } finally {
+                generator.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.restfull_books.perf;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Время холодного старта: от запуска JVM до первого ответа 200 на GET /books?limit=1.
+// Сравниваются обычный fat jar (ddl-auto: update, все бины сразу) и сборка профиля fast-start
+// (распакованный jar, архив CDS, AOT, lazy init, Flyway). У каждого режима своя файловая H2 со схемой —
+// как у нового экземпляра, который поднимается при всплеске нагрузки; первый запуск создаёт схему и не считается.
+// Запускается из mvn -Pfast-start verify; аргументы: <java> <fat jar> <каталог fast-start> <число замеров>
+public final class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final String java;
+    private final Path logs;
+
+    private StartupBenchmark(String java, Path logs) {
+        this.java = java;
+        this.logs = logs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String java = args[0];
+        Path fatJar = Path.of(args[1]).toAbsolutePath();
+        Path fastStartDir = Path.of(args[2]).toAbsolutePath();
+        int runs = Integer.parseInt(args[3]);
+        Path work = fatJar.getParent().resolve("startup-benchmark");
+        Files.createDirectories(work);
+
+        StartupBenchmark benchmark = new StartupBenchmark(java, work);
+        long[] standard = benchmark.measure("default", runs, fatJar.getParent(), List.of(
+                "-jar", fatJar.toString()));
+        long[] fastStart = benchmark.measure("fast-start", runs, fastStartDir, List.of(
+                "-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true",
+                "-jar", fatJar.getFileName().toString(), "--spring.profiles.active=fast-start"));
+
+        System.out.printf("%nTime to first successful GET /books (ms), %d runs%n", runs);
+        System.out.printf("%-12s %8s %8s %8s%n", "mode", "min", "median", "max");
+        print("default", standard);
+        print("fast-start", fastStart);
+        System.out.printf("speedup (median): %.2fx%n", (double) median(standard) / median(fastStart));
+    }
+
+    private long[] measure(String mode, int runs, Path workingDir, List<String> launch) throws Exception {
+        String dbUrl = "jdbc:h2:file:" + logs.resolve(mode + "-db").toAbsolutePath();
+        startOnce(mode + "-warmup", workingDir, launch, dbUrl); // создаёт схему в файле H2
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = startOnce(mode + "-" + i, workingDir, launch, dbUrl);
+        }
+        return millis;
+    }
+
+    private long startOnce(String name, Path workingDir, List<String> launch, String dbUrl) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(launch);
+        command.addAll(List.of("--server.port=" + port, "--spring.datasource.url=" + dbUrl,
+                "--spring.jpa.show-sql=false", "--logging.level.root=WARN"));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logs.resolve(name + ".log").toFile())
+                .start();
+        try {
+            awaitFirstSuccess(process, port, name);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private void awaitFirstSuccess(Process process, int port, String name) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/books?limit=1"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + logs.resolve(name + ".log"));
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // порт ещё не открыт
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException(name + " did not answer within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(String mode, long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-12s %8d %8d %8d%n", mode, sorted[0], median(millis), sorted[sorted.length - 1]);
+    }
+
+    private static long median(long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.restfull_books.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "org.example.restfull_books.repository.BookRepositoryTest$CapturedSql")
+public class BookRepositoryTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            books.add(new Book(0, "Книга " + i, 100 * i, i % 2 == 0 ? "Булгаков" : "Толстой"));
+        }
+        bookRepository.saveAll(books);
+    }
+
+    @Test
+    void findPageWalksAllRowsInIdOrder() {
+        // Проходим всю таблицу страницами по 3 строки, передавая последний id как курсор
+        List<Long> seen = new ArrayList<>();
+        long after = 0;
+        List<BookView> page;
+        do {
+            page = bookRepository.findPage(after, Limit.of(3));
+            page.forEach(book -> seen.add(book.getId()));
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 3);
+
+        assertEquals(10, seen.size());
+        // id строго возрастают — ни пропусков, ни повторов между страницами
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i) > seen.get(i - 1));
+        }
+    }
+
+    @Test
+    void findPageByAuthorAppliesPriceFilter() {
+        List<BookView> page = bookRepository.findPageByAuthor("Булгаков", 0, 200, 600, Limit.of(50));
+
+        // Булгаков — чётные книги: цены 200, 400, 600
+        assertEquals(List.of(200, 400, 600), page.stream().map(BookView::getPrice).toList());
+        assertTrue(page.stream().allMatch(book -> book.getAuthor().equals("Булгаков")));
+    }
+
+    @Test
+    void findPageByPriceWalksRangeInPriceOrder() {
+        bookRepository.save(new Book(0, "Ещё одна", 500, "Пушкин"));
+
+        // Курсор — цена и id последней строки: две книги с ценой 500 не теряются на границе страниц
+        List<BookView> first = bookRepository.findPageByPrice(300, 0, 800, Limit.of(3));
+        BookView last = first.get(2);
+        List<BookView> second = bookRepository.findPageByPrice(last.getPrice(), last.getId(), 800, Limit.of(10));
+
+        assertEquals(List.of(300, 400, 500), first.stream().map(BookView::getPrice).toList());
+        assertEquals(List.of(500, 600, 700, 800), second.stream().map(BookView::getPrice).toList());
+    }
+
+    // Запоминает SQL, который Hibernate отправляет в JDBC: план смотрим у сгенерированного запроса, а не у копии
+    public static class CapturedSql implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        static String last() {
+            return statements.get(statements.size() - 1);
+        }
+    }
+
+    // План H2 для запросов findPageByAuthor и findPageByPrice: поиск идёт по индексу, а не сканом таблицы.
+    // Оптимизатор H2 учитывает селективность столбцов: на 10 строках скан по первичному ключу дешевле любого индекса,
+    // поэтому добавляем строки с разными ценами и собираем статистику (на рабочей базе H2 делает ANALYZE сам).
+    // EXPLAIN получает SQL с параметрами ?, без значений — как план строится для подготовленного запроса
+    @Test
+    void explainUsesSecondaryIndexes() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            books.add(new Book(0, "Том " + i, 1000 + i, "Автор " + i % 200));
+        }
+        bookRepository.saveAll(books);
+        bookRepository.flush();
+        entityManager.createNativeQuery("analyze").executeUpdate();
+
+        bookRepository.findPageByAuthor("Булгаков", 0, 0, 1000, Limit.of(51));
+        String byAuthor = explain(CapturedSql.last());
+        bookRepository.findPageByPrice(300, 0, 1500, Limit.of(51));
+        String byPrice = explain(CapturedSql.last());
+
+        assertTrue(byAuthor.contains("IDX_BOOKS_AUTHOR_ID"), byAuthor);
+        assertTrue(byPrice.contains("IDX_BOOKS_PRICE_ID"), byPrice);
+        // Порядок строк даёт сам индекс: без сортировки, чтение останавливается на лимите
+        assertTrue(byAuthor.contains("index sorted"), byAuthor);
+        assertTrue(byPrice.contains("index sorted"), byPrice);
+    }
+
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql);
+                 ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        });
+    }
+
+    @Test
+    void bulkDeleteRemovesOnlyMatchingIds() {
+        List<Long> ids = bookRepository.findIds(0, "Толстой", null, 400, Limit.of(50));
+        // Толстой — нечётные книги: цены 100 и 300
+        assertEquals(2, ids.size());
+
+        assertEquals(2, bookRepository.deleteAllByIds(ids));
+        assertEquals(8, bookRepository.count());
+        // Повторное удаление тех же id ничего не затрагивает
+        assertEquals(0, bookRepository.deleteOne(ids.get(0)));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.restfull_books.repository;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.exception.ConflictException;
+import org.example.restfull_books.patch.MergePatchExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:id-sequences;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+public class IdSequencesTest {
+
+    @Autowired
+    private IdSequences idSequences;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private MergePatchExecutor mergePatchExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // БД времён IDENTITY: строки с id до 1000 есть, последовательность только что создана с 1.
+    // После согласования новые id идут за max(id)
+    @Test
+    void restartsSequenceAfterExistingRows() {
+        jdbcTemplate.update("insert into users (id, first_name, last_name, version) values (1000, 'Лев', 'Толстой', 0)");
+        jdbcTemplate.execute("alter sequence users_seq restart with 1");
+
+        idSequences.afterSingletonsInstantiated();
+        User first = userRepository.save(new User(0, "Антон", "Чехов"));
+        User second = userRepository.save(new User(0, "Иван", "Тургенев"));
+
+        assertTrue(first.getId() > 1000);
+        assertEquals(first.getId() + 1, second.getId());
+    }
+
+    // id из диапазона, который оптимизатор уже взял себе, создать нельзя: он достанется следующему save
+    @Test
+    void rejectsUpsertOfReservedId() {
+        Book saved = bookRepository.save(new Book(0, "Бег", 100, "Булгаков"));
+        long reserved = saved.getId() + 1;
+
+        assertThrows(ConflictException.class, () -> mergePatchExecutor.upsert(
+                new Book(reserved, "Морфий", 200, "Булгаков"), reserved, null));
+        assertEquals(reserved, bookRepository.save(new Book(0, "Дьяволиада", 300, "Булгаков")).getId());
+        // Существующая строка обновляется, какой бы id у неё ни был
+        assertEquals(1L, mergePatchExecutor.upsert(new Book(reserved, "Дьяволиада", 350, "Булгаков"), reserved, null));
+    }
+
+    // id впереди последовательности — близко (nextval-ами) и далеко (перезапуском): save его потом не выдаёт
+    @Test
+    void claimsIdAheadOfSequence() {
+        long base = bookRepository.save(new Book(0, "Белая гвардия", 400, "Булгаков")).getId();
+        long near = base + 120;
+        long far = base + 10_000_000;
+
+        assertEquals(0L, mergePatchExecutor.upsert(new Book(near, "Бег", 100, "Булгаков"), near, null));
+        assertEquals(0L, mergePatchExecutor.upsert(new Book(far, "Морфий", 200, "Булгаков"), far, null));
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(bookRepository.save(new Book(0, "Книга " + i, i, "Булгаков")).getId());
+        }
+
+        assertEquals(200, ids.size());
+        assertFalse(ids.contains(near));
+        assertFalse(ids.contains(far));
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.restfull_books.repository;
+
+import org.example.restfull_books.entity.Book;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Профиль fast-start отдаёт схему Flyway: миграции должны совпадать с сущностями.
+// ddl-auto: validate — контекст не поднимется, если таблицы, столбца или последовательности из маппинга нет
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+public class SchemaMigrationTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrationsMatchEntityMapping() {
+        bookRepository.save(new Book(0, "Белая гвардия", 400, "Булгаков"));
+        assertEquals(1, bookRepository.count());
+
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select index_name from information_schema.indexes where table_name = 'BOOKS'", String.class);
+        assertTrue(indexes.containsAll(List.of("IDX_BOOKS_AUTHOR_ID", "IDX_BOOKS_PRICE_ID", "IDX_BOOKS_TITLE")));
+    }
+}
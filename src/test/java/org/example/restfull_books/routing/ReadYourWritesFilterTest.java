@@ -0,0 +1,84 @@
+package org.example.restfull_books.routing;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.restfull_books.admission.ClientKeyResolver;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadYourWritesFilterTest {
+
+    private static final long WINDOW = 5_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(WINDOW, new ClientKeyResolver("X-Client-Id"), 100, now::get);
+
+    // Откуда читал бы обработчик запроса
+    private boolean readsFromPrimary(String method, String client) throws Exception {
+        return readsFromPrimary(filter, method, client);
+    }
+
+    private boolean readsFromPrimary(ReadYourWritesFilter filter, String method, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/books/1");
+        request.addHeader("X-Client-Id", client);
+        AtomicBoolean primary = new AtomicBoolean();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                primary.set(ReplicaRoutingDataSource.readsFromPrimary());
+            }
+        }));
+        assertFalse(ReplicaRoutingDataSource.readsFromPrimary());
+        return primary.get();
+    }
+
+    @Test
+    void readsGoToReplicasByDefault() throws Exception {
+        assertFalse(readsFromPrimary("GET", "a"));
+    }
+
+    // Запрос на запись и чтения того же клиента в течение окна — с основной БД; другие клиенты читают с реплик
+    @Test
+    void clientReadsItsWritesFromPrimaryWithinWindow() throws Exception {
+        assertTrue(readsFromPrimary("POST", "a"));
+
+        now.addAndGet(WINDOW - 1);
+        assertTrue(readsFromPrimary("GET", "a"));
+        assertFalse(readsFromPrimary("GET", "b"));
+
+        now.addAndGet(1);
+        assertFalse(readsFromPrimary("GET", "a"));
+    }
+
+    // Карта клиентов заполнена, и чистить нечего: новый писатель не добавляет ключ, а попадает в общее окно —
+    // его чтения, как и чтения других незнакомых клиентов, идут на основную БД, пока окно открыто
+    @Test
+    void clientsBeyondLimitShareOverflowWindow() throws Exception {
+        ReadYourWritesFilter small = new ReadYourWritesFilter(WINDOW, new ClientKeyResolver("X-Client-Id"), 2, now::get);
+        assertTrue(readsFromPrimary(small, "POST", "a"));
+        assertTrue(readsFromPrimary(small, "POST", "b"));
+        assertFalse(readsFromPrimary(small, "GET", "c"));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(readsFromPrimary(small, "POST", "client-" + i));
+        }
+        assertEquals(3, small.stickyClients());
+        assertTrue(readsFromPrimary(small, "GET", "client-42"));
+        assertTrue(readsFromPrimary(small, "GET", "c"));
+
+        // Окна истекли: следующая запись чистит карту и снова получает своё окно
+        now.addAndGet(WINDOW + 1_000_000_000L);
+        assertFalse(readsFromPrimary(small, "GET", "client-42"));
+        assertTrue(readsFromPrimary(small, "POST", "d"));
+        assertEquals(1, small.stickyClients());
+        assertFalse(readsFromPrimary(small, "GET", "c"));
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.restfull_books.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Основная БД и две реплики — отдельные H2 в памяти, в каждой своё имя в таблице node
+public class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = node("primary");
+    private final FlakyDataSource replica1 = new FlakyDataSource(node("replica-1"));
+    private final FlakyDataSource replica2 = new FlakyDataSource(node("replica-2"));
+    private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica1, replica2),
+            null, Duration.ofSeconds(1));
+
+    // Как в ReplicaRoutingConfig
+    private final LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    private final TransactionTemplate reads = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    private final TransactionTemplate writes = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    {
+        dataSource.setReadOnlyDataSource(routing);
+        reads.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.setReadsFromPrimary(false);
+    }
+
+    private static DataSource node(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(32))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String readNode() {
+        return reads.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private String writeNode() {
+        return writes.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    // Транзакции только на чтение — по репликам по кругу, остальные — в основную БД
+    @Test
+    void routesReadOnlyTransactionsToReplicasRoundRobin() {
+        Set<String> nodes = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(readNode());
+        }
+
+        assertEquals(Set.of("replica-1", "replica-2"), nodes);
+        assertEquals("primary", writeNode());
+        assertEquals(4, routing.replicaReadCount());
+    }
+
+    @Test
+    void readsFromPrimaryWhenClientIsSticky() {
+        ReplicaRoutingDataSource.setReadsFromPrimary(true);
+
+        assertEquals("primary", readNode());
+        assertEquals(1, routing.primaryReadCount());
+    }
+
+    // Реплика, не отдавшая соединение, выбывает сразу; без живых реплик читает основная БД
+    @Test
+    void failsOverToNextReplicaAndThenToPrimary() {
+        replica1.down = true;
+
+        assertEquals("replica-2", readNode());
+        assertEquals("replica-2", readNode());
+        assertEquals(1, routing.healthyReplicas());
+
+        replica2.down = true;
+        assertEquals("primary", readNode());
+        assertEquals(0, routing.healthyReplicas());
+    }
+
+    // Вернувшаяся реплика снова получает чтения после удачной проверки здоровья
+    @Test
+    void healthCheckReturnsRecoveredReplica() {
+        replica1.down = true;
+        replica2.down = true;
+        assertEquals("primary", readNode());
+
+        replica1.down = false;
+        assertEquals("primary", readNode());
+        routing.checkHealth();
+
+        assertEquals(1, routing.healthyReplicas());
+        assertEquals("replica-1", readNode());
+    }
+
+    // Реплика, которую можно «выключить»
+    private static final class FlakyDataSource extends DelegatingDataSource {
+        volatile boolean down;
+
+        FlakyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.restfull_books.routing;
+
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.service.BookService;
+import org.example.restfull_books.service.UserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Две H2 в памяти вместо реплик: схему (миграции db/migration) и по одному «реплицированному» пользователю
+// и книге в них создаёт тест, в основную БД пишет только приложение — по тому, чьи строки вернулись, видно, куда ушёл запрос
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replicas=" + ReplicaRoutingIntegrationTest.REPLICA_1 + "," + ReplicaRoutingIntegrationTest.REPLICA_2,
+        "app.datasource.health-check-interval=1h",
+        "spring.jpa.show-sql=false"
+})
+public class ReplicaRoutingIntegrationTest {
+
+    static final String REPLICA_1 = "jdbc:h2:mem:routing-replica-1;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2 = "jdbc:h2:mem:routing-replica-2;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BookService bookService;
+
+    @BeforeAll
+    static void createReplicas() throws SQLException {
+        createReplica(REPLICA_1, "Реплика-1");
+        createReplica(REPLICA_2, "Реплика-2");
+    }
+
+    private static void createReplica(String url, String name) throws SQLException {
+        Flyway.configure().dataSource(url, "root", "root").load().migrate();
+        try (Connection connection = DriverManager.getConnection(url, "root", "root");
+             PreparedStatement user = connection.prepareStatement(
+                     "MERGE INTO users (id, first_name, last_name, version) KEY (id) VALUES (1, ?, 'Реплика', 0)");
+             PreparedStatement book = connection.prepareStatement(
+                     "MERGE INTO books (id, title, price, author, version) KEY (id) VALUES (1, ?, 100, 'Реплика', 0)")) {
+            user.setString(1, name);
+            user.executeUpdate();
+            book.setString(1, name);
+            book.executeUpdate();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.setReadsFromPrimary(false);
+    }
+
+    private List<String> firstNames() {
+        return userService.getPage(0, 50).getItems().stream().map(User::getFirstName).toList();
+    }
+
+    // @Transactional(readOnly = true) сервиса — по репликам по кругу
+    @Test
+    void readOnlyTransactionsGoToReplicas() {
+        Set<String> names = new HashSet<>();
+        names.addAll(firstNames());
+        names.addAll(firstNames());
+
+        assertEquals(Set.of("Реплика-1", "Реплика-2"), names);
+    }
+
+    // GET /books (страница, фильтр по автору, по цене) и версия для If-None-Match — тоже с реплик:
+    // транзакции только на чтение у JpaBookStore
+    @Test
+    void bookReadsGoToReplicas() {
+        Set<String> titles = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            titles.addAll(bookTitles(bookService.getPage(0, 50, null, null, null, null).getItems()));
+        }
+        assertEquals(Set.of("Реплика-1", "Реплика-2"), titles);
+        // В основной БД книг нет: найденная книга может быть только с реплики
+        assertEquals(1, bookService.getPage(0, 50, "Реплика", null, null, null).getItems().size());
+        assertEquals(1, bookService.getPage(0, 50, null, 0, 1000, null).getItems().size());
+        assertEquals(0L, bookService.getBookVersion(1));
+    }
+
+    private static List<String> bookTitles(List<BookView> books) {
+        return books.stream().map(BookView::getTitle).toList();
+    }
+
+    // Запись — в основную БД; прочесть её сразу можно только оттуда
+    @Test
+    void writesGoToPrimary() {
+        userService.save(new User(0, "Михаил", "Булгаков"));
+
+        assertFalse(firstNames().contains("Михаил"));
+        ReplicaRoutingDataSource.setReadsFromPrimary(true);
+        assertTrue(firstNames().contains("Михаил"));
+        assertFalse(firstNames().contains("Реплика-1"));
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.restfull_books.search;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.util.Tombstones;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookSearchIndexTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex(new Tombstones(BookSearchIndex.TOMBSTONE_TTL, now::get));
+        index.index(new Book(1L, "Мастер и Маргарита", 500, "Михаил Булгаков"));
+        index.index(new Book(2L, "Белая гвардия", 400, "Михаил Булгаков"));
+        index.index(new Book(3L, "Война и мир", 900, "Лев Толстой"));
+        index.index(new Book(4L, "Мастерская", 100, "Толстой"));
+    }
+
+    @Test
+    void tokenizeIsCaseInsensitiveAndSplitsOnPunctuation() {
+        assertArrayEquals(new String[]{"война", "и", "мир", "т", "1"}, BookSearchIndex.tokenize("Война и МИР, т.1"));
+        assertArrayEquals(new String[]{"еж"}, BookSearchIndex.tokenize("Ёж"));
+    }
+
+    @Test
+    void exactTitleMatchRanksAbovePrefixMatch() {
+        // "мастер" — целое слово в книге 1 и префикс "мастерская" в книге 4
+        assertArrayEquals(new long[]{1L, 4L}, index.search("МАСТЕР", 10));
+    }
+
+    @Test
+    void allQueryWordsMustMatch() {
+        assertArrayEquals(new long[]{3L}, index.search("толст мир", 10));
+        assertArrayEquals(new long[0], index.search("булгаков мир", 10));
+    }
+
+    @Test
+    void authorMatchesAndLimitKeepsBestResults() {
+        assertArrayEquals(new long[]{1L, 2L}, index.search("булгаков", 10));
+        assertArrayEquals(new long[]{1L}, index.search("булгаков", 1));
+    }
+
+    @Test
+    void reindexAndRemoveUpdatePostings() {
+        index.index(new Book(2L, "Собачье сердце", 300, "Михаил Булгаков"));
+        assertArrayEquals(new long[0], index.search("гвардия", 10));
+        assertArrayEquals(new long[]{2L}, index.search("собач", 10));
+
+        index.remove(1L);
+        assertArrayEquals(new long[]{2L}, index.search("булгаков", 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void lateIndexOfOlderVersionIsIgnored() {
+        index.index(book(2L, "Собачье сердце", 2));
+        index.index(book(2L, "Роковые яйца", 1));
+
+        assertArrayEquals(new long[]{2L}, index.search("собач", 10));
+        assertArrayEquals(new long[0], index.search("роковые", 10));
+    }
+
+    @Test
+    void removedBookIsNotResurrectedUntilTombstoneExpires() {
+        index.remove(3L);
+        index.index(book(3L, "Война и мир", 5));
+        assertArrayEquals(new long[0], index.search("война", 10));
+        assertEquals(3, index.size());
+
+        // Книга создана заново с тем же id
+        index.revive(3L);
+        index.index(book(3L, "Анна Каренина", 0));
+        assertArrayEquals(new long[]{3L}, index.search("анна", 10));
+
+        index.remove(4L);
+        now.addAndGet(BookSearchIndex.TOMBSTONE_TTL.toNanos());
+        index.index(book(4L, "Мастерская", 1));
+        assertArrayEquals(new long[]{1L, 4L}, index.search("мастер", 10));
+    }
+
+    private static Book book(long id, String title, long version) {
+        Book book = new Book(id, title, 100, "Михаил Булгаков");
+        book.setVersion(version);
+        return book;
+    }
+}
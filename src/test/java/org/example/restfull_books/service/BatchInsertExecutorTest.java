@@ -0,0 +1,110 @@
+package org.example.restfull_books.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.entity.User;
+import org.example.restfull_books.importer.TableImportProgressStore;
+import org.example.restfull_books.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Порции по 2 строки: по числу транзакций видно, какие порции вставлены целиком, а какие повторены поштучно
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:batch-insert;DB_CLOSE_DELAY=-1",
+        "app.batch.chunk-size=2",
+        "spring.jpa.show-sql=false"
+})
+public class BatchInsertExecutorTest {
+
+    @Autowired
+    private BatchInsertExecutor executor;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TableImportProgressStore progress;
+
+    private List<BatchItemResult> insert(List<User> users) {
+        return executor.insertAll(users, userRepository, User::getId, user -> {
+            user.setId(0);
+            user.setVersion(null);
+        });
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    void insertsEachChunkInOneTransaction() {
+        Statistics statistics = statistics();
+
+        List<BatchItemResult> results = insert(List.of(new User(0, "Анна", "Ахматова"),
+                new User(0, "Марина", "Цветаева"), new User(0, "Осип", "Мандельштам")));
+
+        assertEquals(List.of("CREATED", "CREATED", "CREATED"), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(0, 1, 2), results.stream().map(BatchItemResult::getIndex).toList());
+        assertEquals(2, statistics.getTransactionCount());
+        assertEquals(3, statistics.getEntityInsertCount());
+        assertEquals("Осип", userRepository.findById(results.get(2).getId()).orElseThrow().getFirstName());
+    }
+
+    // Порция со строкой длиннее колонки (varchar 255) откатывается и повторяется поштучно: ошибка — только у этой строки,
+    // её соседка по порции и следующие порции вставлены
+    @Test
+    void retriesFailedChunkRowByRow() {
+        long before = userRepository.count();
+        Statistics statistics = statistics();
+
+        List<BatchItemResult> results = insert(List.of(new User(0, "Иван", "Бунин"),
+                new User(0, "Борис", "Пастернак"), new User(0, "Михаил", "Шолохов"),
+                new User(0, "Слишком", "длинная фамилия".repeat(50)), new User(0, "Иосиф", "Бродский")));
+
+        assertEquals(List.of("CREATED", "CREATED", "CREATED", "FAILED", "CREATED"),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(BatchItemResult.CONSTRAINT_VIOLATION, results.get(3).getError());
+        assertNull(results.get(3).getId());
+        // 3 порции + 2 поштучные вставки из откатившейся порции
+        assertEquals(5, statistics.getTransactionCount());
+        assertEquals(3, statistics.getSuccessfulTransactionCount());
+        assertEquals(before + 4, userRepository.count());
+        assertEquals("Шолохов", userRepository.findById(results.get(2).getId()).orElseThrow().getLastName());
+    }
+
+    // Контрольная точка импорта пишется в транзакции порции и откатывается вместе с ней:
+    // строка 1 «падает» после записи своей точки — ни строки, ни точки; точка остаётся на последней вставленной
+    @Test
+    void commitsCheckpointInChunkTransaction() {
+        long before = userRepository.count();
+
+        List<BatchItemResult> results = executor.insertAll(List.of(new User(0, "Иван", "Гончаров"),
+                new User(0, "Николай", "Гоголь"), new User(0, "Антон", "Чехов")), userRepository, User::getId, user -> {
+            user.setId(0);
+            user.setVersion(null);
+        }, index -> {
+            progress.save("users-checkpoint", 0, index);
+            if (index == 1) {
+                throw new IllegalStateException("row 1 fails after its checkpoint");
+            }
+        });
+
+        assertEquals(List.of("CREATED", "FAILED", "CREATED"), results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(before + 2, userRepository.count());
+        assertEquals(Map.of(0, 2L), progress.load("users-checkpoint"));
+        progress.delete("users-checkpoint");
+    }
+}
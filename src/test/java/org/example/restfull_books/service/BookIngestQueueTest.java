@@ -0,0 +1,233 @@
+package org.example.restfull_books.service;
+
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.IngestStatus;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.NotFoundException;
+import org.example.restfull_books.exception.ServiceUnavailableException;
+import org.example.restfull_books.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookIngestQueueTest {
+
+    private final BookService bookService = mock(BookService.class);
+    // Списки книг, переданные в saveAll: по одному на групповой коммит
+    private final List<List<Book>> commits = new CopyOnWriteArrayList<>();
+    // Первый коммит ждёт, пока тест не отпустит писателя: за это время в очереди копится следующая группа
+    private final CountDownLatch firstCommitStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseWriter = new CountDownLatch(1);
+    private BookIngestQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        releaseWriter.countDown();
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    private BookIngestQueue start(int capacity, int maxBatch) {
+        return start(capacity, maxBatch, Duration.ofSeconds(10));
+    }
+
+    private BookIngestQueue start(int capacity, int maxBatch, Duration shutdownTimeout) {
+        when(bookService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Book> books = new ArrayList<>(invocation.getArgument(0));
+            commits.add(books);
+            firstCommitStarted.countDown();
+            releaseWriter.await(10, TimeUnit.SECONDS);
+            List<BatchItemResult> results = new ArrayList<>();
+            for (int i = 0; i < books.size(); i++) {
+                results.add(BatchItemResult.created(i, 100L + books.get(i).getPrice()));
+            }
+            return results;
+        });
+        queue = new BookIngestQueue(bookService, "async", capacity, maxBatch, 1000, shutdownTimeout);
+        queue.start();
+        return queue;
+    }
+
+    private static Book book(int price) {
+        return new Book(0L, "Книга " + price, price, "Автор");
+    }
+
+    private void awaitDone(long trackingId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ("PENDING".equals(queue.status(trackingId).getStatus())) {
+            assertTrue(System.nanoTime() < deadline, "book " + trackingId + " was not written");
+            Thread.sleep(5);
+        }
+    }
+
+    // Пока идёт первый коммит, накопившиеся книги уходят следующим одним коммитом, а не по одной
+    @Test
+    void groupsQueuedBooksIntoOneCommit() throws Exception {
+        start(100, 500);
+        queue.submit(book(1));
+        assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+
+        List<IngestStatus> accepted = new ArrayList<>();
+        for (int price = 2; price <= 6; price++) {
+            accepted.add(queue.submit(book(price)));
+        }
+        releaseWriter.countDown();
+        awaitDone(accepted.get(4).getTrackingId());
+
+        assertEquals(2, commits.size());
+        assertEquals(5, commits.get(1).size());
+        IngestStatus status = queue.status(accepted.get(0).getTrackingId());
+        assertEquals("CREATED", status.getStatus());
+        assertEquals(102L, status.getBookId());
+        assertEquals(2, queue.stats().getBatches());
+        assertEquals(6, queue.stats().getCreated());
+    }
+
+    // Группа не больше max-batch
+    @Test
+    void splitsGroupsByMaxBatch() throws Exception {
+        start(100, 2);
+        queue.submit(book(1));
+        assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+        IngestStatus last = null;
+        for (int price = 2; price <= 6; price++) {
+            last = queue.submit(book(price));
+        }
+        releaseWriter.countDown();
+        awaitDone(last.getTrackingId());
+
+        assertEquals(4, commits.size());
+        commits.forEach(commit -> assertTrue(commit.size() <= 2));
+    }
+
+    // Очередь полна: 429 с Retry-After, книга не принята
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        start(2, 500);
+        queue.submit(book(1));
+        assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+        queue.submit(book(2));
+        queue.submit(book(3));
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> queue.submit(book(4)));
+        assertEquals(1L, e.retryAfterSeconds());
+        assertEquals(2, queue.stats().getQueued());
+        assertEquals(1, queue.stats().getRejected());
+        assertEquals(3, queue.stats().getAccepted());
+    }
+
+    // Остановка приложения: очередь дописывается до конца, новые книги не принимаются — 503, а не 429
+    @Test
+    void stopFlushesQueue() throws Exception {
+        start(100, 500);
+        queue.submit(book(1));
+        assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+        List<IngestStatus> accepted = new ArrayList<>();
+        for (int price = 2; price <= 20; price++) {
+            accepted.add(queue.submit(book(price)));
+        }
+
+        Thread stopper = Thread.ofPlatform().start(queue::stop);
+        Thread.sleep(50);
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> queue.submit(book(21)));
+        assertEquals(1L, e.retryAfterSeconds());
+        releaseWriter.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(queue.isRunning());
+        assertEquals(20, queue.stats().getCreated());
+        accepted.forEach(status -> assertEquals("CREATED", queue.status(status.getTrackingId()).getStatus()));
+    }
+
+    // Писатель не уложился в shutdown-timeout: книги, до которых он не дошёл, получают FAILED, а не остаются PENDING
+    @Test
+    void stopFailsQueuedBooksAfterTimeout() throws Exception {
+        start(100, 500, Duration.ofMillis(100));
+        IngestStatus inFlight = queue.submit(book(1));
+        assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+        List<IngestStatus> queued = new ArrayList<>();
+        for (int price = 2; price <= 5; price++) {
+            queued.add(queue.submit(book(price)));
+        }
+
+        queue.stop();
+
+        queued.forEach(status -> {
+            IngestStatus abandoned = queue.status(status.getTrackingId());
+            assertEquals("FAILED", abandoned.getStatus());
+            assertTrue(abandoned.getError().contains("stopped"));
+        });
+        assertEquals(0, queue.stats().getQueued());
+        assertEquals(4, queue.stats().getFailed());
+        // Текущую группу писатель дописывает сам
+        releaseWriter.countDown();
+        awaitDone(inFlight.getTrackingId());
+        assertEquals("CREATED", queue.status(inFlight.getTrackingId()).getStatus());
+        assertEquals(1, commits.size());
+    }
+
+    // Приём и остановка наперегонки: каждая принятая книга записана, ни одна не осталась PENDING
+    @Test
+    void acceptedBooksAreWrittenWhenStopRacesSubmit() throws Exception {
+        // 4 × 200 книг — меньше status-retention, статус каждой ещё можно прочесть
+        releaseWriter.countDown();
+        start(1000, 500);
+        List<IngestStatus> accepted = new CopyOnWriteArrayList<>();
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            submitters.add(Thread.ofPlatform().start(() -> {
+                for (int price = 0; price < 200; price++) {
+                    try {
+                        accepted.add(queue.submit(book(price)));
+                    } catch (ServiceUnavailableException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        queue.stop();
+        for (Thread submitter : submitters) {
+            submitter.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        accepted.forEach(status -> assertEquals("CREATED", queue.status(status.getTrackingId()).getStatus()));
+        assertEquals(accepted.size(), queue.stats().getCreated());
+    }
+
+    // Ошибка всей группы: каждая книга группы получает FAILED с постоянной причиной, без текста исключения
+    @Test
+    void marksBatchFailedOnError() throws Exception {
+        when(bookService.saveAll(anyList())).thenThrow(new IllegalStateException("database is down"));
+        queue = new BookIngestQueue(bookService, "async", 100, 500, 1000, Duration.ofSeconds(10));
+        queue.start();
+
+        IngestStatus accepted = queue.submit(book(1));
+        awaitDone(accepted.getTrackingId());
+
+        IngestStatus status = queue.status(accepted.getTrackingId());
+        assertEquals("FAILED", status.getStatus());
+        assertEquals(BookIngestQueue.WRITE_FAILED, status.getError());
+        assertEquals(1, queue.stats().getFailed());
+    }
+
+    // Синхронный режим: писатель не запускается, неизвестный trackingId — 404
+    @Test
+    void syncModeIsDisabled() {
+        queue = new BookIngestQueue(bookService, "sync", 100, 500, 1000, Duration.ofSeconds(10));
+        queue.start();
+
+        assertFalse(queue.isEnabled());
+        assertFalse(queue.isRunning());
+        assertThrows(NotFoundException.class, () -> queue.status(1));
+    }
+}
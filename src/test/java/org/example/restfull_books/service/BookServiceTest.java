@@ -0,0 +1,223 @@
+package org.example.restfull_books.service;
+
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.dto.KeysetPage;
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.exception.InvalidCursorException;
+import org.example.restfull_books.exception.InvalidPatchException;
+import org.example.restfull_books.exception.NotFoundException;
+import org.example.restfull_books.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Поведение BookService не зависит от хранилища: одни и те же проверки для app.store.type=jpa
+// (JpaBookServiceTest) и memory (MemoryBookServiceTest). Контекст общий для всех тестов подкласса,
+// поэтому у каждого теста свой автор, а выборки по цене — в диапазоне, которого нет у других тестов
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.jpa.show-sql=false")
+public abstract class BookServiceTest {
+
+    @Autowired
+    protected BookService bookService;
+
+    private final String author = "Автор" + UUID.randomUUID().toString().replace("-", "");
+
+    private Book save(String title, int price) {
+        return bookService.save(new Book(0, title, price, author));
+    }
+
+    @Test
+    void savedBookIsReadBack() {
+        Book saved = save("Мастер и Маргарита", 500);
+
+        assertTrue(saved.getId() > 0);
+        assertEquals(0L, saved.getVersion());
+        Book read = bookService.getByBookId(saved.getId());
+        assertEquals("Мастер и Маргарита", read.getTitle());
+        assertEquals(500, read.getPrice());
+        assertEquals(author, read.getAuthor());
+        assertEquals(0L, bookService.getBookVersion(saved.getId()));
+        assertThrows(NotFoundException.class, () -> bookService.getByBookId(Long.MAX_VALUE));
+    }
+
+    @Test
+    void saveAllAssignsIdsInOrder() {
+        List<Book> books = List.of(new Book(0, "Первая", 100, author), new Book(0, "Вторая", 200, author));
+
+        List<BatchItemResult> results = bookService.saveAll(books);
+
+        assertEquals(2, results.size());
+        for (BatchItemResult result : results) {
+            assertEquals("CREATED", result.getStatus());
+            assertEquals(books.get(result.getIndex()).getTitle(), bookService.getByBookId(result.getId()).getTitle());
+        }
+        assertTrue(results.get(0).getId() < results.get(1).getId());
+    }
+
+    // PUT: версия растёт на 1, устаревшая версия — 412, книги нет — 404
+    @Test
+    void updateBookChecksVersion() {
+        long id = save("Бег", 100).getId();
+
+        Book updated = bookService.updateBook(new Book(id, "Бег", 150, author, 0L));
+
+        assertEquals(1L, updated.getVersion());
+        assertEquals(150, bookService.getByBookId(id).getPrice());
+        assertThrows(PreconditionFailedException.class, () -> bookService.updateBook(new Book(id, "Бег", 175, author, 0L)));
+        assertThrows(NotFoundException.class, () -> bookService.updateBook(new Book(Long.MAX_VALUE, "Бег", 1, author, null)));
+    }
+
+    // PUT ?upsert=true: сначала создаёт книгу с версией 0, потом обновляет
+    @Test
+    void upsertCreatesThenUpdates() {
+        long id = 900_000_000L + Math.abs(author.hashCode() % 1_000_000);
+
+        assertEquals(0L, bookService.upsertBook(new Book(id, "Дни Турбиных", 300, author, null)).getVersion());
+        assertEquals(1L, bookService.upsertBook(new Book(id, "Дни Турбиных", 350, author, null)).getVersion());
+        assertEquals(350, bookService.getByBookId(id).getPrice());
+        assertThrows(PreconditionFailedException.class,
+                () -> bookService.upsertBook(new Book(id, "Дни Турбиных", 400, author, 5L)));
+    }
+
+    // PATCH: меняются только переданные поля
+    @Test
+    void updatePartialChangesOnlyGivenFields() {
+        long id = save("Собачье сердце", 300).getId();
+
+        Book patched = bookService.updatePartial(id, Map.of("price", 350), 0L);
+
+        assertEquals(1L, patched.getVersion());
+        assertEquals(350, patched.getPrice());
+        assertEquals("Собачье сердце", patched.getTitle());
+        assertThrows(PreconditionFailedException.class, () -> bookService.updatePartial(id, Map.of("price", 400), 0L));
+        assertThrows(InvalidPatchException.class, () -> bookService.updatePartial(id, Map.of("isbn", "1"), null));
+        assertThrows(InvalidPatchException.class, () -> bookService.updatePartial(id, Map.of("price", "дорого"), null));
+        assertThrows(NotFoundException.class, () -> bookService.updatePartial(Long.MAX_VALUE, Map.of("price", 1), null));
+    }
+
+    // PATCH /books: у каждого элемента свой результат
+    @Test
+    void updatePartialAllReportsEachItem() {
+        long id = save("Роковые яйца", 200).getId();
+        List<Map<String, Object>> patches = List.of(
+                Map.of("id", id, "version", 0, "title", "Роковые яйца (1925)"),
+                Map.of("id", id, "version", 0, "price", 1),
+                Map.of("id", Long.MAX_VALUE, "price", 1),
+                Map.of("id", id),
+                Map.of("price", 1));
+
+        List<BatchItemResult> results = bookService.updatePartialAll(patches);
+
+        assertEquals(List.of("UPDATED", "FAILED", "FAILED", "FAILED", "FAILED"),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals("Not found or version mismatch", results.get(1).getError());
+        assertEquals("Empty patch", results.get(3).getError());
+        assertEquals("Роковые яйца (1925)", bookService.getByBookId(id).getTitle());
+        assertEquals(1, bookService.search("1925 " + author, 10).size());
+    }
+
+    // If-None-Match сверяется с версией из кэша: после параллельных PATCH-ей там последняя версия, а не та,
+    // чей PATCH дошёл до кэша последним, — иначе клиент со старой версией получил бы 304
+    @Test
+    void getBookVersionAfterConcurrentPatchesIsLatest() throws Exception {
+        long id = save("Дни Турбиных", 100).getId();
+        bookService.getByBookId(id);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> patches = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                int price = 101 + i;
+                patches.add(executor.submit(() -> bookService.updatePartial(id, Map.of("price", price), null)));
+            }
+            for (Future<?> patch : patches) {
+                patch.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(40L, bookService.getBookVersion(id));
+        assertEquals(40L, bookService.getByBookId(id).getVersion());
+    }
+
+    // Страницы по автору идут по id, по цене — по (price, id); курсор ведёт на следующую страницу
+    @Test
+    void pagesFollowKeysetOrder() {
+        int base = 700_000 + Math.abs(author.hashCode() % 100_000) * 10;
+        long third = save("Три", base + 1).getId();
+        long first = save("Раз", base + 3).getId();
+        long second = save("Два", base + 2).getId();
+
+        KeysetPage<BookView> byAuthor = bookService.getPage(0, 2, author, null, null, null);
+        assertEquals(List.of(third, first), ids(byAuthor));
+        assertEquals(first, byAuthor.getNextAfter());
+        assertEquals(List.of(second), ids(bookService.getPage(first, 2, author, null, null, null)));
+        assertEquals(List.of(first), ids(bookService.getPage(0, 10, author, base + 3, base + 3, null)));
+
+        KeysetPage<BookView> byPrice = bookService.getPage(0, 2, null, base + 1, base + 3, null);
+        assertEquals(List.of(third, second), ids(byPrice));
+        assertEquals(base + 2, byPrice.getNextAfterPrice());
+        // Книгу курсора удалили: курсор несёт её цену, следующая страница начинается с того же места
+        bookService.deleteBookById(second);
+        KeysetPage<BookView> next = bookService.getPage(byPrice.getNextAfter(), 2, null, base + 1, base + 3,
+                byPrice.getNextAfterPrice());
+        assertEquals(List.of(first), ids(next));
+        assertNull(next.getNextAfter());
+        assertNull(next.getNextAfterPrice());
+        assertThrows(InvalidCursorException.class,
+                () -> bookService.getPage(byPrice.getNextAfter(), 2, null, base + 1, base + 3, null));
+
+        List<Long> all = ids(bookService.getPage(third - 1, 3, null, null, null, null));
+        assertEquals(List.of(third, first), all);
+    }
+
+    @Test
+    void exportReturnsBooksInIdOrder() {
+        List<Long> saved = List.of(save("А", 1).getId(), save("Б", 2).getId(), save("В", 3).getId());
+        List<Long> exported = new ArrayList<>();
+
+        bookService.exportAll(book -> {
+            if (author.equals(book.getAuthor())) {
+                exported.add(book.getId());
+            }
+        });
+
+        assertEquals(saved, exported);
+    }
+
+    @Test
+    void deleteRemovesFromReadsSearchAndStats() {
+        long single = save("Театральный роман", 300).getId();
+        save("Морфий", 100);
+        save("Записки юного врача", 200);
+        assertEquals(3, bookService.getAuthorStats(author).getCount());
+
+        bookService.deleteBookById(single);
+        assertThrows(NotFoundException.class, () -> bookService.getByBookId(single));
+        assertThrows(NotFoundException.class, () -> bookService.deleteBookById(single));
+        assertEquals(1, bookService.deleteBooksMatching(author, 150, null));
+        assertEquals(1, bookService.getAuthorStats(author).getCount());
+        assertEquals(List.of("Морфий"), bookService.search(author, 10).stream().map(Book::getTitle).toList());
+
+        assertEquals(1, bookService.deleteBooksMatching(author, null, null));
+        assertTrue(bookService.getPage(0, 10, author, null, null, null).getItems().isEmpty());
+        assertThrows(NotFoundException.class, () -> bookService.getAuthorStats(author));
+    }
+
+    private static List<Long> ids(KeysetPage<BookView> page) {
+        return page.getItems().stream().map(BookView::getId).toList();
+    }
+}
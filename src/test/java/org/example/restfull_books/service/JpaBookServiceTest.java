@@ -0,0 +1,11 @@
+package org.example.restfull_books.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Книги в таблице books
+@TestPropertySource(properties = {
+        "app.store.type=jpa",
+        "spring.datasource.url=jdbc:h2:mem:book-service-jpa;DB_CLOSE_DELAY=-1"
+})
+public class JpaBookServiceTest extends BookServiceTest {
+}
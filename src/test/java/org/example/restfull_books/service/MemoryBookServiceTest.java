@@ -0,0 +1,22 @@
+package org.example.restfull_books.service;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Книги в памяти, журнал — во временном каталоге
+@TestPropertySource(properties = {
+        "app.store.type=memory",
+        "spring.datasource.url=jdbc:h2:mem:book-service-memory;DB_CLOSE_DELAY=-1"
+})
+public class MemoryBookServiceTest extends BookServiceTest {
+
+    @DynamicPropertySource
+    static void storeDir(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("book-store").toString();
+        registry.add("app.store.dir", () -> dir);
+    }
+}
@@ -1,6 +1,12 @@
 package org.example.restfull_books.service;
 
+import org.example.restfull_books.cache.EntityCache;
+import org.example.restfull_books.cache.TinyLfuEntityCache;
+import org.example.restfull_books.dto.BatchItemResult;
 import org.example.restfull_books.entity.User;
+import org.example.restfull_books.exception.CustomNewNotFoundException;
+import org.example.restfull_books.exception.PreconditionFailedException;
+import org.example.restfull_books.patch.MergePatchExecutor;
 import org.example.restfull_books.repository.UserRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,10 +14,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,6 +37,14 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private MergePatchExecutor mergePatchExecutor;
+
+    // Настоящий кэш: каждый тест получает новый экземпляр, поэтому первое обращение всегда идёт в репозиторий
+    @Spy
+    private EntityCache<User> userCache = new TinyLfuEntityCache<>(100, 60_000_000_000L, 60_000_000_000L,
+            User::getVersion);
+
     @BeforeEach
     void setUp() {
     }
@@ -91,28 +110,32 @@ public class UserServiceTest {
         Long userId = 1L;
         // Создаем объект пользователя до внесения изменений
         User responseUser = new User(1L, "John", "Doe");
-        // Мокируем поведение метода findById: возвращаем объект пользователя, если он существует
-        when(userRepository.findById(userId)).thenReturn(Optional.of(responseUser));
+        // Мокируем одиночный DELETE: удалена одна строка
+        when(userRepository.deleteOne(userId)).thenReturn(1);
         // Вызываем тестируемый метод удаления пользователя по ID
         userService.deleteUserById(userId);
-        // Проверяем, что метод delete был вызван ровно один раз с объектом updateUser
-        verify(userRepository, times(1)).delete(responseUser);
+        // Проверяем, что удаление прошло одним запросом, без предварительной загрузки пользователя
+        verify(userRepository, times(1)).deleteOne(userId);
+        verify(userRepository, never()).findById(userId);
+    }
+
+    @Test
+    void deleteUserByIdNotFoundByRowCount() {
+        // DELETE не затронул ни одной строки — пользователя нет
+        when(userRepository.deleteOne(1L)).thenReturn(0);
+
+        assertThrows(CustomNewNotFoundException.class, () -> userService.deleteUserById(1L));
     }
 
     @Test
     void updateUser() {
         // Создаем ID пользователя, которого будем обновлять
         Long userId = 1L;
-        // Создаем объект пользователя до внесения изменений
-        User responseUser = new User(userId, "John", "Doe");
         // Создаем объект пользователя с новыми данными
         User updateUser = new User(userId,"Jone", "Doe");
 
-
-        // Мокируем проверку существования пользователя: метод existsById возвращает true
-        when(userRepository.existsById(userId)).thenReturn(true);
-        // Мокируем сохранение пользователя: метод save возвращает обновленного пользователя
-        when(userRepository.save(updateUser)).thenReturn(updateUser);
+        // Мокируем UPDATE всех полей: строка найдена, новая версия 1
+        when(mergePatchExecutor.replace(updateUser, userId, null)).thenReturn(1L);
         // Вызываем тестируемый метод и сохраняем результат
         User result=userService.updateUser(updateUser);
         // Убеждаемся, что результат не равен null
@@ -123,10 +146,11 @@ public class UserServiceTest {
         assertEquals(updateUser.getLastName(), result.getLastName());
         // Проверяем, что идентификатор пользователя остался прежним
         assertEquals(updateUser.getId(), result.getId());
-        // Проверяем, что метод existsById был вызван ровно один раз для проверки существования пользователя
-        verify(userRepository, times(1)).existsById(userId);
-        // Проверяем, что метод save был вызван ровно один раз с объектом updateUser
-        verify(userRepository, times(1)).save(updateUser);
+        // Версия — из того же запроса UPDATE
+        assertEquals(1L, result.getVersion());
+        // Ни проверки существования, ни merge через save: один запрос
+        verify(userRepository, never()).findVersionById(userId);
+        verify(userRepository, never()).save(any(User.class));
 
     }
 
@@ -134,18 +158,16 @@ public class UserServiceTest {
     void updatePartial() {
         // Создаем ID пользователя, которого будем обновлять
         Long userId = 1L;
-        // Создаем объект пользователя до внесения изменений
-        User responseUser = new User(userId, "John", "Doe");//Пользователь до обновления
         // Создаем карту изменений: обновляем только поле "firstName"
         Map<String, Object> updates = Map.of("firstName", "Jone");//Данные для обновления
         // Создаем объект пользователя с ожидаемыми изменениями
         User updateUser = new User(userId, "Jone", "Doe");//Ожидаемый результат после обновления
-        // Настраиваем поведение мока: при вызове findById возвращаем найденного пользователя
-        when(userRepository.findById(userId)).thenReturn(Optional.of(responseUser));
-        // Настраиваем поведение мока: save должен возвращать тот объект, который ему передали
-        when(userRepository.save(any(User.class))).thenAnswer(invocation->invocation.getArgument(0));// Мок возврата обновленного пользователя
+        // UPDATE только firstName выполняет MergePatchExecutor, строка найдена
+        when(mergePatchExecutor.update(User.class, userId, updates, null)).thenReturn(true);
+        // После UPDATE пользователь читается для ответа
+        when(userRepository.findById(userId)).thenReturn(Optional.of(updateUser));
         // Вызываем метод updatePartial и получаем результат
-        User result=userService.updatePartial(userId, updates);
+        User result = userService.updatePartial(userId, updates);
         // Проверяем, что результат не равен null
         assertNotNull(result);
         // Проверяем, что поле firstName изменилось согласно ожидаемому значению
@@ -154,10 +176,150 @@ public class UserServiceTest {
         assertEquals(updateUser.getLastName(), result.getLastName());
         // Проверяем, что идентификатор пользователя остался неизменным
         assertEquals(updateUser.getId(), result.getId());
-        // Убеждаемся, что метод findById был вызван ровно один раз
-        verify(userRepository, times(1)).findById(userId); // **Добавлено для проверки вызова findById**
-        // Убеждаемся, что метод save был вызван с объектом responseUser, модифицированным в методе updatePartial
-        verify(userRepository, times(1)).save(responseUser); // **Исправлено: передача responseUser вместо updateUser**
+        // Полная перезапись через save больше не используется
+        verify(userRepository, never()).save(any(User.class));
+        // Обновлённый пользователь попадает в кэш: следующее чтение не идёт в БД
+        userService.getByUserId(userId);
+        verify(userRepository, times(1)).findById(userId);
+    }
+
+    @Test
+    void updatePartialDistinguishesMissingAndStale() {
+        Map<String, Object> updates = Map.of("lastName", "Doe");
+        // UPDATE не затронул строк: у первого пользователя другая версия, второго нет
+        when(mergePatchExecutor.update(eq(User.class), anyLong(), eq(updates), eq(3L))).thenReturn(false);
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+        when(userRepository.findVersionById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(PreconditionFailedException.class, () -> userService.updatePartial(1L, updates, 3L));
+        assertThrows(CustomNewNotFoundException.class, () -> userService.updatePartial(2L, updates, 3L));
+    }
+
+    // If-None-Match: версия пользователя из кэша, без SELECT version; нет в кэше — один SELECT version
+    @Test
+    void getUserVersionUsesCachedUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User(1L, "John", "Doe", 7L)));
+        when(userRepository.findVersionById(2L)).thenReturn(Optional.of(3L));
+        userService.getByUserId(1L);
+
+        assertEquals(7L, userService.getUserVersion(1L));
+        assertEquals(3L, userService.getUserVersion(2L));
+        verify(userRepository, never()).findVersionById(1L);
+        verify(userRepository, never()).findById(2L);
+    }
+
+    @Test
+    void getByUserIdServedFromCache() {
+        Long userId = 1L;
+        when(userRepository.findById(userId)).thenReturn(Optional.of(new User(1L, "John", "Doe")));
+
+        // Два чтения подряд: второе должно обслужиться кэшем
+        userService.getByUserId(userId);
+        User user = userService.getByUserId(userId);
+
+        assertEquals("John", user.getFirstName());
+        verify(userRepository, times(1)).findById(userId);
+        assertEquals(1, userCache.stats().getHits());
+    }
+
+    @Test
+    void getByUserIdNotFoundIsCachedAndClearedBySave() {
+        Long userId = 1L;
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        // Промах запоминается: второй запрос несуществующего id не идёт в БД
+        assertThrows(CustomNewNotFoundException.class, () -> userService.getByUserId(userId));
+        assertThrows(CustomNewNotFoundException.class, () -> userService.getByUserId(userId));
+        verify(userRepository, times(1)).findById(userId);
+
+        // После сохранения отрицательная запись заменяется сохранённым пользователем
+        User saved = new User(1L, "John", "Doe");
+        when(userRepository.save(any(User.class))).thenReturn(saved);
+        userService.save(new User(0L, "John", "Doe"));
+        assertEquals("John", userService.getByUserId(userId).getFirstName());
+    }
+
+    @Test
+    void deleteUserByIdMarksUserMissing() {
+        Long userId = 1L;
+        when(userRepository.deleteOne(userId)).thenReturn(1);
+
+        userService.deleteUserById(userId);
+
+        // После удаления кэш отвечает "не найдено" без обращения к БД
+        assertThrows(CustomNewNotFoundException.class, () -> userService.getByUserId(userId));
+        verify(userRepository, never()).findById(userId);
+    }
+
+    @Test
+    void updateUserWithStaleVersionFails() {
+        Long userId = 1L;
+        User user = new User(userId, "Jone", "Doe", 3L);
+        // В БД уже версия 4, клиент прислал If-Match с версией 3: UPDATE не затронул строк
+        when(mergePatchExecutor.replace(user, userId, 3L)).thenReturn(null);
+        when(userRepository.findVersionById(userId)).thenReturn(Optional.of(4L));
+
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(user));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void updateUserNotFoundByRowCount() {
+        User user = new User(5L, "Jone", "Doe");
+        when(mergePatchExecutor.replace(user, 5L, null)).thenReturn(null);
+        when(userRepository.findVersionById(5L)).thenReturn(Optional.empty());
+
+        assertThrows(CustomNewNotFoundException.class, () -> userService.updateUser(user));
+    }
+
+    // If-None-Match: 304 только для текущей версии. Опоздавший PATCH со старой версией кэш не понижает
+    @Test
+    void getUserVersionIgnoresLatePatchOfOlderVersion() {
+        when(mergePatchExecutor.update(eq(User.class), eq(1L), anyMap(), isNull())).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new User(1L, "John", "Doe", 9L)),
+                Optional.of(new User(1L, "John", "Doe", 8L)));
+
+        userService.updatePartial(1L, Map.of("firstName", "John"), null);
+        userService.updatePartial(1L, Map.of("firstName", "John"), null);
+
+        assertEquals(9L, userService.getUserVersion(1L));
+    }
+
+    // PATCH перечитал пользователя до DELETE, а в кэш кладёт после: версия удалённого пользователя не отдаётся
+    @Test
+    void getUserVersionAfterDeleteIgnoresLatePatch() {
+        when(mergePatchExecutor.update(eq(User.class), eq(1L), anyMap(), isNull())).thenReturn(true);
+        when(userRepository.deleteOne(1L)).thenReturn(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            userService.deleteUserById(1L);
+            return Optional.of(new User(1L, "John", "Doe", 8L));
+        });
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        userService.updatePartial(1L, Map.of("firstName", "John"), null);
+
+        assertThrows(CustomNewNotFoundException.class, () -> userService.getUserVersion(1L));
+    }
+
+    // GET прочитал версию 7, пакетный PATCH сделал 8 и сбросил кэш, и только потом GET кладёт версию 7 в кэш
+    @Test
+    void getUserVersionIsNotServedFromLoadOverlappingBatch() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch patched = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            patched.await();
+            return Optional.of(new User(1L, "John", "Doe", 7L));
+        });
+        when(mergePatchExecutor.updateAll(eq(User.class), anyList())).thenReturn(List.of(BatchItemResult.updated(0, 1L)));
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(8L));
+
+        CompletableFuture<User> reader = CompletableFuture.supplyAsync(() -> userService.getByUserId(1L));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        userService.updatePartialAll(List.of(Map.of("id", 1L, "firstName", "Jack")));
+        patched.countDown();
 
+        assertEquals(7L, reader.get(10, TimeUnit.SECONDS).getVersion());
+        assertEquals(8L, userService.getUserVersion(1L));
     }
-}
\ No newline at end of file
+}
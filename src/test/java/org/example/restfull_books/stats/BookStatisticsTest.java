@@ -0,0 +1,114 @@
+package org.example.restfull_books.stats;
+
+import org.example.restfull_books.entity.Book;
+import org.example.restfull_books.util.Tombstones;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookStatisticsTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private BookStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = new BookStatistics(100, new Tombstones(BookStatistics.TOMBSTONE_TTL, now::get));
+        statistics.record(new Book(1L, "Мастер и Маргарита", 500, "Булгаков"));
+        statistics.record(new Book(2L, "Белая гвардия", 400, "Булгаков"));
+        statistics.record(new Book(3L, "Собачье сердце", 300, "Булгаков"));
+        statistics.record(new Book(4L, "Война и мир", 950, "Толстой"));
+    }
+
+    @Test
+    void totalsAndHistogram() {
+        BookStats stats = statistics.total();
+
+        assertEquals(4, stats.getCount());
+        assertEquals(300, stats.getMinPrice());
+        assertEquals(950, stats.getMaxPrice());
+        assertEquals(537.5, stats.getAvgPrice());
+        assertEquals(2, stats.getAuthors());
+        assertEquals(List.of(new BookStats.Bucket(300, 400, 1), new BookStats.Bucket(400, 500, 1),
+                new BookStats.Bucket(500, 600, 1), new BookStats.Bucket(900, 1000, 1)), stats.getHistogram());
+    }
+
+    @Test
+    void perAuthor() {
+        assertEquals(new AuthorStats("Булгаков", 3, 300, 500, 400.0), statistics.author("Булгаков"));
+        assertNull(statistics.author("Пушкин"));
+    }
+
+    @Test
+    void priceChangeReplacesOldContribution() {
+        // Самая дешёвая книга подорожала: минимум автора сдвигается на следующую цену
+        statistics.record(new Book(3L, "Собачье сердце", 700, "Булгаков"));
+
+        assertEquals(new AuthorStats("Булгаков", 3, 400, 700, 1600.0 / 3), statistics.author("Булгаков"));
+        assertEquals(4, statistics.total().getCount());
+        assertFalse(statistics.total().getHistogram().contains(new BookStats.Bucket(300, 400, 1)));
+    }
+
+    @Test
+    void authorChangeMovesBook() {
+        statistics.record(new Book(4L, "Война и мир", 950, "Лев Толстой"));
+
+        assertNull(statistics.author("Толстой"));
+        assertEquals(new AuthorStats("Лев Толстой", 1, 950, 950, 950.0), statistics.author("Лев Толстой"));
+        assertEquals(2, statistics.total().getAuthors());
+    }
+
+    @Test
+    void removeKeepsMinMaxOfRemainingBooks() {
+        // Две книги с одной ценой: удаление одной не должно убрать цену из min
+        statistics.record(new Book(5L, "Роковые яйца", 300, "Булгаков"));
+        statistics.remove(3L);
+        assertEquals(300, statistics.author("Булгаков").getMinPrice());
+
+        statistics.remove(5L);
+        statistics.remove(5L); // повторное удаление ничего не меняет
+        assertEquals(new AuthorStats("Булгаков", 2, 400, 500, 450.0), statistics.author("Булгаков"));
+        assertEquals(3, statistics.total().getCount());
+    }
+
+    @Test
+    void emptyStatistics() {
+        statistics.clear();
+        BookStats stats = statistics.total();
+
+        assertEquals(0, stats.getCount());
+        assertNull(stats.getMinPrice());
+        assertNull(stats.getAvgPrice());
+        assertTrue(stats.getHistogram().isEmpty());
+    }
+
+    @Test
+    void lateRecordOfOlderVersionIsIgnored() {
+        statistics.record(new Book(3L, "Собачье сердце", 350, "Булгаков", 2L));
+        statistics.record(new Book(3L, "Собачье сердце", 320, "Булгаков", 1L));
+
+        assertEquals(new AuthorStats("Булгаков", 3, 350, 500, 416.6666666666667), statistics.author("Булгаков"));
+    }
+
+    // Запись, опоздавшая к удалению, не оставляет «книгу-призрак»; после срока надгробия — снова учитывается
+    @Test
+    void removedBookIsNotRecordedUntilTombstoneExpires() {
+        statistics.remove(4L);
+        statistics.record(new Book(4L, "Война и мир", 990, "Толстой", 3L));
+        assertEquals(3, statistics.total().getCount());
+        assertNull(statistics.author("Толстой"));
+
+        statistics.revive(4L);
+        statistics.record(new Book(4L, "Анна Каренина", 800, "Толстой", 0L));
+        assertEquals(new AuthorStats("Толстой", 1, 800, 800, 800.0), statistics.author("Толстой"));
+
+        statistics.remove(1L);
+        now.addAndGet(BookStatistics.TOMBSTONE_TTL.toNanos());
+        statistics.record(new Book(1L, "Мастер и Маргарита", 500, "Булгаков", 1L));
+        assertEquals(4, statistics.total().getCount());
+    }
+}
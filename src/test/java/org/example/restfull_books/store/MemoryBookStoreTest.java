@@ -0,0 +1,205 @@
+package org.example.restfull_books.store;
+
+import org.example.restfull_books.dto.BatchItemResult;
+import org.example.restfull_books.dto.BookView;
+import org.example.restfull_books.entity.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryBookStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<MemoryBookStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(MemoryBookStore::close);
+    }
+
+    // Новый экземпляр на том же каталоге — как старт после падения: close() не вызывался, снимка нет
+    private MemoryBookStore open(long snapshotSize) {
+        MemoryBookStore store = new MemoryBookStore(dir, true, snapshotSize);
+        opened.add(store);
+        return store;
+    }
+
+    private static Book book(String title, int price) {
+        return new Book(0, title, price, "Булгаков");
+    }
+
+    // После падения состояние восстанавливается из журнала: вставки, изменения и удаления в исходном порядке
+    @Test
+    void recoversFromLogAfterCrash() {
+        MemoryBookStore store = open(Long.MAX_VALUE);
+        long kept = store.insert(book("Бег", 100)).getId();
+        long deleted = store.insert(book("Морфий", 200)).getId();
+        store.update(kept, Map.of("price", 150), 0L);
+        store.deleteOne(deleted);
+
+        MemoryBookStore recovered = open(Long.MAX_VALUE);
+
+        Book book = recovered.findById(kept).orElseThrow();
+        assertEquals(150, book.getPrice());
+        assertEquals(1L, book.getVersion());
+        assertTrue(recovered.findById(deleted).isEmpty());
+        // Счётчик id продолжается после восстановленных книг
+        assertEquals(deleted + 1, recovered.insert(book("Дьяволиада", 300)).getId());
+    }
+
+    // Книга пакета не записалась в журнал (здесь — слишком большая запись): не создана ни одна книга пакета,
+    // ни в памяти, ни после восстановления из журнала; id пакета не потрачены
+    @Test
+    void insertAllIsAllOrNothing() {
+        MemoryBookStore store = open(Long.MAX_VALUE);
+        store.insert(book("Бег", 100));
+        List<Book> batch = List.of(book("Морфий", 200), book("x".repeat(1 << 24), 300), book("Роковые яйца", 400));
+
+        assertThrows(UncheckedIOException.class, () -> store.insertAll(batch));
+
+        assertEquals(1, store.findPage(0, Limit.of(10)).size());
+        assertEquals(2, store.insert(book("Дьяволиада", 500)).getId());
+        MemoryBookStore recovered = open(Long.MAX_VALUE);
+        assertEquals(List.of("Бег", "Дьяволиада"),
+                recovered.findPage(0, Limit.of(10)).stream().map(BookView::getTitle).toList());
+    }
+
+        // Ошибочный патч в пакете — код ошибки, как у MergePatchExecutor, без текста исключения
+    @Test
+    void updateAllReportsCodeForInvalidPatch() {
+        MemoryBookStore store = open(Long.MAX_VALUE);
+        long id = store.insert(book("Бег", 100)).getId();
+
+        List<BatchItemResult> results = store.updateAll(List.of(Map.of("id", id, "pages", 300),
+                Map.of("id", id, "price", "много"), Map.of("id", id, "price", 150)));
+
+        assertEquals(List.of(BatchItemResult.INVALID_ITEM, BatchItemResult.INVALID_ITEM),
+                results.subList(0, 2).stream().map(BatchItemResult::getError).toList());
+        assertEquals("UPDATED", results.get(2).getStatus());
+    }
+
+    // Снимок начинает новое поколение журнала: старый журнал удаляется, при старте читаются снимок и новый журнал
+    @Test
+    void recoversFromSnapshotAndNewerLog() {
+        MemoryBookStore store = open(Long.MAX_VALUE);
+        long before = store.insert(book("Белая гвардия", 400)).getId();
+        store.snapshot();
+        long after = store.insert(book("Театральный роман", 300)).getId();
+        store.update(before, Map.of("title", "Белая гвардия (1925)"), null);
+
+        assertTrue(Files.exists(dir.resolve("snapshot-00000002.bin")));
+        assertTrue(Files.exists(dir.resolve("wal-00000002.log")));
+        assertFalse(Files.exists(dir.resolve("wal-00000001.log")));
+
+        MemoryBookStore recovered = open(Long.MAX_VALUE);
+        assertEquals("Белая гвардия (1925)", recovered.findById(before).orElseThrow().getTitle());
+        assertEquals(300, recovered.findById(after).orElseThrow().getPrice());
+    }
+
+    // Журнал перерос snapshot-size — снимок пишется в фоне сам
+    @Test
+    void writesSnapshotWhenLogGrows() throws Exception {
+        MemoryBookStore store = open(1024);
+        for (int i = 0; i < 50; i++) {
+            store.insert(book("Книга " + i, i));
+        }
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!hasSnapshot()) {
+            assertTrue(System.nanoTime() < deadline, "snapshot was not written");
+            Thread.sleep(10);
+        }
+        store.close(); // дожидается фонового снимка
+        opened.remove(store);
+
+        MemoryBookStore recovered = open(Long.MAX_VALUE);
+        assertEquals(50, recovered.findPage(0, Limit.of(100)).size());
+    }
+
+    private boolean hasSnapshot() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.anyMatch(file -> file.getFileName().toString().endsWith(".bin"));
+        }
+    }
+
+    // Запись, оборванная на середине, отбрасывается; новые записи идут сразу за последней целой
+    @Test
+    void dropsTornTail() throws IOException {
+        MemoryBookStore store = open(Long.MAX_VALUE);
+        long whole = store.insert(book("Роковые яйца", 200)).getId();
+        long torn = store.insert(book("Собачье сердце", 300)).getId();
+        Path wal = dir.resolve("wal-00000001.log");
+        try (FileChannel channel = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        MemoryBookStore recovered = open(Long.MAX_VALUE);
+        assertTrue(recovered.findById(whole).isPresent());
+        assertTrue(recovered.findById(torn).isEmpty());
+        long next = recovered.insert(book("Дьяволиада", 100)).getId();
+
+        MemoryBookStore again = open(Long.MAX_VALUE);
+        assertEquals("Дьяволиада", again.findById(next).orElseThrow().getTitle());
+    }
+
+    // Остановка пишет снимок: следующий старт не читает журнал
+    @Test
+    void closeWritesSnapshot() {
+        MemoryBookStore store = new MemoryBookStore(dir, true, Long.MAX_VALUE);
+        long id = store.insert(book("Мастер и Маргарита", 500)).getId();
+        store.close();
+
+        assertTrue(Files.exists(dir.resolve("snapshot-00000002.bin")));
+        assertEquals("Мастер и Маргарита", open(Long.MAX_VALUE).findById(id).orElseThrow().getTitle());
+    }
+
+    // Чтение без блокировки во время записей (в том числе перестроения хэш-таблицы) видит каждую записанную книгу
+    @Test
+    void readsDuringWritesSeeEveryCommittedBook() throws Exception {
+        MemoryBookStore store = new MemoryBookStore(dir, false, Long.MAX_VALUE);
+        opened.add(store);
+        long first = store.insert(book("Первая", 0)).getId();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Long> missing = new CopyOnWriteArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (writing.get()) {
+                    if (store.findById(first).isEmpty()) {
+                        missing.add(first);
+                    }
+                }
+            }));
+        }
+        for (int i = 1; i <= 20_000; i++) {
+            store.insert(book("Книга " + i, i));
+            if (i % 100 == 0) {
+                store.update(first, Map.of("price", i), null);
+            }
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(missing.isEmpty());
+        assertEquals(20_000, store.findById(first).orElseThrow().getPrice());
+    }
+}